@@ -0,0 +1,351 @@
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The AquaEventBus class lets outside tools (dashboards, recorders,
+ *      and so on) follow what happens in an aquarium.  The aquarium and its
+ *      fish publish events (a fish was added, moved, or changed direction;
+ *      a step finished) and each subscriber receives them on its own
+ *      thread.  Give an aquarium a bus with {@link Aquarium#setEventBus}.
+ * <br> <br>
+ *      Events go through a fixed-size ring buffer, in the style of the LMAX
+ *      Disruptor.  An event is just a few numbers written into preallocated
+ *      arrays, so publishing never allocates memory, and it never waits for
+ *      subscribers.  When a slow subscriber lets the ring fill up, the
+ *      bus's {@link Policy} decides what happens: either new events are
+ *      dropped until there is room, or the oldest events are overwritten
+ *      and the slow subscriber skips them.  Either way the losses are
+ *      counted.  Subscribers receive events in batches of up to a chosen
+ *      size, with the last event of each batch flagged.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see Aquarium
+ **/
+public class AquaEventBus
+{
+    /** Event type: a fish was added to the aquarium. **/
+    public static final int FISH_ADDED = 1;
+    /** Event type: a fish moved forward. **/
+    public static final int FISH_MOVED = 2;
+    /** Event type: a fish changed direction away from a wall. **/
+    public static final int DIRECTION_CHANGED = 3;
+    /** Event type: a fish changed direction because it was at a wall. **/
+    public static final int TURNED_AT_WALL = 4;
+    /** Event type: a step finished (the fish ID is -1). **/
+    public static final int STEP_COMPLETED = 5;
+
+    /** What to do with new events when a subscriber has fallen behind. **/
+    public enum Policy { DROP_NEWEST, OVERWRITE_OLDEST }
+
+    /**
+     *  A Listener receives events, one call per event, on its
+     *  subscription's thread.
+     **/
+    public interface Listener
+    {
+        /**
+         *  Handles one event.
+         *  @param  type         the kind of event (FISH_ADDED, ...)
+         *  @param  fishId       the ID of the fish involved, or -1
+         *  @param  x            the fish's x coordinate after the event
+         *  @param  y            the fish's y coordinate after the event
+         *  @param  step         the number of the step the event was in
+         *  @param  endOfBatch   <code>true</code> for the last event of
+         *                       a batch (a good time to flush output)
+         **/
+        void onEvent(int type, int fishId, int x, int y, long step,
+                     boolean endOfBatch);
+    }
+
+    // STATE
+
+    private static final long IN_PROGRESS = -1;   // slot being written
+    private static final int SPINS = 100;         // before a waiting
+                                                  //    subscriber parks
+
+    private final Policy policy;          // what to do when full
+    private final int capacity, mask;     // ring size (a power of two)
+    private final int[] types, fishIds, xs, ys;   // the ring itself
+    private final long[] steps;
+    private final AtomicLongArray published;      // sequence in each slot
+    private final AtomicLong next = new AtomicLong();   // next to claim
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Subscription[] subscriptions =   // replaced, never
+        new Subscription[0];                          //   changed in place
+    private volatile long gatingCache = 0;  // slowest subscriber, last seen
+    private volatile long currentStep = 0;  // step events belong to
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs an event bus.
+     *  @param  capacity   number of events the ring holds; rounded up to a
+     *                     power of two
+     *  @param  policy     what to do when a subscriber falls behind
+     **/
+    public AquaEventBus(int capacity, Policy policy)
+    {
+        if ( capacity <= 0 )
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.mask = this.capacity - 1;
+        this.policy = policy;
+        types = new int[this.capacity];
+        fishIds = new int[this.capacity];
+        xs = new int[this.capacity];
+        ys = new int[this.capacity];
+        steps = new long[this.capacity];
+        published = new AtomicLongArray(this.capacity);
+        for ( int i = 0; i < this.capacity; i++ )
+            published.set(i, i - (long) this.capacity);   // nothing yet
+    }
+
+    /**
+     *  Publishes an event.  This never blocks and never allocates.
+     *  @param  type     the kind of event
+     *  @param  fishId   the ID of the fish involved, or -1
+     *  @param  x        the fish's x coordinate
+     *  @param  y        the fish's y coordinate
+     *  @return <code>true</code> if the event was published;
+     *          <code>false</code> if it was dropped because the ring was
+     *          full
+     **/
+    public boolean publish(int type, int fishId, int x, int y)
+    {
+        long seq;
+        if ( policy == Policy.OVERWRITE_OLDEST )
+            seq = next.getAndIncrement();
+        else
+        {
+            // Claim a slot only if every subscriber is done with it.
+            do
+            {
+                seq = next.get();
+                if ( seq - gatingCache >= capacity )
+                {
+                    gatingCache = slowestSubscriber(seq);
+                    if ( seq - gatingCache >= capacity )
+                    {
+                        dropped.incrementAndGet();
+                        return false;
+                    }
+                }
+            } while ( ! next.compareAndSet(seq, seq + 1) );
+        }
+
+        int slot = (int) seq & mask;
+        published.set(slot, IN_PROGRESS);
+        VarHandle.storeStoreFence();    // mark the slot before changing it
+        types[slot] = type;
+        fishIds[slot] = fishId;
+        xs[slot] = x;
+        ys[slot] = y;
+        steps[slot] = currentStep;
+        published.lazySet(slot, seq);
+        return true;
+    }
+
+    /**
+     *  Publishes a STEP_COMPLETED event and moves on to the next step.
+     **/
+    public void stepCompleted()
+    {
+        publish(STEP_COMPLETED, -1, 0, 0);
+        currentStep++;
+    }
+
+    /**
+     *  Gets the number of events dropped because the ring was full
+     *  (only under the DROP_NEWEST policy).
+     *  @return number of events dropped
+     **/
+    public long droppedCount()
+    {
+        return dropped.get();
+    }
+
+    /**
+     *  Starts delivering events to a listener on a new thread.  The
+     *  listener sees events published from now on.
+     *  @param  listener   the listener
+     *  @param  maxBatch   most events delivered before the listener is
+     *                     told a batch has ended
+     *  @return the subscription, which can be closed to stop delivery
+     **/
+    public Subscription subscribe(Listener listener, int maxBatch)
+    {
+        if ( maxBatch <= 0 )
+            throw new IllegalArgumentException("batch size must be positive");
+        Subscription s = new Subscription(listener, maxBatch, next.get());
+        synchronized ( this )
+        {
+            Subscription[] more = Arrays.copyOf(subscriptions,
+                                                subscriptions.length + 1);
+            more[more.length - 1] = s;
+            subscriptions = more;
+        }
+        s.thread.start();
+        return s;
+    }
+
+    /**
+     *  Stops every subscription.
+     **/
+    public void close()
+    {
+        for ( Subscription s : subscriptions )
+            s.close();
+    }
+
+    /**
+     *  Finds the position of the slowest subscriber (or the publishing
+     *  position itself, if there are none).  Loops over the array by
+     *  index, so that publishing allocates nothing.
+     **/
+    private long slowestSubscriber(long seq)
+    {
+        Subscription[] current = subscriptions;
+        long min = seq;
+        for ( int i = 0; i < current.length; i++ )
+            min = Math.min(min, current[i].cursor);
+        return min;
+    }
+
+    /**
+     *  Stops delivering events to a subscription.
+     **/
+    private synchronized void unsubscribe(Subscription s)
+    {
+        Subscription[] current = subscriptions;
+        for ( int i = 0; i < current.length; i++ )
+        {
+            if ( current[i] == s )
+            {
+                Subscription[] fewer = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, fewer, 0, i);
+                System.arraycopy(current, i + 1, fewer, i, fewer.length - i);
+                subscriptions = fewer;
+                return;
+            }
+        }
+    }
+
+
+    /**
+     *  A Subscription delivers events to one listener on its own thread.
+     **/
+    public final class Subscription
+    {
+        private final Listener listener;
+        private final int maxBatch;
+        private final Thread thread;
+        private volatile long cursor;        // next sequence to deliver
+        private volatile boolean running = true;
+        private volatile long lost = 0;      // events skipped (overwritten)
+
+        /**
+         *  Constructs a subscription that starts at the given sequence.
+         **/
+        private Subscription(Listener listener, int maxBatch, long start)
+        {
+            this.listener = listener;
+            this.maxBatch = maxBatch;
+            this.cursor = start;
+            this.thread = new Thread(this::deliver, "aqua-event-subscriber");
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         *  Gets the number of events this subscriber missed because they
+         *  were overwritten before it got to them.
+         *  @return number of events missed
+         **/
+        public long lostCount()
+        {
+            return lost;
+        }
+
+        /**
+         *  Stops delivery and waits for the subscription's thread to
+         *  finish its current batch.
+         **/
+        public void close()
+        {
+            running = false;
+            unsubscribe(this);
+            LockSupport.unpark(thread);
+            if ( Thread.currentThread() != thread )
+            {
+                try
+                {
+                    thread.join();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         *  Body of the subscription's thread.
+         **/
+        private void deliver()
+        {
+            int idle = 0;
+            long seq = cursor;
+            while ( running )
+            {
+                int delivered = 0;
+                while ( delivered < maxBatch )
+                {
+                    int slot = (int) seq & mask;
+                    long found = published.get(slot);
+                    if ( found < seq )
+                        break;                       // not published yet
+                    if ( found > seq )
+                    {
+                        // Overwritten: skip to the oldest event still in
+                        // the ring.
+                        long oldest = Math.max(seq + 1, next.get() - capacity);
+                        lost += oldest - seq;
+                        seq = oldest;
+                        continue;
+                    }
+
+                    int type = types[slot];
+                    int fishId = fishIds[slot];
+                    int x = xs[slot];
+                    int y = ys[slot];
+                    long step = steps[slot];
+                    VarHandle.loadLoadFence();
+                    if ( published.get(slot) != seq )
+                        continue;     // overwritten while reading; recheck
+
+                    delivered++;
+                    seq++;
+                    boolean end = (delivered == maxBatch)
+                        || published.get((int) seq & mask) != seq;
+                    listener.onEvent(type, fishId, x, y, step, end);
+                }
+                cursor = seq;      // lets publishers reuse the slots
+
+                if ( delivered > 0 )
+                    idle = 0;
+                else if ( ++idle > SPINS )
+                    LockSupport.parkNanos(50000);
+                else
+                    Thread.onSpinWait();
+            }
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 
 import java.awt.Color;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -17,6 +18,23 @@ import java.util.Random;
  *   2008-2009, Alyce Brady, Simplified by replacing two classes
  *                               (AquaPoint and Direction) with single
  *                               NavigationAide class. <br>
+ *   19 October 2026, Added moveVertically, used by schooling behavior. <br>
+ *   19 October 2026, Restored move(), which now delegates to a pluggable
+ *                    FishBehavior. <br>
+ *   19 October 2026, Added eaten state for predator behavior. <br>
+ *   19 October 2026, Keep color as an index into a shared FishPalette,
+ *                    making Color objects only when asked for. <br>
+ *   19 October 2026, Draw random moves from the aquarium's generator. <br>
+ *   19 October 2026, Publish moves and turns to the aquarium's event bus.
+ *                    <br>
+ *   19 October 2026, Report moves and turns to the aquarium's statistics.
+ *                    <br>
+ *   19 October 2026, Take IDs from a thread-safe FishIdAllocator; added
+ *                    createFish to make many fish at once. <br>
+ *   19 October 2026, Read the distance to the wall once per move; the
+ *                    NavigationalAide now keeps it up to date. <br>
+ *   19 October 2026, Added placeFish, for fish handed over between the
+ *                    processes of a distributed aquarium. <br>
  *   (date), (your name), Modified to .... <br>
  * 
  * @author (your name) (with assistance from)
@@ -31,17 +49,18 @@ public class AquaFish
     public static final int MIN_DISTANCE = 10;
     public static final int MAX_DISTANCE = 70;
 
-    // Class Variables: Shared among ALL fish
-    private static int nextAvailableID = 1;   // next avail unique identifier
-    private static Random generator = new Random(); // random number generator
+    // Length of the biggest fish (see NavigationalAide.initSize)
+    public static final int MAX_LENGTH = 75;
 
     // Instance Variables: Encapsulated data for EACH fish
     private Aquarium theAquarium;    // aquarium in which this fish is swimming
     private int uniqueID;            // unique identifier for this fish
-    private Color color;             // fish's color
+    private int colorIndex;          // fish's color (index in FishPalette)
     private boolean facingRight;     // whether fish is facing right or left
     private NavigationalAide aide;   // object that keeps track of this fish's
                                      //    size, location, and direction
+    private FishBehavior behavior;   // how this fish moves each timestep
+    private boolean eaten;           // whether a predator has eaten this fish
 
     // OPERATIONS (constructor and methods)
 
@@ -56,8 +75,10 @@ public class AquaFish
     public AquaFish(Aquarium aqua)
     {
         // Use the two-parameter constructor for the real initialization,
-        // specifying that the default color should be Color.WHITE.
-        this(aqua, Color.WHITE);
+        // specifying that the default color should be white.  (Using the
+        // packed value rather than Color.WHITE means headless runs never
+        // have to load the AWT classes.)
+        this(aqua, 0xFFFFFF);
     }
 
     /**
@@ -69,18 +90,104 @@ public class AquaFish
      *  @param    newColor  the color for the new fish
      **/
     public AquaFish(Aquarium aqua, Color newColor)
+    {
+        this(aqua, newColor.getRGB());
+    }
+
+    /**
+     *  The AquaFish constructor sets properties of the AquaFish.
+     *  Precondition: the aquarium must be big enough to accommodate
+     *  the biggest fish (currently 75 pixels long and 30 pixels high)
+     *  plus 10 pixels of padding in all four directions.
+     *  @param    aqua   the Aquarium in which the fish will live
+     *  @param    newRGB    the color for the new fish, packed as 0xRRGGBB
+     **/
+    public AquaFish(Aquarium aqua, int newRGB)
+    {
+        this(aqua, FishIdAllocator.nextId(), FishPalette.intern(newRGB));
+    }
+
+    /**
+     *  Constructs a fish with an ID and color already chosen (see
+     *  createFish).
+     *  @param    aqua         the Aquarium in which the fish will live
+     *  @param    id           the fish's unique ID
+     *  @param    colorIndex   the fish's color (index in FishPalette)
+     **/
+    private AquaFish(Aquarium aqua, int id, int colorIndex)
     {
         // Keep track of the aquarium and initialize ID.
         this.theAquarium = aqua;
-        this.uniqueID = nextAvailableID;
-        nextAvailableID++;
+        this.uniqueID = id;
 
-        // Initialize fish's size, location, and direction.
-        this.aide = new NavigationalAide(this);
+        // Initialize fish's direction, size, and location.  (The aide
+        // needs to know which way the fish faces.)
         this.facingRight = true;
+        this.aide = new NavigationalAide(this);
+
+        // Initialize this fish's color and give it the default behavior.
+        this.colorIndex = colorIndex;
+        this.behavior = SwimBehavior.INSTANCE;
+    }
 
-        // Initialize this fish's color.
-        this.color = newColor;
+    /**
+     *  Makes a number of fish of one color at once, more cheaply than
+     *  making them one by one: the IDs are reserved in a single run and
+     *  the color is looked up once.  Any number of threads may make fish
+     *  at the same time, but the fish must be added to the aquarium from
+     *  one thread (see Aquarium.addAll).
+     *  Precondition: the aquarium must be big enough to accommodate
+     *  the biggest fish, as for the constructors.
+     *  @param    aqua     the Aquarium in which the fish will live
+     *  @param    count    the number of fish to make
+     *  @param    newRGB   the color for the new fish, packed as 0xRRGGBB
+     *  @return   the new fish, in ID order
+     **/
+    public static List<AquaFish> createFish(Aquarium aqua, int count,
+                                            int newRGB)
+    {
+        int firstId = FishIdAllocator.reserve(count);
+        int colorIndex = FishPalette.intern(newRGB);
+        List<AquaFish> fish = new ArrayList<AquaFish>(count);
+        for ( int i = 0; i < count; i++ )
+            fish.add(new AquaFish(aqua, firstId + i, colorIndex));
+        return fish;
+    }
+
+    /**
+     *  Makes a fish that has already been swimming somewhere else (in
+     *  another process of a distributed aquarium, say), with the same ID,
+     *  color, position and direction.  Its size follows from its ID, as
+     *  for any fish.  The fish is not added to the aquarium.
+     *  Precondition: the fish must be fully within the aquarium at the
+     *  given position.
+     *  @param    aqua          the Aquarium in which the fish will live
+     *  @param    id            the fish's unique ID
+     *  @param    rgb           the fish's color, packed as 0xRRGGBB
+     *  @param    x             x coordinate of the fish's centerpoint
+     *  @param    y             y coordinate of the fish's centerpoint
+     *  @param    facingRight   whether the fish faces right
+     *  @return   the fish
+     **/
+    public static AquaFish placeFish(Aquarium aqua, int id, int rgb,
+                                     int x, int y, boolean facingRight)
+    {
+        return new AquaFish(aqua, id, FishPalette.intern(rgb),
+                            x, y, facingRight);
+    }
+
+    /**
+     *  Constructs a fish at a given position (see placeFish).
+     **/
+    private AquaFish(Aquarium aqua, int id, int colorIndex,
+                     int x, int y, boolean facingRight)
+    {
+        this.theAquarium = aqua;
+        this.uniqueID = id;
+        this.facingRight = facingRight;
+        this.aide = new NavigationalAide(this, x, y);
+        this.colorIndex = colorIndex;
+        this.behavior = SwimBehavior.INSTANCE;
     }
 
     /**
@@ -101,12 +208,49 @@ public class AquaFish
         return this.uniqueID;
     }
 
-    /** Gets fish's color.
+    /** Gets fish's color.  Fish of the same color share one Color object.
      *  @return        the color of this fish
      **/
     public Color color()
     {
-        return this.color;
+        return FishPalette.color(this.colorIndex);
+    }
+
+    /** Gets fish's color as a packed RGB value.
+     *  @return        the color of this fish, as 0xRRGGBB
+     **/
+    public int rgb()
+    {
+        return FishPalette.rgb(this.colorIndex);
+    }
+
+    /** Gets the index of this fish's color in the shared FishPalette.
+     *  @return        the palette index of this fish's color
+     **/
+    public int colorIndex()
+    {
+        return this.colorIndex;
+    }
+
+    /**
+     *  Gets the behavior that decides how this fish moves.
+     *  @return    this fish's behavior
+     **/
+    public FishBehavior behavior()
+    {
+        return this.behavior;
+    }
+
+    /**
+     *  Sets the behavior that decides how this fish moves.
+     *  @param  newBehavior   the new behavior for this fish
+     **/
+    public void setBehavior(FishBehavior newBehavior)
+    {
+        if ( newBehavior == null )
+            throw new IllegalArgumentException("behavior must not be null");
+        this.behavior = newBehavior;
+        this.theAquarium.fishChanged();
     }
 
     /**
@@ -160,6 +304,30 @@ public class AquaFish
         return (this.aide.fishDistanceToWall() <= MIN_DISTANCE);
     }
 
+    /**
+     *  Determines whether this fish has been eaten.  An eaten fish stays
+     *  in its aquarium until the end of the current step.
+     *  @return     <code>true</code> if a predator has eaten this fish;
+     *              <code>false</code> otherwise
+     **/
+    public boolean isEaten()
+    {
+        return this.eaten;
+    }
+
+    /**
+     *  Marks this fish as eaten, so that the aquarium will remove it at
+     *  the end of the step.
+     **/
+    public void markEaten()
+    {
+        if ( ! this.eaten )
+        {
+            this.eaten = true;
+            this.theAquarium.fishEaten();
+        }
+    }
+
     /** Gets the length of this fish.
      *  @return   fish length
      **/
@@ -187,13 +355,14 @@ public class AquaFish
         return s;
     }
 
-//     /** 
-//      *  Moves the fish for one time step.
-//      */
-//     public void move()
-//     {
-//         this.moveForward();
-//     }
+    /** 
+     *  Moves the fish for one time step, as decided by its behavior.
+     *  To move many fish, {@link BehaviorScheduler} is faster.
+     */
+    public void move()
+    {
+        this.behavior.move(this);
+    }
     
     /**
      *  Moves forward horizontally by random increments, staying
@@ -207,14 +376,49 @@ public class AquaFish
         // far would mean swimming out of the aquarium, only move to edge
         // of aquarium.  Adjust fish's x coordinate by a positive or 
         // negative amount, depending on whether fish is facing right or left.
-        int moveAmt = generator.nextInt(MAX_DISTANCE - MIN_DISTANCE + 1);
+        // Random numbers come from the aquarium, so that a seeded
+        // aquarium gives repeatable runs.
+        int moveAmt =
+            this.theAquarium.randomInt(MAX_DISTANCE - MIN_DISTANCE + 1);
         moveAmt += MIN_DISTANCE;
-        if ( moveAmt >= this.aide.fishDistanceToWall() )
-            moveAmt = this.aide.fishDistanceToWall();
+        int toWall = this.aide.fishDistanceToWall();
+        if ( moveAmt >= toWall )
+            moveAmt = toWall;
         if ( this.isFacingRight() )
             this.aide.moveFishRight(moveAmt);
         else
             this.aide.moveFishLeft(moveAmt);
+
+        // Let anyone following the aquarium know.
+        AquaStats stats = this.theAquarium.stats();
+        if ( stats != null )
+            stats.fishMovedForward(this.isFacingRight() ? moveAmt : -moveAmt);
+        AquaEventBus bus = this.theAquarium.eventBus();
+        if ( bus != null )
+            bus.publish(AquaEventBus.FISH_MOVED, this.uniqueID,
+                        this.aide.centerpointX(), this.aide.centerpointY());
+    }
+
+    /**
+     *  Moves up (negative distance) or down (positive distance), staying
+     *  fully within the aquarium.
+     *  @param  distance   how far to move; negative values move up
+     **/
+    public void moveVertically(int distance)
+    {
+        // Stop at the surface or the bottom rather than leaving the tank.
+        int top = this.aide.centerpointY() - (this.aide.halfFishHeight() + 1);
+        int bottom = this.aide.centerpointY() + (this.aide.halfFishHeight() + 1);
+        int before = this.aide.centerpointY();
+        if ( distance < 0 )
+            this.aide.raiseFish(Math.min(-distance, Math.max(top, 0)));
+        else if ( distance > 0 )
+            this.aide.sinkFish(Math.min(distance,
+                    Math.max(this.theAquarium.height() - bottom, 0)));
+
+        AquaStats stats = this.theAquarium.stats();
+        if ( stats != null && distance != 0 )
+            stats.fishMovedVertically(this.aide.centerpointY() - before);
     }
 
     /**
@@ -223,7 +427,22 @@ public class AquaFish
 //     protected void changeDir()
     public void changeDir()
     {
+        // Only work out whether the fish is at a wall if anyone is
+        // following the aquarium's events or statistics.
+        AquaEventBus bus = this.theAquarium.eventBus();
+        AquaStats stats = this.theAquarium.stats();
+        boolean atWall = (bus != null || stats != null) && this.atWall();
+
         this.facingRight = ! this.facingRight;
+        this.aide.fishTurned();
+
+        if ( stats != null )
+            stats.fishTurned(this.facingRight, atWall);
+        if ( bus != null )
+            bus.publish(atWall ? AquaEventBus.TURNED_AT_WALL
+                               : AquaEventBus.DIRECTION_CHANGED,
+                        this.uniqueID,
+                        this.aide.centerpointX(), this.aide.centerpointY());
     }
 
 }
@@ -0,0 +1,225 @@
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The AquaHistory class remembers the last few steps of a run, so
+ *      that when something goes wrong (fish stuck at a wall, say, or
+ *      overlapping) the run can be paused and stepped back through to see
+ *      how it happened.
+ * <br> <br>
+ *      For each step it keeps, for every fish, just what is needed to
+ *      show it: its ID, the position of its centerpoint, and its
+ *      direction, length and color (packed together into one number).
+ *      The steps are kept in a ring: all the space is set aside at the
+ *      start and each step is written over the oldest one, so the memory
+ *      used is fixed at BYTES_PER_FISH bytes for each fish in each step
+ *      kept (unless the number of fish grows past the space set aside,
+ *      when the ring is enlarged once).  Recording a step only copies
+ *      numbers, so nothing is allocated while the run goes on.  While no
+ *      fish are added or removed, the IDs, lengths and colors are copied
+ *      from the step before, and only positions and directions are read
+ *      from the fish.
+ * <br> <br>
+ *      Recording reads every fish once more after the step has moved
+ *      them.  Fish that only swim take little more time to move than to
+ *      record, so recording every step would add about a fifth to each
+ *      of their steps.  The GUI therefore records only the steps it
+ *      shows, which at full speed is one in many; stepping back goes
+ *      through the frames that were on the screen.  Recording the same
+ *      step number again replaces the latest step rather than adding
+ *      another.
+ * <br> <br>
+ *      Steps are recorded on the thread that runs the simulation and may
+ *      be looked at from another (such as the GUI's), so the methods are
+ *      synchronized.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaSimGUI#stepBack
+ **/
+public class AquaHistory
+{
+    // STATE
+
+    public static final int BYTES_PER_FISH = 16;    // ID, x, y, traits
+
+    private final int capacity;      // number of steps kept
+    private int room;                // fish each step has room for
+    private int[] ids, xs, ys;       // step s, fish i at [s * room + i]
+    private int[] traits;            // color << 8 | length << 1 | facing
+                                     //    (lengths are under 128)
+    private final int[] counts;      // number of fish in each step
+    private final long[] steps;      // step number of each step
+    private int newest = -1;         // slot of the latest step
+    private Aquarium lastAquarium;   // aquarium and population version
+    private int lastVersion;         //    of the latest step
+    private int size = 0;            // number of steps kept so far
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs an empty history.
+     *  @param  capacity   the number of steps to keep
+     *  @param  fish       the number of fish to set aside room for
+     **/
+    public AquaHistory(int capacity, int fish)
+    {
+        if ( capacity <= 0 || fish < 0 )
+            throw new IllegalArgumentException(
+                "capacity must be positive and fish not negative");
+        this.capacity = capacity;
+        this.counts = new int[capacity];
+        this.steps = new long[capacity];
+        allocate(Math.max(1, fish));
+    }
+
+    /**
+     *  Works out how many steps of a run fit in a memory budget.
+     *  @param  bytes   the budget
+     *  @param  fish    the number of fish in the aquarium
+     *  @return the number of steps (at least one)
+     **/
+    public static int stepsFor(long bytes, int fish)
+    {
+        long perStep = (long) BYTES_PER_FISH * Math.max(1, fish);
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                                          bytes / perStep));
+    }
+
+    /**
+     *  Records the state of the fish after a step, in place of the oldest
+     *  step kept if the history is full (or in place of the latest, if it
+     *  has the same step number).
+     *  @param  aqua   the aquarium
+     *  @param  step   the step number
+     **/
+    public synchronized void record(Aquarium aqua, long step)
+    {
+        List<AquaFish> fish = aqua.getFish();
+        int n = fish.size();
+        if ( n > room )
+            allocate(Math.max(n, room * 3 / 2));
+        boolean samePopulation = size > 0 && aqua == lastAquarium
+                                 && aqua.version() == lastVersion;
+        int previous = newest * room;
+        if ( size == 0 || steps[newest] != step )
+        {
+            newest = (newest + 1) % capacity;
+            size = Math.min(size + 1, capacity);
+        }
+        counts[newest] = n;
+        steps[newest] = step;
+        lastAquarium = aqua;
+        lastVersion = aqua.version();
+        int base = newest * room;
+        if ( samePopulation )
+        {
+            System.arraycopy(ids, previous, ids, base, n);
+            for ( int i = 0; i < n; i++ )
+            {
+                AquaFish f = fish.get(i);
+                xs[base + i] = f.xCoord();
+                ys[base + i] = f.yCoord();
+                traits[base + i] = (traits[previous + i] & ~1)
+                                 | (f.isFacingRight() ? 1 : 0);
+            }
+            return;
+        }
+        for ( int i = 0; i < n; i++ )
+        {
+            AquaFish f = fish.get(i);
+            ids[base + i] = f.id();
+            xs[base + i] = f.xCoord();
+            ys[base + i] = f.yCoord();
+            traits[base + i] = (f.colorIndex() << 8) | (f.length() << 1)
+                             | (f.isFacingRight() ? 1 : 0);
+        }
+    }
+
+    /**
+     *  Gets the number of steps kept.
+     *  @return the number of steps that can be looked at
+     **/
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     *  Gets the number of steps that can be kept.
+     *  @return the capacity
+     **/
+    public int capacity()
+    {
+        return capacity;
+    }
+
+    /**
+     *  Forgets every step kept.
+     **/
+    public synchronized void clear()
+    {
+        newest = -1;
+        size = 0;
+        lastAquarium = null;
+    }
+
+    /**
+     *  Gets the state of the fish some steps back.
+     *  @param  back   how many steps back: 0 for the latest step, up to
+     *                 size() - 1 for the oldest step kept
+     *  @param  out    receives the state
+     *  @throws IndexOutOfBoundsException if that step is not kept
+     **/
+    public synchronized void recall(int back, AquaSnapshot out)
+    {
+        if ( back < 0 || back >= size )
+            throw new IndexOutOfBoundsException("no step " + back
+                                                + " steps back");
+        int slot = (newest - back + capacity) % capacity;
+        int n = counts[slot];
+        int base = slot * room;
+        out.resize(n);
+        out.step = steps[slot];
+        System.arraycopy(ids, base, out.ids, 0, n);
+        System.arraycopy(xs, base, out.xs, 0, n);
+        System.arraycopy(ys, base, out.ys, 0, n);
+        for ( int i = 0; i < n; i++ )
+        {
+            int t = traits[base + i];
+            out.colors[i] = t >>> 8;
+            out.lengths[i] = (t >> 1) & 0x7F;
+            out.facingRight[i] = (t & 1) != 0;
+        }
+    }
+
+    /**
+     *  Sets aside room for the given number of fish in every step,
+     *  keeping the steps already recorded.
+     **/
+    private void allocate(int newRoom)
+    {
+        int total = Math.multiplyExact(capacity, newRoom);
+        int[] newIds = new int[total];
+        int[] newXs = new int[total];
+        int[] newYs = new int[total];
+        int[] newTraits = new int[total];
+        for ( int s = 0; s < capacity && ids != null; s++ )
+        {
+            int n = counts[s];
+            System.arraycopy(ids, s * room, newIds, s * newRoom, n);
+            System.arraycopy(xs, s * room, newXs, s * newRoom, n);
+            System.arraycopy(ys, s * room, newYs, s * newRoom, n);
+            System.arraycopy(traits, s * room, newTraits, s * newRoom, n);
+        }
+        ids = newIds;
+        xs = newXs;
+        ys = newYs;
+        traits = newTraits;
+        room = newRoom;
+    }
+
+}
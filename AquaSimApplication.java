@@ -1,66 +1,414 @@
-import java.awt.Color;
-import java.util.Random;
-
-/** Aquarium Lab Series: <br>    
- *      The AquaSimApplication class contains the main function that will
- *      run the Aquarium Simulation. (This description should be updated
- *      when the behavior of the program changes.)<br>
- *
- * Modifications: <br>
- *   23 March 2008,  Alyce Brady,  Created skeleton main that constructs and
- *                                 displays an empty aquarium.<br>
- *   (date), (your name), Modified to .... <br>
- *
- *  @author  Alyce Brady  (should be Your Name)
- *  @version 23 March 2008  (should be today's date)
- *  @see AquariumController
- **/
-public class AquaSimApplication
-{
-    /**
-     *  This is the main function.  It executes the program.
-     *  @param    String args[] is never used
-     **/
-    public static void main(String args[])
-    {
-        System.out.println("This will be an aquarium simulation.");
-
-        // CONSTRUCT OBJECTS NEEDED FOR THE AQUARIUM SIMULATION.
-
-        // Construct the aquarium.  Specify its dimensions when creating it.
-        Aquarium aqua;                 // create reference to an Aquarium ...
-        aqua = new Aquarium(600, 480); // ... object that has now been created
-
-        // Construct fish and add them to the aquarium.
-        //      CODE MISSING HERE!
-
-        // Construct a graphical user interface (GUI) to display and control
-        // the simulation.  The user interface needs to know about the
-        // aquarium, so we pass aqua to the user interface constructor.
-        AquaSimGUI userInterface;              // create reference to GUI ...
-        userInterface = new AquaSimGUI(aqua);  // ... and then GUI itself
-
-        // Tell the user how to start the aquarium simulation.
-        System.out.println("Press the Start button to start the simulation.");
-
-        // Now wait for the user to press the start button.
-        userInterface.waitForStart();
-
-        // Draw the initial view of the aquarium and its contents.
-        userInterface.showAquarium();
-
-
-        // RUN THE AQUARIUM SIMULATION.
-
-        // Make the fish move and redisplay.
-        //      CODE MISSING HERE!
-
-
-        // WRAP UP.
-
-        // Remind user how to quit application.
-        userInterface.println ("Close GUI display window to quit.");
-
-    }//end main
-
-}//end class
+import java.io.File;
+import java.io.IOException;
+
+/** Aquarium Lab Series: <br>    
+ *      The AquaSimApplication class contains the main function that will
+ *      run the Aquarium Simulation. (This description should be updated
+ *      when the behavior of the program changes.)<br>
+ *
+ * Modifications: <br>
+ *   23 March 2008,  Alyce Brady,  Created skeleton main that constructs and
+ *                                 displays an empty aquarium.<br>
+ *   19 October 2026, Split startup so headless runs never load the GUI.
+ *                    <br>
+ *   19 October 2026, Filled in the fish construction and stepping loop;
+ *                    added command-line and config-file driven runs. <br>
+ *   19 October 2026, Added playback of recorded runs. <br>
+ *   19 October 2026, Pace GUI runs with a FramePacer instead of a fixed
+ *                    pause per step. <br>
+ *   19 October 2026, Run in the background under a RunController, which
+ *                    the GUI can pause, resume, cancel, and speed up. <br>
+ *   19 October 2026, Optionally interpolate frames between steps. <br>
+ *   19 October 2026, Make the fish in one batch. <br>
+ *   19 October 2026, Keep recent steps so the GUI can step back. <br>
+ *   19 October 2026, Optionally serve live telemetry over HTTP. <br>
+ *   19 October 2026, Split headless runs across worker processes. <br>
+ *   19 October 2026, Record only the steps that are drawn in the history.
+ *                    <br>
+ *   19 October 2026, Added the simulation engine, stepped from the GUI's
+ *                    Single Step and Run buttons. <br>
+ *   (date), (your name), Modified to .... <br>
+ *
+ *  @author  Alyce Brady  (should be Your Name)
+ *  @version 23 March 2008  (should be today's date)
+ *  @see AquariumController
+ **/
+public class AquaSimApplication
+{
+    // Default speeds (steps per second) of simulation runs, which let
+    // the viewer follow each step, and of playback.
+    private static final double DEFAULT_RUN_SPEED = 1;
+    private static final double DEFAULT_REPLAY_SPEED = 25;
+    private static final int DEFAULT_HISTORY = 100;     // steps kept
+    private static final long HISTORY_MEMORY = 64L << 20;   // bytes at most
+
+    /**
+     *  This is the main function.  It executes the program.
+     *  With no arguments, it runs the simulation in the GUI, prompting for
+     *  the number of fish and steps.  With arguments, it runs unattended
+     *  as described by them (see SimulationConfig); for example
+     *  <pre>
+     *  java AquaSimApplication --fish=50000 --steps=1000 --seed=42
+     *  java AquaSimApplication --config=run.properties --png=frames
+     *  java AquaSimApplication --steps=1000000 --record=run.aqr
+     *  java AquaSimApplication --replay=run.aqr --replayFrom=500000
+     *  java AquaSimApplication --fish=1000000 --width=100000 --workers=4
+     *  java AquaSimApplication --engine=simulation --fish=20000 --batch=10
+     *  </pre>
+     *  If the system property <code>aquasim.printRender</code> is set, it
+     *  only prints how the run would render (none, raster, or gui).
+     *  @param    String args[] optional command-line arguments
+     **/
+    public static void main(String args[])
+    {
+        if ( args.length == 0 )
+        {
+            runWithGUI(null);
+            return;
+        }
+
+        SimulationConfig config;
+        try
+        {
+            config = SimulationConfig.fromArgs(args);
+        }
+        catch (IllegalArgumentException | IOException e)
+        {
+            System.err.println("AquaSimApplication: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        // The launcher (aquasim.sh) asks how a run will render, to decide
+        // whether to use its GUI class-data sharing archive.
+        if ( Boolean.getBoolean("aquasim.printRender") )
+        {
+            System.out.println(config.render().toString().toLowerCase());
+            return;
+        }
+
+        // Headless runs are kept to a separate class, so that they never
+        // load the GUI toolkit.
+        try
+        {
+            if ( config.replayFile() != null )
+                replayWithGUI(config);
+            else if ( config.usesSimulation() )
+                simulateWithGUI(config);
+            else if ( config.render() == SimulationConfig.RenderMode.GUI )
+                runWithGUI(config);
+            else if ( config.workers() > 1 )
+                DistributedTank.run(config);
+            else
+                HeadlessSimulation.run(config);
+        }
+        catch (IOException e)
+        {
+            System.err.println("AquaSimApplication: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     *  Runs the simulation with a graphical user interface.  Without a
+     *  configuration, the user chooses the number of fish and steps and
+     *  presses Start; with one, the run starts by itself, and the program
+     *  exits with a throughput summary when it is done.
+     *  If the system property <code>aquasim.cdsTraining</code> is set, the
+     *  simulation starts without waiting for the Start button and exits
+     *  after drawing the first frame; this is used to record which classes
+     *  to put in a class-data sharing archive (see aquasim.sh).
+     *  @param  config   settings for an unattended run, or <code>null</code>
+     **/
+    private static void runWithGUI(SimulationConfig config)
+    {
+        boolean training = Boolean.getBoolean("aquasim.cdsTraining");
+        System.out.println("This will be an aquarium simulation.");
+
+        // CONSTRUCT OBJECTS NEEDED FOR THE AQUARIUM SIMULATION.
+
+        // Construct the aquarium.  Specify its dimensions when creating it.
+        Aquarium aqua;                     // create reference to an Aquarium
+        if ( config == null )
+            aqua = new Aquarium(600, 480); // ... and the object itself
+        else
+            aqua = config.buildAquarium(); // ... with its fish already in it
+
+        // Construct a graphical user interface (GUI) to display and control
+        // the simulation.  The user interface needs to know about the
+        // aquarium, so we pass aqua to the user interface constructor.
+        AquaSimGUI userInterface;              // create reference to GUI ...
+        boolean prompt = (config == null);
+        userInterface = new AquaSimGUI(aqua, prompt, prompt); // ... and GUI
+        if ( config != null )
+            userInterface.setHeatmap(config.heatmapEvery());
+
+        // Tell the user how to start the aquarium simulation, then wait
+        // for the user to press the start button.
+        System.out.println("Press the Start button to start the simulation.");
+        if ( training || config != null )
+            userInterface.start();
+        userInterface.waitForStart();
+
+        // Construct fish and add them to the aquarium.
+        int numSteps;
+        if ( config == null )
+        {
+            aqua.addAll(AquaFish.createFish(aqua,
+                                            userInterface.getNumberOfFish(),
+                                            0xFFFFFF));
+            numSteps = userInterface.getNumberOfSteps();
+        }
+        else
+            numSteps = config.numSteps();
+
+        // Draw the initial view of the aquarium and its contents.
+        userInterface.showAquarium();
+        if ( training )
+            System.exit(0);
+
+
+        // RUN THE AQUARIUM SIMULATION.
+
+        // Make the fish move and redisplay, in the background, so that
+        // the user can pause, cancel, or change the speed of the run from
+        // the GUI.  The controller's pacer skips drawing when the display
+        // cannot keep up, and otherwise waits between steps to keep to
+        // the chosen speed.  If asked to, it also draws frames between
+        // steps, showing the fish part of the way from where they were to
+        // where they are.  The last few steps drawn are kept, so that the
+        // user can pause and step back through them; steps the pacer
+        // skips drawing are not recorded either, which keeps the history
+        // from slowing a fast run down.
+        BehaviorScheduler scheduler = new BehaviorScheduler(aqua);
+        RunController controller =
+            new RunController((config == null) ? DEFAULT_RUN_SPEED
+                              : config.speed(DEFAULT_RUN_SPEED));
+        FrameInterpolator smoother = (config != null && config.interpolate())
+                                         ? new FrameInterpolator() : null;
+        AquaSnapshot frame = new AquaSnapshot();
+        if ( smoother != null )
+            smoother.stepTaken(aqua, 0);
+        controller.setInterpolating(smoother != null);
+        userInterface.setRunController(controller);
+        int keep = (config == null) ? DEFAULT_HISTORY : config.history();
+        int fishCount = aqua.getFish().size();
+        AquaHistory recentSteps = (keep == 0) ? null : new AquaHistory(
+            Math.min(keep, AquaHistory.stepsFor(HISTORY_MEMORY, fishCount)),
+            fishCount);
+        if ( recentSteps != null )
+            recentSteps.record(aqua, 0);
+        userInterface.setHistory(recentSteps);
+        TelemetryServer telemetry = startTelemetry(config, aqua);
+        long start = System.nanoTime();
+        controller.start(new RunController.Task()
+            {
+                private long stepNumber = 0;
+                public boolean step()
+                {
+                    scheduler.step();
+                    stepNumber++;
+                    if ( telemetry != null )
+                        telemetry.publish(aqua, stepNumber);
+                    if ( smoother != null )
+                        smoother.stepTaken(aqua, stepNumber);
+                    return true;
+                }
+                public void draw(FramePacer pacer)
+                {
+                    if ( recentSteps != null )
+                        recentSteps.record(aqua, stepNumber);
+                    if ( smoother == null )
+                        userInterface.drawAquarium();
+                    else
+                    {
+                        smoother.interpolate(pacer.stepFraction(), frame);
+                        userInterface.showSnapshot(frame);
+                    }
+                    userInterface.showRates(pacer);
+                }
+            }, numSteps);
+        awaitRun(controller);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long stepsTaken = controller.stepsTaken();
+        if ( controller.isCancelled() )
+            userInterface.println("Run cancelled after " + stepsTaken
+                                  + " steps.");
+        controller.close();
+        if ( telemetry != null )
+            telemetry.close();
+
+
+        // WRAP UP.
+
+        // Unattended runs report how long they took and exit.
+        if ( config != null )
+        {
+            System.out.printf("%d fish, %d steps in %.3f s: %.1f steps/s, "
+                              + "%d frames skipped%n",
+                              config.numFish(), stepsTaken, seconds,
+                              stepsTaken / seconds,
+                              controller.pacer().framesSkipped());
+            System.exit(0);
+        }
+
+        // Remind user how to quit application.
+        userInterface.println ("Close GUI display window to quit.");
+
+    }//end runWithGUI
+
+    /**
+     *  Starts serving telemetry for a run, if the configuration asks for
+     *  it.  If the server cannot be started, the run goes on without it.
+     *  @param  config   the settings for the run, or <code>null</code>
+     *  @param  aqua     the aquarium
+     *  @return the server, or <code>null</code> if there is none
+     **/
+    private static TelemetryServer startTelemetry(SimulationConfig config,
+                                                  Aquarium aqua)
+    {
+        if ( config == null || config.telemetryPort() == null )
+            return null;
+        try
+        {
+            TelemetryServer telemetry =
+                TelemetryServer.forAquarium(aqua, config.telemetryPort());
+            System.out.println("telemetry at http://localhost:"
+                               + telemetry.port() + "/status");
+            return telemetry;
+        }
+        catch (IOException e)
+        {
+            System.err.println("No telemetry: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     *  Shows the aquarium in the graphical user interface, stepped by a
+     *  Simulation a batch at a time when the Single Step and Run buttons
+     *  are pressed, instead of running by itself.  The GUI starts at
+     *  once, with the fish, behaviors, and number of steps to run taken
+     *  from the configuration; the program goes on until the window is
+     *  closed.
+     *  @param  config   settings for the aquarium and the batches
+     **/
+    private static void simulateWithGUI(SimulationConfig config)
+    {
+        System.out.println("This will be an aquarium simulation.");
+        Aquarium aqua = config.buildAquarium();
+        AquaSimGUI userInterface = new AquaSimGUI(aqua, false, false, true);
+        userInterface.setHeatmap(config.heatmapEvery());
+        userInterface.setNumberOfSteps(config.numSteps());
+        userInterface.setBatching(config.batch(), false);
+
+        // Single steps are paced so that each can be seen, and batches
+        // run as fast as they can, unless a speed is given.
+        userInterface.setRunController(new RunController(config.speed(
+            (config.batch() == 1) ? DEFAULT_RUN_SPEED
+                                  : FramePacer.UNTHROTTLED)));
+        userInterface.start();
+        userInterface.waitForStart();
+        userInterface.println("Press Single Step to take " + config.batch()
+                              + " step(s), or Run to take "
+                              + config.numSteps() + ".");
+        userInterface.println("Close GUI display window to quit.");
+    }
+
+    /**
+     *  Waits for a background run to finish.
+     *  @param  controller   the controller running it
+     **/
+    private static void awaitRun(RunController controller)
+    {
+        try
+        {
+            controller.awaitCompletion();
+        }
+        catch (InterruptedException e)
+        {
+            controller.cancel();
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e)
+        {
+            System.err.println("AquaSimApplication: " + e.getMessage());
+        }
+    }
+
+    /**
+     *  Plays back a recorded run in the graphical user interface, at the
+     *  speed and starting from the step chosen in the configuration.
+     *  Nothing is simulated.
+     *  @param  config   settings naming the recording to play
+     *  @throws IOException if the recording cannot be read
+     **/
+    private static void replayWithGUI(SimulationConfig config)
+        throws IOException
+    {
+        try ( ReplayReader replay =
+                  new ReplayReader(new File(config.replayFile())) )
+        {
+            // The aquarium is only used for its size and color; the fish
+            // come from the recording.
+            Aquarium aqua = new Aquarium(replay.width(), replay.height());
+            AquaSimGUI userInterface = new AquaSimGUI(aqua, false, false);
+            userInterface.setHeatmap(config.heatmapEvery());
+            userInterface.start();
+            userInterface.waitForStart();
+            System.out.println("Playing back " + replay.stepCount()
+                               + " steps (" + replay.firstStep() + " to "
+                               + replay.lastStep() + ").");
+
+            // Jump to the first step to show, then play to the end in the
+            // background, skipping frames if the display cannot keep up.
+            if ( config.replayFrom() >= 0 )
+                replay.seek(Math.max(config.replayFrom(), replay.firstStep()));
+            else if ( ! replay.next() )
+                return;
+            userInterface.showSnapshot(replay.current());
+            FrameInterpolator smoother =
+                config.interpolate() ? new FrameInterpolator() : null;
+            AquaSnapshot frame = new AquaSnapshot();
+            if ( smoother != null )
+                smoother.stepTaken(replay.current());
+            try ( RunController controller =
+                      new RunController(config.speed(DEFAULT_REPLAY_SPEED)) )
+            {
+                controller.setInterpolating(smoother != null);
+                userInterface.setRunController(controller);
+                controller.start(new RunController.Task()
+                    {
+                        public boolean step() throws IOException
+                        {
+                            if ( ! replay.next() )
+                                return false;
+                            if ( smoother != null )
+                                smoother.stepTaken(replay.current());
+                            return true;
+                        }
+                        public void draw(FramePacer pacer)
+                        {
+                            if ( smoother == null )
+                                userInterface.showSnapshot(replay.current());
+                            else
+                            {
+                                smoother.interpolate(pacer.stepFraction(),
+                                                     frame);
+                                userInterface.showSnapshot(frame);
+                            }
+                            userInterface.showRates(pacer);
+                        }
+                    }, Long.MAX_VALUE);
+                controller.awaitCompletion();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            userInterface.println("Close GUI display window to quit.");
+        }
+    }
+
+}//end class
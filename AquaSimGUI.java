@@ -16,6 +16,7 @@
  */
 
 import edu.neu.ccs.gui.ActionsPanel;
+import edu.neu.ccs.gui.Annotation;
 import edu.neu.ccs.gui.BufferedPanel;
 import edu.neu.ccs.gui.Display;
 import edu.neu.ccs.gui.DisplayCollection;
@@ -27,14 +28,11 @@ import edu.neu.ccs.gui.TextFieldView;
 import edu.neu.ccs.util.JPTUtilities;
 
 import java.awt.BorderLayout;
-import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.awt.TextArea;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.GeneralPath;
 import java.util.ArrayList;
 import javax.swing.Action;
+import javax.swing.SwingUtilities;
 
 /**
  *  Aquarium Lab Series: <br>
@@ -55,6 +53,30 @@ import javax.swing.Action;
  *                               AquaPoint class and by folding many show
  *                               methods into one that shows an aquarium
  *                               and the fish it contains. <br>
+ *   19 October 2026, Added optional software rendering. <br>
+ *   19 October 2026, Build the start panel without an extra thread. <br>
+ *   19 October 2026, Draw fish grouped by color, eyes in one pass. <br>
+ *   19 October 2026, Draw fish from cached shape templates. <br>
+ *   19 October 2026, Draw from snapshots; added showSnapshot for replays.
+ *                    <br>
+ *   19 October 2026, Added an optional fish density overlay. <br>
+ *   19 October 2026, Added drawAquarium (no pause) and a display of the
+ *                    achieved step and frame rates. <br>
+ *   19 October 2026, Added pause, resume, speed, and cancel buttons for
+ *                    runs under a RunController. <br>
+ *   19 October 2026, Show aquariums too big for one picture through a
+ *                    scrolling view window drawn in tiles. <br>
+ *   19 October 2026, Draw fish by copying cached sprites (see
+ *                    FishSpriteAtlas). <br>
+ *   19 October 2026, Added step back and forward through the last few
+ *                    steps of a run (see AquaHistory). <br>
+ *   19 October 2026, Enabled the Single Step and Run buttons, driving a
+ *                    Simulation in batches of steps. <br>
+ *   19 October 2026, Keep only the steps that are shown in the history.
+ *                    <br>
+ *   19 October 2026, Take Single Step batches under the RunController too,
+ *                    and let a Simulation use fish already in the
+ *                    aquarium. <br>
  * 
  *  @author Alyce Brady
  *  @version 22 March 2008
@@ -70,6 +92,11 @@ public class AquaSimGUI extends DisplayPanel
     private static final int DEFAULT_STEPS = 15; // # steps to run simulation
     private static final int VIEW_TIME = 1000;  // allow viewer to see display
     private static final int WAIT_TIME = 100;   // between Start button checks
+    private static final int MAX_VIEW_WIDTH = 1200;  // larger aquariums are
+    private static final int MAX_VIEW_HEIGHT = 800;  //   seen through a window
+    private static final long TILE_MEMORY = 64L << 20;   // bytes of tiles kept
+    private static final int HISTORY_STEPS = 100;        // frames kept, and
+    private static final long HISTORY_MEMORY = 64L << 20;   //   bytes at most
 
 
     ////////////////////////
@@ -80,8 +107,15 @@ public class AquaSimGUI extends DisplayPanel
     private AquaView drawingObject = null;    // to draw fish in aquarium
     private int numFish = DEFAULT_FISH;       // number of fish in aquarium
     private int numSteps = DEFAULT_STEPS;     // number of sim. steps to run
-//    private Simulation simulation = null;     // controls timesteps
+    private boolean useSimulation = false;    // step with a Simulation?
+    private Simulation simulation = null;     // controls timesteps
+    private int batchSize = 1;                // steps per Step or redisplay
+    private boolean showEveryStep = false;    // draw steps within a batch?
     private boolean started = false;          // has simulation started yet?
+    private RunController controller = null;  // background run, if any
+    private AquaHistory history = null;       // recent steps, if kept
+    private AquaSnapshot pastFrame = new AquaSnapshot();  // step looked at
+    private volatile int stepsBack = 0;       // steps back being looked at
 
 
     /////////////////////////////////////////////
@@ -110,6 +144,10 @@ public class AquaSimGUI extends DisplayPanel
             "Number must be positive:",  // prompt for correcting input
             "Incorrect input");          // title for the error dialog box
 
+    // Label showing how fast the simulation is running.
+    private Annotation ratesLabel = new Annotation("");
+    private Display ratesDisplay = new Display(ratesLabel, null, "Speed");
+
     // Action button to start the simulation and action panel to put it in.
     private SimpleAction start =
         new SimpleAction("Start") {
@@ -118,9 +156,81 @@ public class AquaSimGUI extends DisplayPanel
     private Action[] startButtonList = {start};
     private ActionsPanel startPanel = new ActionsPanel(startButtonList);
 
+    // Action buttons to control a background run, and action panel to
+    // put them in.
+    private SimpleAction pause =
+        new SimpleAction("Pause") {
+           public void perform(){ pauseRun(); }
+        };
+    private SimpleAction resume =
+        new SimpleAction("Resume") {
+           public void perform(){ resumeRun(); }
+        };
+    private SimpleAction slower =
+        new SimpleAction("Slower") {
+           public void perform(){ changeSpeed(0.5); }
+        };
+    private SimpleAction faster =
+        new SimpleAction("Faster") {
+           public void perform(){ changeSpeed(2); }
+        };
+    private SimpleAction fullSpeed =
+        new SimpleAction("Full Speed") {
+           public void perform(){ changeSpeed(0); }
+        };
+    private SimpleAction cancel =
+        new SimpleAction("Cancel") {
+           public void perform(){ cancelRun(); }
+        };
+    private Action[] runControlList =
+        {pause, resume, slower, faster, fullSpeed, cancel};
+    private ActionsPanel runControlPanel = new ActionsPanel(runControlList);
+    private Display runControlDisplay =
+        new Display(runControlPanel, null, "Run Control");
+
+    // Action buttons to look back through the last few steps of a run,
+    // and action panel to put them in.
+    private SimpleAction stepBack =
+        new SimpleAction("Step Back") {
+           public void perform(){ stepBack(); }
+        };
+    private SimpleAction stepForward =
+        new SimpleAction("Step Forward") {
+           public void perform(){ stepForward(); }
+        };
+    private SimpleAction latest =
+        new SimpleAction("Latest") {
+           public void perform(){ showLatest(); }
+        };
+    private Action[] historyList = {stepBack, stepForward, latest};
+    private ActionsPanel historyPanel = new ActionsPanel(historyList);
+    private Display historyDisplay =
+        new Display(historyPanel, null, "History");
+
+    // Action buttons to move the view window over an aquarium too big to
+    // show whole, and action panel to put them in.
+    private SimpleAction viewLeft =
+        new SimpleAction("Left") {
+           public void perform(){ scrollView(-1, 0); }
+        };
+    private SimpleAction viewRight =
+        new SimpleAction("Right") {
+           public void perform(){ scrollView(1, 0); }
+        };
+    private SimpleAction viewUp =
+        new SimpleAction("Up") {
+           public void perform(){ scrollView(0, -1); }
+        };
+    private SimpleAction viewDown =
+        new SimpleAction("Down") {
+           public void perform(){ scrollView(0, 1); }
+        };
+    private Action[] viewList = {viewLeft, viewRight, viewUp, viewDown};
+    private ActionsPanel viewPanel = new ActionsPanel(viewList);
+    private Display viewDisplay = new Display(viewPanel, null, "View");
+
     // Action buttons to execute one step of the simulation and to
     // run the simulation continuously, and action panel to put them in.
-/*
     private SimpleAction step =
         new SimpleAction("Single Step") {
            public void perform(){ step(); }
@@ -131,7 +241,6 @@ public class AquaSimGUI extends DisplayPanel
         };
     private Action[] runButtonsList = {step, run};
     private ActionsPanel runButtonsPanel = new ActionsPanel(runButtonsList);
-*/
 
     //////////////////
     // Constructors //
@@ -185,13 +294,14 @@ public class AquaSimGUI extends DisplayPanel
      *      @param  useSimulationObj    <code>true</code> if GUI should
      *                                  construct and use a Simulation object
      **/
-    private AquaSimGUI(Aquarium aquarium,
+    public AquaSimGUI(Aquarium aquarium,
                       boolean promptForSimSteps,
                       boolean promptForNumFish,
                       boolean useSimulationObj)
     {
         // Save aquarium info. in an instance variable.
         aqua = aquarium;
+        useSimulation = useSimulationObj;
 
         // Set layout for entire panel.
         setLayout(new BorderLayout());
@@ -212,22 +322,8 @@ public class AquaSimGUI extends DisplayPanel
         // Put the GUI in a window, giving the window a title.
         JPTFrame.createQuickJPTFrame("Aquarium Lab Series", this);
 
-        // Create the Simulation object (if appropriate) and tell the
-        // control panel about it.
-/*
-        if ( useSimulationObj )
-        {
-            int numFish = getNumberOfFish();
-            simulation = new Simulation (aqua, numFish, this);
-
-            // View the initial configuration.
-            // Draw the aquarium and fish, redisplay the user interface in the
-            // window so that users can see what was drawn.
-            show(simulation.getAllFish());
-            repaint();
-            pauseToView();
-        }
- */
+        // The Simulation object (if appropriate) is created when the
+        // Start button is pressed, once the number of fish is known.
     }
 
 
@@ -254,6 +350,17 @@ public class AquaSimGUI extends DisplayPanel
         return numFish;
     }
 
+    /**
+     *  Sets the number of steps that Run takes (and that the prompt, if
+     *  there is one, suggests).  Has no effect once the simulation has
+     *  started.
+     *      @param  steps   the number of steps to run
+     **/
+    public void setNumberOfSteps(int steps)
+    {
+        numStepsTF.setViewState("" + steps);
+    }
+
     /**
      *  Gets the number of steps to run from user input.
      *      @return     the number of steps specified by the user
@@ -299,7 +406,65 @@ public class AquaSimGUI extends DisplayPanel
      **/
     public void showAquarium()
     {
-        drawingObject.showAquarium();
+        drawAquarium();
+        pauseToView();
+    }
+
+    /**
+     *  Displays the aquarium and its contents, like showAquarium, but
+     *  without pausing afterwards, so the caller sets the pace (see
+     *  FramePacer).
+     **/
+    public void drawAquarium()
+    {
+        if ( stepsBack == 0 )
+            drawingObject.showAquarium();
+    }
+
+    /**
+     *  Shows how fast the simulation is running in the control panel.
+     *      @param  pacer   the pacer that measures the step and frame rates
+     **/
+    public void showRates(FramePacer pacer)
+    {
+        String text = pacer.toString();
+        SwingUtilities.invokeLater(() -> ratesLabel.setText(text));
+    }
+
+    /**
+     *  Displays fish recorded in a snapshot (for example, one step of a
+     *  replay) in place of the aquarium's own fish.  Unlike showAquarium,
+     *  this does not pause afterwards, so the caller sets the pace.
+     *  While an earlier step is being looked at (see stepBack), neither
+     *  this nor drawAquarium shows anything.
+     *      @param  snap  the fish to show
+     **/
+    public void showSnapshot(AquaSnapshot snap)
+    {
+        if ( stepsBack == 0 )
+            drawingObject.showSnapshot(snap);
+    }
+
+    /**
+     *  Chooses how fish are drawn.  Software rendering draws straight into
+     *  the image's pixels (see FishRasterizer); it is much faster with
+     *  many fish but does not antialias.
+     *      @param  on  <code>true</code> to use software rendering;
+     *                  <code>false</code> to draw with Java2D
+     **/
+    public void setSoftwareRendering(boolean on)
+    {
+        drawingObject.setSoftwareRendering(on);
+    }
+
+    /**
+     *  Turns the fish density overlay (see DensityHeatmap) on or off.
+     *      @param  refreshEvery  number of frames between recounts of the
+     *                            fish, or 0 to turn the overlay off
+     **/
+    public void setHeatmap(int refreshEvery)
+    {
+        drawingObject.setHeatmap(refreshEvery);
     }
 
     /**
@@ -327,54 +492,287 @@ public class AquaSimGUI extends DisplayPanel
         // components are active.
         started = true;
         controlPanelDisplay.setEnabled(false);
-//        runButtonsPanel.setEnabled(true);
+        ratesDisplay.setEnabled(true);
+        runControlDisplay.setEnabled(controller != null);
+        historyDisplay.setEnabled(history != null);
+
+        // Create the Simulation object (if appropriate), a controller to
+        // run it and a history of the frames it shows, view the initial
+        // configuration, and turn on the step and run buttons.
+        if ( useSimulation && simulation == null )
+        {
+            // Fish already put in the aquarium (from a configuration,
+            // say) are used as they are; otherwise the simulation makes
+            // the number of fish asked for.
+            simulation = new Simulation(aqua,
+                aqua.getFish().isEmpty() ? numFish : 0);
+            simulation.setBatchSize(batchSize);
+            simulation.setIntermediateFrames(showEveryStep);
+            int fishCount = aqua.getFish().size();
+            setHistory(new AquaHistory(Math.min(HISTORY_STEPS,
+                AquaHistory.stepsFor(HISTORY_MEMORY, fishCount)), fishCount));
+            history.record(aqua, 0);
+            simulation.setFrameListener(this::frameReady);
+            if ( controller == null )
+                setRunController(new RunController((batchSize == 1)
+                    ? 1000.0 / VIEW_TIME : FramePacer.UNTHROTTLED));
+            showSnapshot(simulation.getAllFish());
+            setRunButtonsEnabled(true);
+        }
+    }
+
+    /**
+     *  Chooses how many steps the Single Step and Run buttons take at a
+     *  time, when the GUI uses a Simulation object.  Single Step takes one
+     *  batch; Run takes batches until it has taken the number of steps
+     *  asked for, drawing after each.  Batching cannot be changed during
+     *  a run.
+     *      @param  stepsPerBatch   the number of steps in a batch
+     *      @param  everyStep       <code>true</code> to draw every step of
+     *                              a batch, <code>false</code> to draw only
+     *                              the last
+     **/
+    public void setBatching(int stepsPerBatch, boolean everyStep)
+    {
+        if ( stepsPerBatch <= 0 )
+            throw new IllegalArgumentException("batch size must be positive");
+        if ( controller != null && controller.isRunning() )
+            throw new IllegalStateException(
+                "cannot change batching while the simulation runs");
+        batchSize = stepsPerBatch;
+        showEveryStep = everyStep;
+        if ( simulation != null )
+        {
+            simulation.setBatchSize(batchSize);
+            simulation.setIntermediateFrames(showEveryStep);
+        }
+    }
+
+    /**
+     *  Sets the controller of the background run, so that the run control
+     *  buttons can pause, resume, speed up, slow down, and cancel it.
+     *      @param  runController   the controller, or <code>null</code>
+     **/
+    public void setRunController(RunController runController)
+    {
+        controller = runController;
+        runControlDisplay.setEnabled(started && controller != null);
+    }
+
+    /**
+     *  Sets the history of recent steps, so that the history buttons can
+     *  step back and forward through it.
+     *      @param  recentSteps   the history, or <code>null</code>
+     **/
+    public void setHistory(AquaHistory recentSteps)
+    {
+        history = recentSteps;
+        historyDisplay.setEnabled(started && history != null);
+    }
+
+    /** Pauses the background run.  (Activated by the pause button.)
+     **/
+    public void pauseRun()
+    {
+        if ( controller != null )
+            controller.pause();
+    }
+
+    /** Resumes the background run.  (Activated by the resume button.)
+     **/
+    public void resumeRun()
+    {
+        stepsBack = 0;
+        if ( controller != null )
+            controller.resume();
+    }
+
+    /** Pauses the run and shows the step before the one being shown.
+     *  (Activated by the step back button.)
+     **/
+    public void stepBack()
+    {
+        if ( history == null || history.size() == 0 )
+            return;
+        pauseRun();
+        showPast(Math.min(stepsBack + 1, history.size() - 1));
+    }
+
+    /** Shows the step after the one being shown, up to the latest.
+     *  (Activated by the step forward button.)
+     **/
+    public void stepForward()
+    {
+        if ( history == null || stepsBack == 0 )
+            return;
+        showPast(Math.min(stepsBack - 1, history.size() - 1));
+    }
+
+    /** Goes back to showing the latest step.  (Activated by the latest
+     *  button.)
+     **/
+    public void showLatest()
+    {
+        if ( history == null || history.size() == 0 )
+            return;
+        showPast(0);
+    }
+
+    /**
+     *  Shows a step from the history.
+     *      @param  back   how many steps back from the latest
+     **/
+    private void showPast(int back)
+    {
+        stepsBack = back;
+        history.recall(back, pastFrame);
+        drawingObject.showSnapshot(pastFrame);
+        println("Step " + pastFrame.step() + ((back == 0) ? " (latest)"
+                : " (" + back + " back)"));
+    }
+
+    /** Stops the background run.  (Activated by the cancel button.)
+     **/
+    public void cancelRun()
+    {
+        if ( controller != null )
+            controller.cancel();
+    }
+
+    /** Changes the speed of the background run.  (Activated by the speed
+     *  buttons.)
+     *      @param  factor  how much to multiply the speed by, or 0 to run
+     *                      as fast as possible
+     **/
+    public void changeSpeed(double factor)
+    {
+        if ( controller == null )
+            return;
+        double speed = controller.speed();
+        if ( factor == 0 )
+            speed = FramePacer.UNTHROTTLED;
+        else if ( speed == FramePacer.UNTHROTTLED )
+            speed = Math.max(1, controller.pacer().stepRate()) * factor;
+        else
+            speed *= factor;
+        speed = Math.min(speed, RunController.MAX_SPEED);
+        controller.setSpeed(speed);
+        println("Speed: " + ((speed == FramePacer.UNTHROTTLED)
+                             ? "as fast as possible"
+                             : String.format("%.3g steps per second", speed)));
+    }
+
+    /** Moves the view window over an aquarium too big to show whole, by
+     *  half the window's width or height.  (Activated by the view
+     *  buttons.)
+     *      @param  across  -1 to move left, 1 to move right, or 0
+     *      @param  down    -1 to move up, 1 to move down, or 0
+     **/
+    public void scrollView(int across, int down)
+    {
+        drawingObject.scroll(across, down);
     }
 
-    /** Executes one step of the simulation.  (Activated by the step button.)
+    /** Executes one step (or one batch of steps; see setBatching) of the
+     *  simulation, in the background as a run of one step under the run
+     *  controller, so that the event thread is not held up and a step
+     *  never overlaps a run.  (Activated by the step button.)  Does
+     *  nothing while the simulation is running.
      */
-/*
     public void step()
     {
-        if ( simulation == null )
+        if ( simulation == null || controller.isRunning() )
             return;
-
-        // Execute a step of the simulation.
-        simulation.step();
-        
-        // View the new configuration.
-        show(simulation.getAllFish());
-        repaint();
+        setRunButtonsEnabled(false);
+        controller.start(batches(simulation.batchSize()), 1);
     }
-*/
 
-    /** Starts running the simulation.  (Activated by the run button.)
+    /** Starts running the simulation in the background, under the run
+     *  controller, so that it can be paused, sped up, or cancelled.
+     *  (Activated by the run button.)  Each step of the run is one batch
+     *  (see setBatching); steps taken one at a time start out paced so
+     *  that each can be seen, and batches of steps at full speed.
      **/
-/*
     public void run()
     {
-        if ( simulation == null )
+        if ( simulation == null || controller.isRunning() )
             return;
+        setRunButtonsEnabled(false);
 
-        Thread myThread = new Thread()
-        {
-            public void run ()
-            {
-                runButtonsPanel.setEnabled(false);
+        // Move the fish numSteps times, a batch at a time.
+        int batch = simulation.batchSize();
+        controller.start(batches(numSteps), (numSteps + batch - 1) / batch);
+    }
 
-                // Move the fish numSteps times.
-                for ( int step = 0; step < numSteps; step++ )
+    /**
+     *  Makes the task the run controller carries out for the step and
+     *  run buttons: each of its steps is one batch of the simulation, and
+     *  it takes the given number of simulation steps in all.  The buttons
+     *  are turned back on when it ends.
+     *      @param  steps   the number of simulation steps to take
+     **/
+    private RunController.Task batches(int steps)
+    {
+        int batch = simulation.batchSize();
+        return new RunController.Task()
+            {
+                private int stepsLeft = steps;
+                public boolean step()
                 {
-                    step();
-                    pauseToView();
+                    simulation.step(Math.min(batch, stepsLeft));
+                    stepsLeft -= Math.min(batch, stepsLeft);
+                    return true;
                 }
+                public void draw(FramePacer pacer)
+                {
+                    if ( ! showEveryStep )
+                        showLatestStep();
+                    showRates(pacer);
+                }
+                public void runEnded()
+                {
+                    setRunButtonsEnabled(true);
+                }
+            };
+    }
 
-                runButtonsPanel.setEnabled(true);
-            }
-        };
+    /**
+     *  Views each frame the simulation publishes, and records it in the
+     *  history, if every step is to be seen.  (Called by the Simulation,
+     *  on the thread stepping it.)
+     *      @param  frame   the fish as of the latest step
+     **/
+    private void frameReady(AquaSnapshot frame)
+    {
+        if ( showEveryStep )
+        {
+            history.record(aqua, frame.step());
+            showSnapshot(frame);
+        }
+    }
 
-        myThread.start();
+    /**
+     *  Records the latest step in the history and views it.  Only the
+     *  steps that are shown are recorded, so a run that is not drawing
+     *  every step pays for the history only at the frame rate, not at
+     *  the step rate.  (Called on the thread stepping the simulation.)
+     **/
+    private void showLatestStep()
+    {
+        history.record(aqua, simulation.stepNumber());
+        showSnapshot(simulation.getAllFish());
+    }
+
+    /**
+     *  Turns the step and run buttons on or off, on the event thread.
+     **/
+    private void setRunButtonsEnabled(boolean on)
+    {
+        if ( SwingUtilities.isEventDispatchThread() )
+            runButtonsPanel.setEnabled(on);
+        else
+            SwingUtilities.invokeLater(() -> runButtonsPanel.setEnabled(on));
     }
-*/
 
 
     //////////////////////////////
@@ -388,15 +786,21 @@ public class AquaSimGUI extends DisplayPanel
     {
         // Create the panel in which to view the aquarium
         // and disable it (view panel is not interactive).
-        // then put it in a display with a title.
+        // then put it in a display with a title.  An aquarium
+        // too big to show whole is seen through a window onto
+        // part of it.
+        int viewWidth = Math.min(aqua.width(), MAX_VIEW_WIDTH);
+        int viewHeight = Math.min(aqua.height(), MAX_VIEW_HEIGHT);
         BufferedPanel aquaViewPanel =
-            new BufferedPanel(aqua.width(), aqua.height());
+            new BufferedPanel(viewWidth, viewHeight);
         aquaViewPanel.setEnabled(false);
 
         // Construct an object that knows how to draw the
         // aquarium in the viewing panel (used by other parts
         // of the Aquarium Simulation program as well).
         drawingObject = new AquaView(aquaViewPanel, aqua);
+        if ( viewWidth < aqua.width() || viewHeight < aqua.height() )
+            drawingObject.useTiles(viewWidth, viewHeight);
 
         // Put the view panel in a titled display and return.
         return new Display(aquaViewPanel, null, "Aquarium");
@@ -445,47 +849,37 @@ public class AquaSimGUI extends DisplayPanel
         startPanel.setEnabled(true);
         controlPanel.add(getStartPanel());
 
+        // Always include the speed display and run controls, and the
+        // view controls if the aquarium is seen through a window.
+        controlPanel.add(ratesDisplay);
+        controlPanel.add(runControlDisplay);
+        controlPanel.add(historyDisplay);
+        if ( drawingObject.isTiled() )
+        {
+            viewPanel.setEnabled(true);
+            controlPanel.add(viewDisplay);
+        }
+
         // Add step and run buttons if appropriate.
-/*
         if ( useSimulationObj )
         {
             runButtonsPanel.setEnabled(false);
             controlPanel.add(new Display(runButtonsPanel, null, "Run Simulation"));
         }
-*/
         // Put the control panel in an untitled display and return.
         this.controlPanelDisplay = new Display(controlPanel, null, null);
         return this.controlPanelDisplay;
     }
 
-    /** Constructs action panel for start button (in a separate thread).
+    /** Constructs display for the start button's action panel.
      **/
     private Display getStartPanel()
     {
-        // Create the Start action panel in a separate thread.
-        Thread myThread = new Thread()
-        {
-            public void run ()
-            {
-                startPanel = new ActionsPanel(startButtonList);
-            }
-        };
-
-        // Start parallel thread for start button.
-        myThread.start();
-        waitForStartPanel();
+        // The action panel itself is built along with this object, so
+        // there is no need for another thread to build it again here.
         return new Display(startPanel, null, null);
     }
 
-    /**
-     *  Waits for Start button action panel to be created.
-     **/
-    private void waitForStartPanel()
-    {
-        while ( startPanel == null )
-            JPTUtilities.pauseThread(WAIT_TIME);
-    }
-
     
     /** Aquarium Lab Series:
      *  An AquaView object provides a graphical view of fish
@@ -501,6 +895,14 @@ public class AquaSimGUI extends DisplayPanel
         // Encapsulated data
         private BufferedPanel displayPanel;   // where to display
         private Aquarium theAquarium;         // the aquarium to display
+        private FishRasterizer rasterizer;    // software renderer, or null
+        private DensityHeatmap heatmap;       // density overlay, or null
+        private TiledCanvas tiles;            // for big aquariums, or null
+        private FishSpriteAtlas sprites =     // ready-drawn fish
+            new FishSpriteAtlas(FishSpriteAtlas.DEFAULT_CAPACITY);
+        private int viewX, viewY;             // view window's top left
+        private int viewWidth, viewHeight;    //   corner and size
+        private AquaSnapshot current = new AquaSnapshot();  // fish to draw
     
         /** Constructs an AquaView object to display a particular
          *  aquarium.  
@@ -517,107 +919,167 @@ public class AquaSimGUI extends DisplayPanel
         }
     
     
+        /**
+         *  Shows only part of the aquarium, through a view window, drawing
+         *  it in tiles (see TiledCanvas).  This is for aquariums too big to
+         *  keep as one picture.
+         *      @param width    width of the view window
+         *      @param height   height of the view window
+         **/
+        public void useTiles(int width, int height)
+        {
+            viewWidth = width;
+            viewHeight = height;
+            tiles = new TiledCanvas(theAquarium.width(), theAquarium.height(),
+                                    TiledCanvas.tilesFor(TILE_MEMORY));
+            rasterizer = null;
+        }
+
+
+        /**
+         *  Determines whether only part of the aquarium is shown.
+         *      @return <code>true</code> if the aquarium is drawn in tiles
+         **/
+        public boolean isTiled()
+        {
+            return tiles != null;
+        }
+
+
+        /**
+         *  Moves the view window by half its size and shows the fish last
+         *  shown from there.  The window stays inside the aquarium.
+         *      @param across  -1 (left), 1 (right), or 0
+         *      @param down    -1 (up), 1 (down), or 0
+         **/
+        public synchronized void scroll(int across, int down)
+        {
+            if ( tiles == null )
+                return;
+            viewX += across * viewWidth / 2;
+            viewY += down * viewHeight / 2;
+            viewX = Math.max(0, Math.min(viewX,
+                                         theAquarium.width() - viewWidth));
+            viewY = Math.max(0, Math.min(viewY,
+                                         theAquarium.height() - viewHeight));
+            showSnapshot(current);
+        }
+
+
+        /**
+         *  Turns software rendering on or off.  (An aquarium drawn in
+         *  tiles is always drawn by software.)
+         *      @param on   <code>true</code> to use software rendering
+         **/
+        public void setSoftwareRendering(boolean on)
+        {
+            if ( tiles != null )
+                return;
+            if ( on && rasterizer == null )
+                rasterizer = new FishRasterizer(theAquarium.width(),
+                                                theAquarium.height());
+            else if ( ! on )
+                rasterizer = null;
+        }
+
+
+        /**
+         *  Turns the density overlay on or off.
+         *      @param refreshEvery  frames between recounts, or 0 for off
+         **/
+        public void setHeatmap(int refreshEvery)
+        {
+            if ( refreshEvery > 0 )
+                heatmap = new DensityHeatmap(theAquarium.width(),
+                                             theAquarium.height(),
+                                             DensityHeatmap.DEFAULT_CELL_SIZE,
+                                             refreshEvery);
+            else
+                heatmap = null;
+        }
+
+
         /**
          *  Shows the fish in the aquarium.
          *  Paints the aquarium blue to cover up old fish and displays
          *  the fish in the aquarium.
          **/
-        public void showAquarium()
+        public synchronized void showAquarium()
+        {
+            current.capture(theAquarium, 0);
+            showSnapshot(current);
+        }
+
+
+        /**
+         *  Shows the fish in a snapshot.
+         *  Paints the aquarium blue to cover up old fish and displays
+         *  the fish in the snapshot.
+         *      @param snap  the fish to display
+         **/
+        public synchronized void showSnapshot(AquaSnapshot snap)
         {
+            // A big aquarium is drawn in tiles, only as far as can be
+            // seen through the view window.  Keep the fish, so that they
+            // can be shown again when the window moves.
+            if ( tiles != null )
+            {
+                if ( snap != current )
+                    current.copyFrom(snap);
+                tiles.render(current, theAquarium.rgb(), viewX, viewY,
+                             viewWidth, viewHeight,
+                             displayPanel.getBufferGraphics());
+                showHeatmap(current);
+                repaint();
+                return;
+            }
+
+            // With software rendering, draw everything into the
+            // rasterizer's image and hand it to the panel in one go.
+            if ( rasterizer != null )
+            {
+                rasterizer.render(snap, theAquarium.rgb());
+                displayPanel.getBufferGraphics().drawImage(
+                    rasterizer.image(), 0, 0, null);
+                showHeatmap(snap);
+                repaint();
+                return;
+            }
+
             // Redraw the environment to paint over previous positions of fish.
             displayPanel.fillPanel(theAquarium.color());
 
-            // Get graphics context in which everything is displayed.
+            // Draw all of the fish, in order, each by copying the sprite
+            // for its size, direction, and color from the atlas.
             Graphics2D drawingSurface = displayPanel.getBufferGraphics();
-            drawingSurface.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                RenderingHints.VALUE_ANTIALIAS_ON);
-    
-            // Draw all of the fish.
-            for ( AquaFish fish : theAquarium.getFish() )
-            {
-                if ( fish != null )
-                    drawFish(drawingSurface, fish);
-            }
+            int n = snap.size();
+            for ( int i = 0; i < n; i++ )
+                sprites.draw(drawingSurface,
+                             FishShapes.templateId(snap.lengths[i],
+                                                   snap.facingRight[i]),
+                             snap.colors[i], snap.xs[i], snap.ys[i]);
 
             // Show the redrawn aquarium & fish on the screen.
+            showHeatmap(snap);
             repaint();
-            pauseToView();
         }
-    
-    
+
+
         /**
-         *  Helper function that displays a single BaseFish, given
-         *  a graphics context.
-         *  @param    drawingSurface   context in which to display fish
-         *  @param    fish             the fish to be displayed
+         *  Helper function that draws the density overlay, if it is on,
+         *  over the fish.
+         *  @param    snap    the fish being shown
          **/
-        private void drawFish(Graphics2D drawingSurface, AquaFish fish)
-        {        
-            // Get color of fish.
-            drawingSurface.setPaint(fish.color());
-    
-            // Get fish size and location from the fish itself.  Find its
-            // outline based on the fish size and location.
-            double fishLength = fish.length();
-            double fishHeight = fish.height();
-            double leftEndOfFish = fish.xCoord() - fishLength / 2.0;
-            double topOfFish = fish.yCoord() - fishHeight / 2.0;
-            double rightEndOfFish = leftEndOfFish + fishLength;
-            double bottomOfFish = topOfFish + fishHeight;
-            double verticalCenter = fish.yCoord();
-            // Fish body parts are drawn to scale.
-            double bodyLength = 0.8 * fishLength;
-            double leftEndOfBody;        // value depends on fish's direction
-    
-            double eyeSize = 0.1 * fishLength;
-            double topOfEye = verticalCenter - (0.1 * fishLength)
-                              - eyeSize / 2;
-            double leftEndOfEye;        // value depends on fish's direction
-    
-            double tailLength = 0.25 * fishLength;
-            double tailHeightOffset = 0.12 * fishLength;
-            double topOfTail = verticalCenter - tailHeightOffset;
-            double bottomOfTail = verticalCenter + tailHeightOffset;
-            double endOfTail;        // value depends on fish's direction
-            double tailMeetsBody;    // value depends on fish's direction
-    
-            if (fish.isFacingRight())    //draw the fish facing right
-            {
-                leftEndOfBody = rightEndOfFish - bodyLength;
-                leftEndOfEye = rightEndOfFish - 0.26 * fishLength;
-                endOfTail = leftEndOfFish;
-                tailMeetsBody = endOfTail + tailLength;
-            }
-            else
-            {
-                leftEndOfBody = leftEndOfFish;
-                leftEndOfEye = leftEndOfFish + (0.26 * fishLength)
-                                  - eyeSize;
-                endOfTail = rightEndOfFish;
-                tailMeetsBody = endOfTail - tailLength;
-            }
-    
-            // Draw the body of the fish as an oval.
-            Ellipse2D.Double body
-                 = new Ellipse2D.Double(leftEndOfBody, topOfFish,
-                     bodyLength, fishHeight);
-            drawingSurface.fill(body);
-    
-            // Draw the tail as a triangle (filled path with three points).
-            GeneralPath tailOutline = new GeneralPath();
-            tailOutline.moveTo((float) endOfTail, (float) topOfTail);
-            tailOutline.lineTo((float) endOfTail, (float) bottomOfTail);
-            tailOutline.lineTo((float) tailMeetsBody, (float) verticalCenter);
-            tailOutline.closePath();
-            drawingSurface.fill(tailOutline);
-    
-            // Draw the eye as a small circle.
-            drawingSurface.setPaint(Color.BLACK);
-            Ellipse2D.Double eye
-                 = new Ellipse2D.Double(leftEndOfEye, topOfEye,
-                     eyeSize, eyeSize);
-            drawingSurface.fill(eye);
-         }
+        private void showHeatmap(AquaSnapshot snap)
+        {
+            if ( heatmap == null )
+                return;
+            Graphics2D g = displayPanel.getBufferGraphics();
+            g.translate(-viewX, -viewY);
+            heatmap.drawFrame(snap, g, theAquarium.width(),
+                              theAquarium.height());
+            g.translate(viewX, viewY);
+        }
     
     }
 
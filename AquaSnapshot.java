@@ -0,0 +1,180 @@
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      An AquaSnapshot is a compact copy of the state of every fish in an
+ *      aquarium at one moment: ID, position, length, color, and direction,
+ *      kept in plain arrays rather than as fish objects.  Snapshots are
+ *      what gets drawn, recorded, and replayed, so that those jobs do not
+ *      need the live fish (which may be moving on another thread) and so
+ *      that a recorded run can be shown without re-simulating it.
+ * <br> <br>
+ *      A snapshot reuses its arrays when it is filled again, so keeping
+ *      one around and refilling it every step does not allocate memory
+ *      once the arrays are big enough.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see ReplayWriter
+ * @see ReplayReader
+ **/
+public class AquaSnapshot
+{
+    // STATE (package-private so that writers and renderers can use the
+    // arrays directly; everyone else should use the accessors)
+
+    int count;                 // number of fish
+    long step;                 // step number this snapshot was taken at
+    int[] ids = new int[0];    // fish IDs
+    int[] xs = new int[0];     // centerpoint x coordinates
+    int[] ys = new int[0];     // centerpoint y coordinates
+    int[] lengths = new int[0];      // fish lengths
+    int[] colors = new int[0];       // FishPalette indices
+    boolean[] facingRight = new boolean[0];   // fish directions
+
+    // OPERATIONS
+
+    /**
+     *  Fills this snapshot from the fish in an aquarium.
+     *  @param  aqua   the aquarium to copy
+     *  @param  stepNumber   the current step number
+     **/
+    public void capture(Aquarium aqua, long stepNumber)
+    {
+        List<AquaFish> fish = aqua.getFish();
+        resize(fish.size());
+        step = stepNumber;
+        for ( int i = 0; i < count; i++ )
+        {
+            AquaFish f = fish.get(i);
+            ids[i] = f.id();
+            xs[i] = f.xCoord();
+            ys[i] = f.yCoord();
+            lengths[i] = f.length();
+            colors[i] = f.colorIndex();
+            facingRight[i] = f.isFacingRight();
+        }
+    }
+
+    /**
+     *  Makes this snapshot a copy of another.
+     *  @param  other   the snapshot to copy
+     **/
+    public void copyFrom(AquaSnapshot other)
+    {
+        if ( other == this )
+            return;
+        int n = other.count;
+        resize(n);
+        step = other.step;
+        System.arraycopy(other.ids, 0, ids, 0, n);
+        System.arraycopy(other.xs, 0, xs, 0, n);
+        System.arraycopy(other.ys, 0, ys, 0, n);
+        System.arraycopy(other.lengths, 0, lengths, 0, n);
+        System.arraycopy(other.colors, 0, colors, 0, n);
+        System.arraycopy(other.facingRight, 0, facingRight, 0, n);
+    }
+
+    /**
+     *  Makes this snapshot hold the given number of fish, growing the
+     *  arrays if needed.  The contents of the fish are left to the caller.
+     *  @param  newCount   the number of fish
+     **/
+    public void resize(int newCount)
+    {
+        if ( ids.length < newCount )
+        {
+            int capacity = Math.max(newCount, ids.length * 3 / 2);
+            ids = Arrays.copyOf(ids, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+            facingRight = Arrays.copyOf(facingRight, capacity);
+        }
+        count = newCount;
+    }
+
+    /**
+     *  Gets the number of fish in this snapshot.
+     *  @return    the number of fish
+     **/
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     *  Gets the step number at which this snapshot was taken.
+     *  @return    the step number
+     **/
+    public long step()
+    {
+        return step;
+    }
+
+    /**
+     *  Gets the ID of fish number <code>i</code>.
+     *  @param  i   which fish (0 .. size() - 1)
+     *  @return the fish's ID
+     **/
+    public int id(int i)
+    {
+        return ids[i];
+    }
+
+    /**
+     *  Gets the x coordinate of fish number <code>i</code>.
+     *  @param  i   which fish (0 .. size() - 1)
+     *  @return the x coordinate of the fish's centerpoint
+     **/
+    public int xCoord(int i)
+    {
+        return xs[i];
+    }
+
+    /**
+     *  Gets the y coordinate of fish number <code>i</code>.
+     *  @param  i   which fish (0 .. size() - 1)
+     *  @return the y coordinate of the fish's centerpoint
+     **/
+    public int yCoord(int i)
+    {
+        return ys[i];
+    }
+
+    /**
+     *  Gets the length of fish number <code>i</code>.
+     *  @param  i   which fish (0 .. size() - 1)
+     *  @return the fish's length
+     **/
+    public int length(int i)
+    {
+        return lengths[i];
+    }
+
+    /**
+     *  Gets the color of fish number <code>i</code>.
+     *  @param  i   which fish (0 .. size() - 1)
+     *  @return the fish's color, as an index into FishPalette
+     **/
+    public int colorIndex(int i)
+    {
+        return colors[i];
+    }
+
+    /**
+     *  Determines whether fish number <code>i</code> is facing right.
+     *  @param  i   which fish (0 .. size() - 1)
+     *  @return <code>true</code> if the fish is facing right
+     **/
+    public boolean isFacingRight(int i)
+    {
+        return facingRight[i];
+    }
+
+}
@@ -0,0 +1,302 @@
+import java.io.IOException;
+import java.util.Locale;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The AquaStats class keeps running statistics about the fish in an
+ *      aquarium: how many there are, their average position, how many face
+ *      each way, how many are in each size class, how far they move, and
+ *      how often they turn or reach a wall.  Rather than look at every fish
+ *      whenever a question is asked, it is told about each change as it
+ *      happens (by the aquarium when fish are added or removed, and by the
+ *      fish as they move and turn), so every question is answered in
+ *      constant time.
+ * <br> <br>
+ *      The spread of move distances is kept with Welford's method, which
+ *      stays accurate over millions of moves where a plain sum of squares
+ *      would not.
+ * <br> <br>
+ *      An AquaStats object is not thread-safe: it must only be updated from
+ *      the thread that steps the aquarium.  (Behaviors may work out their
+ *      steering in parallel, but fish always move one at a time.)
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see Aquarium#setStats
+ **/
+public class AquaStats
+{
+    // STATE
+
+    // Fish lengths are 30, 45, 60 and 75 (see NavigationalAide.initSize),
+    // so each length is its own size class.
+    public static final int SIZE_CLASSES = 4;
+    private static final int SMALLEST_LENGTH = 30;
+    private static final int LENGTH_STEP = 15;
+
+    // Population: kept up to date as fish are added, removed, and moved.
+    private int fishCount;
+    private int facingRight;
+    private long sumX, sumY;
+    private final int[] sizeCounts = new int[SIZE_CLASSES];
+
+    // Activity: totals since the statistics were started.
+    private long steps;
+    private long turns;
+    private long wallHits;
+    private long moves;
+    private double moveMean;      // Welford running mean of move distance
+    private double moveM2;        //    and sum of squared differences
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs statistics for an empty aquarium.
+     **/
+    public AquaStats()
+    {
+    }
+
+    /**
+     *  Works out which size class a fish of the given length is in.
+     *  @param  length   the fish's length
+     *  @return the size class, from 0 (smallest) to SIZE_CLASSES - 1
+     **/
+    public static int sizeClass(int length)
+    {
+        int c = (length - SMALLEST_LENGTH) / LENGTH_STEP;
+        return Math.max(0, Math.min(SIZE_CLASSES - 1, c));
+    }
+
+    ///////////////////////////////////////
+    // Updates (from the aquarium and fish)
+    ///////////////////////////////////////
+
+    /**
+     *  Records that a fish has joined the aquarium.
+     *  @param  fish   the new fish
+     **/
+    public void fishAdded(AquaFish fish)
+    {
+        fishCount++;
+        if ( fish.isFacingRight() )
+            facingRight++;
+        sumX += fish.xCoord();
+        sumY += fish.yCoord();
+        sizeCounts[sizeClass(fish.length())]++;
+    }
+
+    /**
+     *  Records that a fish has left the aquarium.
+     *  @param  fish   the fish that left
+     **/
+    public void fishRemoved(AquaFish fish)
+    {
+        fishCount--;
+        if ( fish.isFacingRight() )
+            facingRight--;
+        sumX -= fish.xCoord();
+        sumY -= fish.yCoord();
+        sizeCounts[sizeClass(fish.length())]--;
+    }
+
+    /**
+     *  Records that a fish has moved forward.
+     *  @param  dx   how far it moved (negative if it moved left)
+     **/
+    public void fishMovedForward(int dx)
+    {
+        sumX += dx;
+        moves++;
+        double distance = Math.abs(dx);
+        double delta = distance - moveMean;
+        moveMean += delta / moves;
+        moveM2 += delta * (distance - moveMean);
+    }
+
+    /**
+     *  Records that a fish has moved up or down.
+     *  @param  dy   how far it moved (negative if it moved up)
+     **/
+    public void fishMovedVertically(int dy)
+    {
+        sumY += dy;
+    }
+
+    /**
+     *  Records that a fish has turned around.
+     *  @param  nowFacingRight   whether the fish faces right after turning
+     *  @param  atWall           whether it turned because it was at a wall
+     **/
+    public void fishTurned(boolean nowFacingRight, boolean atWall)
+    {
+        facingRight += nowFacingRight ? 1 : -1;
+        turns++;
+        if ( atWall )
+            wallHits++;
+    }
+
+    /**
+     *  Records that a time step has finished.
+     **/
+    public void stepCompleted()
+    {
+        steps++;
+    }
+
+    ///////////////////////////////////////
+    // Queries (all constant time)
+    ///////////////////////////////////////
+
+    /**
+     *  Gets the number of fish in the aquarium.
+     *  @return    the number of fish
+     **/
+    public int fishCount()
+    {
+        return fishCount;
+    }
+
+    /**
+     *  Gets the number of fish facing right.
+     *  @return    the number of fish facing right
+     **/
+    public int facingRightCount()
+    {
+        return facingRight;
+    }
+
+    /**
+     *  Gets the direction balance: the fraction of fish facing right,
+     *  less the fraction facing left.
+     *  @return    a number from -1 (all face left) to 1 (all face right),
+     *             or 0 if there are no fish
+     **/
+    public double directionBalance()
+    {
+        if ( fishCount == 0 )
+            return 0;
+        return (2.0 * facingRight - fishCount) / fishCount;
+    }
+
+    /**
+     *  Gets the average x coordinate of the fish.
+     *  @return    the average x coordinate, or 0 if there are no fish
+     **/
+    public double meanX()
+    {
+        return (fishCount == 0) ? 0 : (double) sumX / fishCount;
+    }
+
+    /**
+     *  Gets the average y coordinate of the fish.
+     *  @return    the average y coordinate, or 0 if there are no fish
+     **/
+    public double meanY()
+    {
+        return (fishCount == 0) ? 0 : (double) sumY / fishCount;
+    }
+
+    /**
+     *  Gets the number of fish in a size class.
+     *  @param  sizeClass   the size class (see sizeClass)
+     *  @return    the number of fish in that class
+     **/
+    public int sizeClassCount(int sizeClass)
+    {
+        return sizeCounts[sizeClass];
+    }
+
+    /**
+     *  Gets the number of steps completed.
+     *  @return    the number of steps
+     **/
+    public long steps()
+    {
+        return steps;
+    }
+
+    /**
+     *  Gets the number of times fish have turned around.
+     *  @return    the number of turns
+     **/
+    public long turns()
+    {
+        return turns;
+    }
+
+    /**
+     *  Gets the number of times fish have turned around at a wall.
+     *  @return    the number of wall hits
+     **/
+    public long wallHits()
+    {
+        return wallHits;
+    }
+
+    /**
+     *  Gets the number of forward moves.
+     *  @return    the number of moves
+     **/
+    public long moves()
+    {
+        return moves;
+    }
+
+    /**
+     *  Gets the average distance of a forward move.
+     *  @return    the average distance, or 0 if no fish has moved
+     **/
+    public double meanMoveDistance()
+    {
+        return moveMean;
+    }
+
+    /**
+     *  Gets the variance of the distance of a forward move.
+     *  @return    the (population) variance, or 0 if fewer than two moves
+     **/
+    public double moveDistanceVariance()
+    {
+        return (moves < 2) ? 0 : moveM2 / moves;
+    }
+
+    ///////////////////////////////////////
+    // CSV output
+    ///////////////////////////////////////
+
+    /**
+     *  Writes the names of the columns written by writeCsvRow.
+     *  @param  out   where to write
+     *  @throws IOException if the output cannot be written
+     **/
+    public static void writeCsvHeader(Appendable out) throws IOException
+    {
+        out.append("step,fish,meanX,meanY,directionBalance,turns,wallHits,"
+                   + "moves,meanMove,moveVariance");
+        for ( int c = 0; c < SIZE_CLASSES; c++ )
+            out.append(",size").append(Integer.toString(c));
+        out.append('\n');
+    }
+
+    /**
+     *  Writes the current statistics as one line of comma-separated values.
+     *  @param  out   where to write
+     *  @throws IOException if the output cannot be written
+     **/
+    public void writeCsvRow(Appendable out) throws IOException
+    {
+        out.append(String.format(Locale.ROOT,
+                                 "%d,%d,%.3f,%.3f,%.4f,%d,%d,%d,%.3f,%.3f",
+                                 steps, fishCount, meanX(), meanY(),
+                                 directionBalance(), turns, wallHits, moves,
+                                 meanMoveDistance(), moveDistanceVariance()));
+        for ( int c = 0; c < SIZE_CLASSES; c++ )
+            out.append(',').append(Integer.toString(sizeCounts[c]));
+        out.append('\n');
+    }
+
+}
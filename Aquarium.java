@@ -1,6 +1,8 @@
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Random;
 
 /**
@@ -23,6 +25,15 @@ import java.util.Random;
  *                               AquaFish class to the Aquarium class.<br>
  *   23 March 2008, Alyce Brady, Added list of fish to the aquarium to simplify
  *                               the display of an aquarium containing fish.<br>
+ *   19 October 2026, Added a population version for cached groupings.<br>
+ *   19 October 2026, Added batched removal of eaten fish.<br>
+ *   19 October 2026, Keep the water color as a packed RGB value.<br>
+ *   19 October 2026, Added seeded construction; fish now draw their
+ *                    moves from the aquarium's generator.<br>
+ *   19 October 2026, Added an optional event bus.<br>
+ *   19 October 2026, Added optional running statistics.<br>
+ *   19 October 2026, Added addAll, for fish made in bulk.<br>
+ *   19 October 2026, Added removeOutside, for distributed aquariums.<br>
  *  @author  Alyce Brady
  *  @version 23 March 2008
  **/
@@ -34,9 +45,15 @@ public class Aquarium
     private int myWidth;            // width of the aquarium
     private int myHeight;           // height of the aquarium
     private int borderPadding;      // space to leave around edge of aquarium
-    private Color myColor;          // background color to represent aquarium
+    private int myRGB;              // background color to represent aquarium
+    private Color myColor;          // same color as a Color, made when needed
     private ArrayList<AquaFish> listOfFish;         // fish in the aquarium
-    private final Random generator = new Random();  // Random number generator
+    private final Random generator;  // Random number generator for the
+                                     //    aquarium and the fish in it
+    private int version;            // bumped whenever the fish change
+    private int eatenCount;         // fish eaten but not yet removed
+    private AquaEventBus eventBus;  // where to publish events, or null
+    private AquaStats stats;        // running statistics, or null
 
     // OPERATIONS (constructor and methods)
 
@@ -47,6 +64,30 @@ public class Aquarium
      */
     public Aquarium(int width, int height)
     {
+        this(width, height, new Random());
+    }
+
+    /**
+     *  Constructs an Aquarium with user-specified size whose random
+     *  choices (where new fish are placed and how far fish move) are
+     *  repeatable: two aquariums built with the same seed, filled and
+     *  stepped the same way, behave identically.
+     *  @param    width    width of the aquarium when displayed (in pixels)
+     *  @param    height   height of the aquarium when displayed (in pixels)
+     *  @param    seed     seed for the aquarium's random number generator
+     */
+    public Aquarium(int width, int height, long seed)
+    {
+        this(width, height, new Random(seed));
+    }
+
+    /**
+     *  Constructs an Aquarium with the given size and random number
+     *  generator.
+     */
+    private Aquarium(int width, int height, Random generator)
+    {
+        this.generator = generator;
         if (width > 0)
             myWidth = width;
         else
@@ -58,7 +99,9 @@ public class Aquarium
 
         borderPadding = 10;
 
-        myColor = new Color(0.0f, .6f, 1.0f);
+        // Same as new Color(0.0f, .6f, 1.0f), kept as a packed RGB value
+        // so that headless runs never need to load the AWT classes.
+        myRGB = 0x0099FF;
 
         listOfFish = new ArrayList<AquaFish>();
     }
@@ -70,6 +113,148 @@ public class Aquarium
     public void add(AquaFish fish)
     {
         listOfFish.add(fish);
+        version++;
+        if ( stats != null )
+            stats.fishAdded(fish);
+        if ( eventBus != null )
+            eventBus.publish(AquaEventBus.FISH_ADDED, fish.id(),
+                             fish.xCoord(), fish.yCoord());
+    }
+
+    /**
+     *  Adds the given fish to this aquarium, in order.
+     *  @param  fish    the fish to add to this aquarium
+     */
+    public void addAll(Collection<AquaFish> fish)
+    {
+        listOfFish.ensureCapacity(listOfFish.size() + fish.size());
+        for ( AquaFish f : fish )
+            add(f);
+    }
+
+    /**
+     *  Sets the event bus to which this aquarium and its fish publish
+     *  what happens to them.
+     *  @param  bus    the event bus, or <code>null</code> for none
+     */
+    public void setEventBus(AquaEventBus bus)
+    {
+        eventBus = bus;
+    }
+
+    /**
+     *  Gets the event bus to which this aquarium and its fish publish
+     *  what happens to them.
+     *  @return    the event bus, or <code>null</code> if there is none
+     */
+    public AquaEventBus eventBus()
+    {
+        return eventBus;
+    }
+
+    /**
+     *  Sets the statistics that this aquarium and its fish keep up to
+     *  date.  The statistics are started from the fish already in the
+     *  aquarium.
+     *  @param  newStats    the statistics, or <code>null</code> for none
+     */
+    public void setStats(AquaStats newStats)
+    {
+        stats = newStats;
+        if ( stats != null )
+            for ( AquaFish fish : listOfFish )
+                stats.fishAdded(fish);
+    }
+
+    /**
+     *  Gets the statistics that this aquarium and its fish keep up to
+     *  date.
+     *  @return    the statistics, or <code>null</code> if there are none
+     */
+    public AquaStats stats()
+    {
+        return stats;
+    }
+
+    /**
+     *  Records that a fish in this aquarium has changed in a way that
+     *  affects how the aquarium is stepped (for example, a new behavior).
+     */
+    public void fishChanged()
+    {
+        version++;
+    }
+
+    /**
+     *  Records that a fish in this aquarium has been eaten.  It will be
+     *  removed by the next call to removeEatenFish.
+     */
+    public void fishEaten()
+    {
+        eatenCount++;
+    }
+
+    /**
+     *  Removes every fish that has been eaten since the last call.  Fish
+     *  are removed in a single pass over the list, so this should be
+     *  called once at the end of a step rather than once per fish.
+     *  @return    the number of fish removed
+     */
+    public int removeEatenFish()
+    {
+        if ( eatenCount == 0 )
+            return 0;
+        int before = listOfFish.size();
+        if ( stats == null )
+            listOfFish.removeIf(AquaFish::isEaten);
+        else
+            listOfFish.removeIf(fish -> {
+                if ( ! fish.isEaten() )
+                    return false;
+                stats.fishRemoved(fish);
+                return true;
+            });
+        eatenCount = 0;
+        version++;
+        return before - listOfFish.size();
+    }
+
+    /**
+     *  Removes every fish whose centerpoint is not between the given x
+     *  coordinates, in a single pass over the list.  An aquarium that
+     *  holds one part of a distributed aquarium uses this at the end of
+     *  each step to hand on the fish that have swum out of its part.
+     *  @param  left    smallest x coordinate to keep
+     *  @param  right   x coordinate just past the largest to keep
+     *  @return    the fish removed, in the order they were in
+     */
+    public List<AquaFish> removeOutside(int left, int right)
+    {
+        List<AquaFish> removed = new ArrayList<AquaFish>();
+        listOfFish.removeIf(fish -> {
+            int x = fish.xCoord();
+            if ( x >= left && x < right )
+                return false;
+            removed.add(fish);
+            if ( stats != null )
+                stats.fishRemoved(fish);
+            return true;
+        });
+        if ( ! removed.isEmpty() )
+            version++;
+        return removed;
+    }
+
+    /**
+     *  Gets a number that changes whenever fish are added to or removed
+     *  from this aquarium, or change their behavior.  Code that caches
+     *  information about the fish can compare versions to tell when its
+     *  cache is stale.
+     *  @return    the current version of this aquarium's population
+     */
+    public int version()
+    {
+        return version;
     }
 
     /**
@@ -96,9 +281,21 @@ public class Aquarium
      */
     public Color color()
     {
+        if ( myColor == null )
+            myColor = new Color(myRGB);
         return myColor;
     }
 
+    /**
+     *  Determines the color of the aquarium as a packed RGB value
+     *  (0xRRGGBB).
+     *  @return    the aquarium's color
+     */
+    public int rgb()
+    {
+        return myRGB;
+    }
+
     /**
      *  Returns a list of the fish in this aquarium.
      *    @return  list of fish in this aquarium
@@ -108,6 +305,17 @@ public class Aquarium
         return listOfFish;
     }
 
+    /**
+     *  Chooses a random number in the range 0 .. (bound - 1), using this
+     *  aquarium's random number generator.
+     *  @param     bound    upper bound (exclusive); must be positive
+     *  @return    a random number from 0 up to but not including bound
+     */
+    public int randomInt(int bound)
+    {
+        return generator.nextInt(bound);
+    }
+
     /**
      *  Determines whether the given coordinates specify
      *      a valid location (one that exists within the bounds of the
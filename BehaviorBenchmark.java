@@ -0,0 +1,127 @@
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The BehaviorBenchmark class compares two ways of stepping a tank
+ *      whose fish have several different behaviors: asking each fish to
+ *      move itself (one call site that sees every behavior type), and
+ *      using a {@link BehaviorScheduler} (one loop per behavior type).
+ *      Run it from the command line:
+ *      <pre>
+ *      java BehaviorBenchmark [numFish] [numSteps]
+ *      </pre>
+ * <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see BehaviorScheduler
+ **/
+public class BehaviorBenchmark
+{
+    /**
+     *  Runs the benchmark.
+     *  @param  args   optional number of fish and number of steps
+     **/
+    public static void main(String[] args)
+    {
+        int numFish = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int numSteps = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+
+        // Give the fish four different behaviors, interleaved so that
+        // consecutive fish rarely share one.
+        Aquarium aqua = new Aquarium(4000, 3000);
+        FishBehavior[] kinds = { SwimBehavior.INSTANCE, new Drifter(),
+                                 new Pacer(), new Sinker() };
+        for ( int i = 0; i < numFish; i++ )
+        {
+            AquaFish fish = new AquaFish(aqua);
+            fish.setBehavior(kinds[i % kinds.length]);
+            aqua.add(fish);
+        }
+
+        BehaviorScheduler scheduler = new BehaviorScheduler(aqua);
+        for ( int round = 0; round < 3; round++ )
+        {
+            long perFish = time(aqua, null, numSteps);
+            long grouped = time(aqua, scheduler, numSteps);
+            System.out.printf("round %d: per-fish %.1f ns/fish, "
+                              + "grouped %.1f ns/fish (%d groups)%n",
+                              round, perFish / (double) numFish / numSteps,
+                              grouped / (double) numFish / numSteps,
+                              scheduler.groupCount());
+        }
+    }
+
+    /**
+     *  Times numSteps steps, either fish-by-fish (scheduler is null) or
+     *  with the scheduler.
+     *  @return elapsed time in nanoseconds
+     **/
+    private static long time(Aquarium aqua, BehaviorScheduler scheduler,
+                             int numSteps)
+    {
+        List<AquaFish> fish = aqua.getFish();
+        long start = System.nanoTime();
+        for ( int step = 0; step < numSteps; step++ )
+        {
+            if ( scheduler != null )
+                scheduler.step();
+            else
+                for ( int i = 0, n = fish.size(); i < n; i++ )
+                    fish.get(i).move();
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** Swims, drifting up and down a little every step. **/
+    private static final class Drifter implements FishBehavior
+    {
+        public void move(AquaFish fish)
+        {
+            fish.moveVertically((fish.id() & 1) == 0 ? 1 : -1);
+            SwimBehavior.INSTANCE.move(fish);
+        }
+
+        public void moveAll(List<AquaFish> fish)
+        {
+            for ( int i = 0, n = fish.size(); i < n; i++ )
+                move(fish.get(i));
+        }
+    }
+
+    /** Swims, turning around every so often even away from the walls. **/
+    private static final class Pacer implements FishBehavior
+    {
+        public void move(AquaFish fish)
+        {
+            if ( fish.atWall() || (fish.xCoord() & 63) == 0 )
+                fish.changeDir();
+            fish.moveForward();
+        }
+
+        public void moveAll(List<AquaFish> fish)
+        {
+            for ( int i = 0, n = fish.size(); i < n; i++ )
+                move(fish.get(i));
+        }
+    }
+
+    /** Swims while sinking slowly toward the bottom. **/
+    private static final class Sinker implements FishBehavior
+    {
+        public void move(AquaFish fish)
+        {
+            fish.moveVertically(2);
+            SwimBehavior.INSTANCE.move(fish);
+        }
+
+        public void moveAll(List<AquaFish> fish)
+        {
+            for ( int i = 0, n = fish.size(); i < n; i++ )
+                move(fish.get(i));
+        }
+    }
+
+}
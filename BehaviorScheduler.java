@@ -0,0 +1,113 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The BehaviorScheduler class moves all of the fish in an aquarium for
+ *      one time step.  Rather than asking each fish to move itself (which
+ *      calls many different behaviors from the same place), it groups the
+ *      fish by behavior and hands each group to that behavior's
+ *      <code>moveAll</code> loop.  Every loop then only deals with one kind
+ *      of behavior, which lets the JIT compiler inline it even when the
+ *      aquarium mixes several behaviors.
+ * <br> <br>
+ *      Groups are kept between steps and only rebuilt when the aquarium's
+ *      version changes (a fish was added, removed, or given a new
+ *      behavior).  Within a group, fish move in aquarium order.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see FishBehavior
+ **/
+public class BehaviorScheduler
+{
+    // STATE
+
+    private final Aquarium aqua;              // aquarium to step
+    private final List<FishBehavior> behaviors = new ArrayList<FishBehavior>();
+    private final List<List<AquaFish>> groups = new ArrayList<List<AquaFish>>();
+    private int groupedVersion = -1;          // aquarium version of groups
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs a scheduler for the fish in the given aquarium.
+     *  @param  aquarium   the aquarium whose fish should be stepped
+     **/
+    public BehaviorScheduler(Aquarium aquarium)
+    {
+        this.aqua = aquarium;
+    }
+
+    /**
+     *  Moves every fish in the aquarium for one time step.  Fish eaten
+     *  during the step are removed from the aquarium at the end of it,
+     *  and then the aquarium's statistics and event bus (if any) are told
+     *  the step is over.
+     **/
+    public void step()
+    {
+        if ( groupedVersion != aqua.version() )
+            regroup();
+        for ( int g = 0; g < groups.size(); g++ )
+            behaviors.get(g).moveAll(groups.get(g));
+        aqua.removeEatenFish();
+        AquaStats stats = aqua.stats();
+        if ( stats != null )
+            stats.stepCompleted();
+        AquaEventBus bus = aqua.eventBus();
+        if ( bus != null )
+            bus.stepCompleted();
+    }
+
+    /**
+     *  Gets the number of behavior groups as of the last step.
+     *  @return    number of distinct behaviors among the fish
+     **/
+    public int groupCount()
+    {
+        if ( groupedVersion != aqua.version() )
+            regroup();
+        return groups.size();
+    }
+
+    /**
+     *  Sorts the aquarium's fish into one group per behavior.
+     **/
+    private void regroup()
+    {
+        Map<FishBehavior, List<AquaFish>> byBehavior =
+            new IdentityHashMap<FishBehavior, List<AquaFish>>();
+        behaviors.clear();
+        groups.clear();
+
+        // Neighboring fish usually share a behavior, so remember the last
+        // group used and only fall back to the map when it changes.
+        FishBehavior lastBehavior = null;
+        List<AquaFish> lastGroup = null;
+        for ( AquaFish fish : aqua.getFish() )
+        {
+            FishBehavior b = fish.behavior();
+            if ( b != lastBehavior )
+            {
+                lastGroup = byBehavior.get(b);
+                if ( lastGroup == null )
+                {
+                    lastGroup = new ArrayList<AquaFish>();
+                    byBehavior.put(b, lastGroup);
+                    behaviors.add(b);
+                    groups.add(lastGroup);
+                }
+                lastBehavior = b;
+            }
+            lastGroup.add(fish);
+        }
+        groupedVersion = aqua.version();
+    }
+
+}
@@ -0,0 +1,190 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.stream.IntStream;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The DensityHeatmap class shows where fish gather.  It counts the
+ *      fish centerpoints in each cell of a coarse grid laid over the
+ *      aquarium and draws the counts as a translucent red overlay: the more
+ *      fish in a cell, the stronger the red.  (Fish tend to bunch up at the
+ *      side walls, since a fish that would swim past a wall stops at it.)
+ * <br> <br>
+ *      Counting is split into chunks of fish that are counted in parallel,
+ *      each into its own histogram, and the histograms are then added
+ *      together, so no two threads ever write the same counter.  Because
+ *      the overlay changes slowly, it is only recounted every
+ *      <code>refreshEvery</code> frames; in between, the last overlay is
+ *      drawn again.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaSimGUI
+ **/
+public class DensityHeatmap
+{
+    // STATE
+
+    public static final int DEFAULT_CELL_SIZE = 16;   // pixels per cell
+    private static final int CHUNK_SIZE = 16384;      // fish per task
+    private static final int MAX_ALPHA = 170;         // most opaque cell
+
+    private final int width, height;     // size of the aquarium counted
+    private final int cellSize;          // width and height of a cell
+    private final int cols, rows;        // number of cells across and down
+    private final int refreshEvery;      // frames between recounts
+    private final BufferedImage overlay; // one pixel per cell
+    private int[] counts;                // fish per cell, as last counted
+    private int maxCount;                // largest count in counts
+    private long frames = 0;             // frames seen so far
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs a heatmap for an aquarium of the given size.
+     *  @param  width          width of the aquarium (in pixels)
+     *  @param  height         height of the aquarium (in pixels)
+     *  @param  cellSize       width and height of a grid cell (in pixels)
+     *  @param  refreshEvery   number of frames between recounts
+     **/
+    public DensityHeatmap(int width, int height, int cellSize,
+                          int refreshEvery)
+    {
+        if ( cellSize <= 0 || refreshEvery <= 0 )
+            throw new IllegalArgumentException(
+                "cell size and refresh interval must be positive");
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        this.cols = (width + cellSize - 1) / cellSize;
+        this.rows = (height + cellSize - 1) / cellSize;
+        this.refreshEvery = refreshEvery;
+        this.counts = new int[cols * rows];
+        this.overlay = new BufferedImage(cols, rows,
+                                         BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     *  Gets the number of fish in a cell, as of the last recount.
+     *  @param  col   column of the cell
+     *  @param  row   row of the cell
+     *  @return the number of fish centered in that cell
+     **/
+    public int count(int col, int row)
+    {
+        return counts[row * cols + col];
+    }
+
+    /**
+     *  Gets the largest number of fish in any one cell, as of the last
+     *  recount.
+     *  @return the largest count
+     **/
+    public int maxCount()
+    {
+        return maxCount;
+    }
+
+    /**
+     *  Counts the fish again if it is time to, then draws the overlay
+     *  stretched over the whole aquarium, scaled to the size it is drawn
+     *  at.
+     *  @param  fish    the fish being shown this frame
+     *  @param  g       where to draw
+     *  @param  width   width of the aquarium as drawn
+     *  @param  height  height of the aquarium as drawn
+     **/
+    public void drawFrame(AquaSnapshot fish, Graphics2D g,
+                          int width, int height)
+    {
+        if ( frames++ % refreshEvery == 0 )
+            recount(fish);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                           RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        // The last row and column of cells may reach past the aquarium's
+        // edges, so the grid is scaled by the same amount as the aquarium
+        // rather than stretched to exactly width by height.
+        int gridWidth = (int) Math.round((double) cols * cellSize * width
+                                         / this.width);
+        int gridHeight = (int) Math.round((double) rows * cellSize * height
+                                          / this.height);
+        g.drawImage(overlay, 0, 0, gridWidth, gridHeight, null);
+    }
+
+    /**
+     *  Counts the fish in each cell and rebuilds the overlay image.
+     *  @param  fish   the fish to count
+     **/
+    public void recount(AquaSnapshot fish)
+    {
+        // Count each chunk of fish into its own histogram, in parallel,
+        // then add the histograms together.
+        int n = fish.size();
+        int chunks = Math.max(1, (n + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        counts = IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> histogram(fish, c * CHUNK_SIZE,
+                                     Math.min(n, (c + 1) * CHUNK_SIZE)))
+            .reduce(DensityHeatmap::add)
+            .get();
+
+        // Shade each cell by its count, relative to the busiest cell.
+        // The square root keeps sparse cells visible next to crowded ones.
+        maxCount = 0;
+        for ( int c : counts )
+            maxCount = Math.max(maxCount, c);
+        int[] argb = new int[counts.length];
+        if ( maxCount > 0 )
+        {
+            double scale = MAX_ALPHA / Math.sqrt(maxCount);
+            for ( int i = 0; i < counts.length; i++ )
+            {
+                int alpha = (int) Math.round(Math.sqrt(counts[i]) * scale);
+                argb[i] = (alpha << 24) | 0xFF2000;
+            }
+        }
+        overlay.setRGB(0, 0, cols, rows, argb, 0, cols);
+    }
+
+    /**
+     *  Counts the fish with indices from..(to - 1) into a new histogram.
+     **/
+    private int[] histogram(AquaSnapshot fish, int from, int to)
+    {
+        int[] h = new int[cols * rows];
+        for ( int i = from; i < to; i++ )
+        {
+            int col = clamp(fish.xs[i] / cellSize, cols);
+            int row = clamp(fish.ys[i] / cellSize, rows);
+            h[row * cols + col]++;
+        }
+        return h;
+    }
+
+    /**
+     *  Adds one histogram into another.
+     *  @return the first histogram, now holding the sum
+     **/
+    private static int[] add(int[] a, int[] b)
+    {
+        for ( int i = 0; i < a.length; i++ )
+            a[i] += b[i];
+        return a;
+    }
+
+    /**
+     *  Restricts a cell coordinate to the range 0 .. (limit - 1).
+     **/
+    private static int clamp(int value, int limit)
+    {
+        if ( value < 0 )
+            return 0;
+        if ( value >= limit )
+            return limit - 1;
+        return value;
+    }
+
+}
@@ -0,0 +1,488 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The DistributedTank class runs one aquarium across several worker
+ *      processes (see {@link TankWorker}), for tanks too big for one.  The
+ *      tank is cut into bands of equal width along the x axis, and each
+ *      worker owns the fish whose centerpoints are in its band.  Fish only
+ *      swim sideways, so a fish leaves a band only by swimming across its
+ *      left or right edge.
+ * <br> <br>
+ *      The coordinator (this class) starts the workers on the same
+ *      machine, talks to each over a socket on the loopback address (see
+ *      {@link TankChannel}), and deals out the starting fish.  Every step
+ *      is a barrier: the coordinator sends each worker one message
+ *      holding the fish that have swum into its band, the workers all
+ *      move their fish at the same time, and each replies with one
+ *      message holding the fish that have swum out.  The coordinator
+ *      sorts those by band, ready for the next step.  A fish therefore
+ *      moves once a step, wherever it is.
+ * <br> <br>
+ *      For each step the coordinator measures the time taken by the
+ *      slowest worker to move its fish, and counts everything else (the
+ *      time to send, sort, and receive fish, and to wait for messages) as
+ *      the cost of communication.  It also counts the bytes exchanged and
+ *      the fish handed over.
+ * <br> <br>
+ *      Only swimming fish can be distributed: schooling and hunting fish
+ *      look at their neighbors, which may be in another band.  Each
+ *      worker draws its random moves from its own generator, so a
+ *      distributed run is repeatable for a given seed and number of
+ *      workers, but does not match a single-process run move for move.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see TankWorker
+ * @see TankChannel
+ **/
+public class DistributedTank implements AutoCloseable
+{
+    // STATE
+
+    public static final long CONNECT_TIMEOUT = 30000;    // milliseconds
+
+    private final int width, height;
+    private final int workers;
+    private final int[] bounds;          // band w is bounds[w] .. bounds[w+1]
+    private final List<Process> processes = new ArrayList<Process>();
+    private final TankChannel[] channels;
+    private final ByteBuffer[] arriving; // fish on their way to each band
+    private final int[] arrivingCount;
+    private final int[] fishKept;        // fish in each band, as reported
+    private long steps;
+    private long stepNanos, communicationNanos;
+    private long stepBytes;
+    private long handedOver;
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Starts the workers and deals out the fish of an aquarium among
+     *  them.  The aquarium itself is left as it is.
+     *  @param  aqua      the aquarium to distribute; its fish must all
+     *                    swim (see SwimBehavior)
+     *  @param  workers   the number of worker processes
+     *  @param  seed      seed for the workers' random number generators
+     *  @throws IOException if the workers cannot be started or reached
+     **/
+    public DistributedTank(Aquarium aqua, int workers, long seed)
+        throws IOException
+    {
+        if ( workers <= 0 || workers > aqua.width() )
+            throw new IllegalArgumentException("need between 1 and "
+                + aqua.width() + " workers");
+        for ( AquaFish fish : aqua.getFish() )
+            if ( fish.behavior() != SwimBehavior.INSTANCE )
+                throw new IllegalArgumentException(
+                    "only swimming fish can be distributed");
+        this.width = aqua.width();
+        this.height = aqua.height();
+        this.workers = workers;
+        this.bounds = new int[workers + 1];
+        for ( int w = 0; w <= workers; w++ )
+            bounds[w] = (int) ((long) width * w / workers);
+        this.channels = new TankChannel[workers];
+        this.arriving = new ByteBuffer[workers];
+        this.arrivingCount = new int[workers];
+        this.fishKept = new int[workers];
+        for ( int w = 0; w < workers; w++ )
+            arriving[w] = ByteBuffer.allocate(1 << 12);
+
+        try
+        {
+            connect();
+            deal(aqua, seed);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     *  Runs a distributed simulation as described by the configuration and
+     *  prints how fast it ran and what communication cost.
+     *  @param  config   the settings for the run
+     *  @throws IOException if the workers cannot be started or reached
+     **/
+    public static void run(SimulationConfig config) throws IOException
+    {
+        Aquarium aqua = config.buildAquarium();
+        int startingFish = aqua.getFish().size();
+        long seed = (config.seed() != null) ? config.seed()
+                                            : System.nanoTime();
+        long start = System.nanoTime();
+        try ( DistributedTank tank =
+                  new DistributedTank(aqua, config.workers(), seed) )
+        {
+            long setUp = System.nanoTime() - start;
+            for ( int step = 1; step <= config.numSteps(); step++ )
+                tank.step();
+            List<AquaFish> fish = tank.gather(aqua);
+            long elapsed = System.nanoTime() - start - setUp;
+
+            double seconds = elapsed / 1e9;
+            int steps = config.numSteps();
+            int perStep = Math.max(1, steps);
+            System.out.printf("%d x %d aquarium, %d fish, %d steps, "
+                              + "%d worker processes%n",
+                              aqua.width(), aqua.height(), startingFish,
+                              steps, config.workers());
+            System.out.printf("set up %.3f s; elapsed %.3f s: %.1f steps/s, "
+                              + "%.3g fish-steps/s%n",
+                              setUp / 1e9, seconds, steps / seconds,
+                              (double) startingFish * steps / seconds);
+            System.out.printf("per step: stepping %.3f ms (slowest worker), "
+                              + "communication %.3f ms, %.1f KB, "
+                              + "%.1f fish handed over%n",
+                              tank.stepNanos() / 1e6 / perStep,
+                              tank.communicationNanos() / 1e6 / perStep,
+                              tank.bytesExchanged() / 1024.0 / perStep,
+                              (double) tank.fishHandedOver() / perStep);
+            int[] ids = new int[fish.size()];
+            for ( int i = 0; i < ids.length; i++ )
+                ids[i] = fish.get(i).id();
+            Arrays.sort(ids);
+            int unique = (ids.length == 0) ? 0 : 1;
+            for ( int i = 1; i < ids.length; i++ )
+                if ( ids[i] != ids[i - 1] )
+                    unique++;
+            System.out.printf("%d fish at end (%d different IDs), "
+                              + "checksum %016x%n",
+                              fish.size(), unique, checksum(fish));
+            if ( fish.size() != startingFish || unique != startingFish )
+                throw new IllegalStateException("fish were lost or copied");
+        }
+    }
+
+    /**
+     *  Moves every fish in the tank for one time step, and hands the fish
+     *  that have left their bands on to their new ones.
+     *  @throws IOException if a worker cannot be reached
+     **/
+    public void step() throws IOException
+    {
+        exchange(1);
+    }
+
+    /**
+     *  Gets every fish in the tank, as new fish in the given aquarium
+     *  (which they are not added to), in order of band.  Fish still on
+     *  their way to a new band are delivered first.
+     *  @param  aqua   the aquarium to make the fish in; it should be the
+     *                 size of the tank
+     *  @return the fish
+     *  @throws IOException if a worker cannot be reached
+     **/
+    public List<AquaFish> gather(Aquarium aqua) throws IOException
+    {
+        exchange(0);
+        List<AquaFish> all = new ArrayList<AquaFish>();
+        for ( int w = 0; w < workers; w++ )
+            channels[w].send(TankChannel.GATHER);
+        for ( int w = 0; w < workers; w++ )
+        {
+            List<AquaFish> fish = TankChannel.takeFish(
+                channels[w].receive(TankChannel.FISH), aqua);
+            for ( AquaFish f : fish )
+                if ( owner(f.xCoord()) != w )
+                    throw new IllegalStateException("fish " + f.id()
+                        + " at x = " + f.xCoord() + " is in band " + w);
+            all.addAll(fish);
+        }
+        return all;
+    }
+
+    /**
+     *  Gets the number of steps taken.
+     *  @return    the number of steps
+     **/
+    public long steps()
+    {
+        return steps;
+    }
+
+    /**
+     *  Gets the time spent moving fish, counting for each step the time
+     *  taken by the slowest worker.
+     *  @return    the time, in nanoseconds
+     **/
+    public long stepNanos()
+    {
+        return stepNanos;
+    }
+
+    /**
+     *  Gets the time each step took beyond the slowest worker's moving
+     *  of its fish: the cost of the messages and of waiting for them.
+     *  @return    the time, in nanoseconds
+     **/
+    public long communicationNanos()
+    {
+        return communicationNanos;
+    }
+
+    /**
+     *  Gets the number of bytes sent to and received from the workers
+     *  during steps (not counting the starting fish or gathering).
+     *  @return    the number of bytes
+     **/
+    public long bytesExchanged()
+    {
+        return stepBytes;
+    }
+
+    /**
+     *  Gets the number of times a fish has swum from one band to another.
+     *  @return    the number of fish handed over
+     **/
+    public long fishHandedOver()
+    {
+        return handedOver;
+    }
+
+    /**
+     *  Gets the number of fish in a band, as of the last step.
+     *  @param  band   the band (worker number)
+     *  @return    the number of fish the worker kept
+     **/
+    public int fishIn(int band)
+    {
+        return fishKept[band];
+    }
+
+    /**
+     *  Stops the workers and closes the connections.
+     **/
+    public void close()
+    {
+        for ( TankChannel c : channels )
+            if ( c != null )
+                try
+                {
+                    c.send(TankChannel.STOP);
+                    c.close();
+                }
+                catch (IOException e)
+                {
+                    // The worker has gone already.
+                }
+        for ( int w = 0; w < processes.size(); w++ )
+        {
+            // A worker that never connected is not waiting for STOP.
+            Process p = processes.get(w);
+            if ( channels[w] == null )
+                p.destroy();
+            try
+            {
+                if ( ! p.waitFor(10, TimeUnit.SECONDS) )
+                    p.destroyForcibly();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                p.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     *  Mixes the IDs, positions, and directions of a set of fish into one
+     *  number, regardless of their order, so that runs can be compared.
+     *  @param  fish   the fish
+     *  @return the checksum
+     **/
+    public static long checksum(List<AquaFish> fish)
+    {
+        long sum = 0;
+        for ( AquaFish f : fish )
+        {
+            long h = f.id();
+            h = h * 0x9E3779B97F4A7C15L + f.xCoord();
+            h = h * 0x9E3779B97F4A7C15L + f.yCoord();
+            h = h * 0x9E3779B97F4A7C15L + (f.isFacingRight() ? 1 : 0);
+            sum += h ^ (h >>> 29);
+        }
+        return sum;
+    }
+
+    /**
+     *  Starts the worker processes and waits for each to connect.
+     **/
+    private void connect() throws IOException
+    {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try ( ServerSocketChannel server = ServerSocketChannel.open() )
+        {
+            server.bind(new InetSocketAddress(loopback, 0), workers);
+            String port = "" + server.socket().getLocalPort();
+            String java = Paths.get(System.getProperty("java.home"),
+                                    "bin", "java").toString();
+            for ( int w = 0; w < workers; w++ )
+                processes.add(new ProcessBuilder(java, "-cp",
+                        System.getProperty("java.class.path"), "TankWorker",
+                        loopback.getHostAddress(), port, "" + w)
+                    .inheritIO().start());
+
+            // Accept connections until every worker has said hello,
+            // giving up if a worker dies or takes too long.
+            server.configureBlocking(false);
+            long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+            for ( int connected = 0; connected < workers; )
+            {
+                SocketChannel socket = server.accept();
+                if ( socket == null )
+                {
+                    for ( Process p : processes )
+                        if ( ! p.isAlive() )
+                            throw new IOException("a worker failed to start");
+                    if ( System.currentTimeMillis() > deadline )
+                        throw new IOException("workers did not connect");
+                    sleep(5);
+                    continue;
+                }
+                TankChannel channel = new TankChannel(socket);
+                int w = channel.receive(TankChannel.HELLO).getInt();
+                if ( w < 0 || w >= workers || channels[w] != null )
+                    throw new IOException("unexpected worker " + w);
+                channels[w] = channel;
+                connected++;
+            }
+        }
+    }
+
+    /**
+     *  Sends each worker its band and the fish in it.
+     **/
+    private void deal(Aquarium aqua, long seed) throws IOException
+    {
+        List<List<AquaFish>> bands = new ArrayList<List<AquaFish>>();
+        for ( int w = 0; w < workers; w++ )
+            bands.add(new ArrayList<AquaFish>());
+        for ( AquaFish fish : aqua.getFish() )
+            bands.get(owner(fish.xCoord())).add(fish);
+        for ( int w = 0; w < workers; w++ )
+        {
+            List<AquaFish> fish = bands.get(w);
+            channels[w].start(TankChannel.SETUP, 24).putInt(width)
+                .putInt(height).putInt(bounds[w]).putInt(bounds[w + 1])
+                .putLong(seed);
+            channels[w].putFish(fish, 0, fish.size());
+            channels[w].send();
+            fishKept[w] = fish.size();
+        }
+    }
+
+    /**
+     *  Sends every worker the fish that have arrived in its band, asking
+     *  it to take some number of steps, and sorts the fish that leave.
+     **/
+    private void exchange(int stepsToTake) throws IOException
+    {
+        long start = System.nanoTime();
+        long bytesBefore = totalBytes();
+        for ( int w = 0; w < workers; w++ )
+        {
+            ByteBuffer fish = arriving[w];
+            fish.flip();
+            ByteBuffer out = channels[w].start(TankChannel.STEP,
+                                               8 + fish.remaining());
+            out.putInt(stepsToTake).putInt(arrivingCount[w]).put(fish);
+            channels[w].send();
+            fish.clear();
+            arrivingCount[w] = 0;
+        }
+
+        long slowest = 0;
+        for ( int w = 0; w < workers; w++ )
+        {
+            ByteBuffer in = channels[w].receive(TankChannel.REPORT);
+            slowest = Math.max(slowest, in.getLong());
+            fishKept[w] = in.getInt();
+            int count = in.getInt();
+            handedOver += count;
+            for ( int i = 0; i < count; i++ )
+            {
+                // Copy each fish's bytes as they are to the band its x
+                // coordinate (the third number) falls in.
+                int to = owner(in.getInt(in.position() + 8));
+                if ( arriving[to].remaining() < TankChannel.FISH_BYTES )
+                    arriving[to] = grow(arriving[to]);
+                int end = in.position() + TankChannel.FISH_BYTES;
+                arriving[to].put(in.duplicate().limit(end));
+                in.position(end);
+                arrivingCount[to]++;
+            }
+        }
+        if ( stepsToTake > 0 )
+        {
+            steps += stepsToTake;
+            stepNanos += slowest;
+            communicationNanos += System.nanoTime() - start - slowest;
+            stepBytes += totalBytes() - bytesBefore;
+        }
+    }
+
+    /**
+     *  Counts the bytes sent and received over every channel.
+     **/
+    private long totalBytes()
+    {
+        long bytes = 0;
+        for ( TankChannel c : channels )
+            bytes += c.bytesSent() + c.bytesReceived();
+        return bytes;
+    }
+
+    /**
+     *  Finds which band an x coordinate is in.
+     **/
+    private int owner(int x)
+    {
+        int w = Arrays.binarySearch(bounds, x);
+        if ( w < 0 )
+            w = -w - 2;
+        return Math.max(0, Math.min(workers - 1, w));
+    }
+
+    /**
+     *  Doubles the size of a buffer, keeping what is in it.
+     **/
+    private static ByteBuffer grow(ByteBuffer buffer)
+    {
+        buffer.flip();
+        return ByteBuffer.allocate(2 * buffer.capacity()).put(buffer);
+    }
+
+    /**
+     *  Waits a little while.
+     **/
+    private static void sleep(long millis) throws IOException
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        }
+    }
+
+}
@@ -0,0 +1,847 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The EngineCheck class makes sure that every way of stepping an
+ *      aquarium (every <i>engine</i>) moves the fish exactly as the
+ *      original rules say they should.  Faster engines skip work, cache
+ *      results, or reorganize loops, and any of that can quietly change
+ *      where a fish ends up.
+ * <br> <br>
+ *      The check compares each engine against a reference: a deliberately
+ *      plain model of the original rules, one object per fish, that works
+ *      out each fish's distance to the wall from scratch every time (as
+ *      NavigationalAide first did), turns a fish around when that distance
+ *      is at most AquaFish.MIN_DISTANCE, and moves it forward by a random
+ *      10 to 70 pixels, stopping at the wall.  Each trial picks a random
+ *      tank size, number of fish, and number of steps, and places the fish
+ *      at random, many of them right against or close to a wall, facing
+ *      either way.  Every engine and the reference start from the same
+ *      fish and the same random seed, and after every step every fish must
+ *      have the same ID, position, and direction in all of them.
+ *      Run it from the command line:
+ *      <pre>
+ *      java EngineCheck [trials] [seed]
+ *      </pre>
+ *      It prints the first difference it finds and exits with status 1,
+ *      or prints how much it checked.  A new engine is added by giving it
+ *      a name in ENGINES and saying how it steps in stepper.  An engine
+ *      named "name/K" takes K steps at a time, and is compared with the
+ *      reference every K steps; an engine that publishes snapshots (see
+ *      Simulation) has those compared too.
+ * <br> <br>
+ *      Schooling fish steer by their neighbors, which the reference does
+ *      not model, and SchoolingBehavior works the steering out on several
+ *      threads at once.  So each trial also runs a school (of up to
+ *      MAX_SCHOOL fish, enough for several parallel chunks) twice from the
+ *      same fish and seed, once on one thread and once on SCHOOL_THREADS,
+ *      and after every step every fish must be the same in both.  Before the
+ *      school moves, SpatialGrid must find for some of its fish the same
+ *      nearest neighbors (by distance) that a search of every fish finds.
+ *      And once, after the trials, a large school in a full-HD tank swims
+ *      for DRIFT_STEPS steps, and its average depth must move by at most
+ *      MAX_DRIFT of the tank's height: the steering must not pull schools
+ *      up or down.
+ * <br> <br>
+ *      Each trial also checks the parts that work from a grid or a
+ *      file rather than from the fish themselves: predators eating with
+ *      PredatorBehavior's grid must eat exactly the fish that a search of
+ *      every fish says they eat; and a run recorded by ReplayWriter must
+ *      read back step by step, and by seeking to steps in any order, as
+ *      it was recorded, as must the steps kept by AquaHistory.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see BehaviorScheduler
+ * @see NavigationalAide
+ **/
+public class EngineCheck
+{
+    // STATE
+
+    /** The engines checked: see stepper. **/
+    static final String[] ENGINES =
+        { "move", "scheduler", "scheduler+stats", "scheduler+events",
+          "simulation", "simulation/4" };
+
+    private static final int MAX_WIDTH = 3000;
+    private static final int MAX_HEIGHT = 1000;
+    private static final int MAX_FISH = 2000;
+    private static final int MAX_STEPS = 200;
+    private static final int MAX_SCHOOL = 4 * SchoolingBehavior.CHUNK_SIZE;
+    private static final int MAX_SCHOOL_STEPS = 50;
+    private static final int SCHOOL_THREADS = 4;
+    private static final int NEIGHBOR_QUERIES = 200;
+    private static final int DRIFT_FISH = 5000;
+    private static final int DRIFT_STEPS = 200;
+    private static final double MAX_DRIFT = 0.02;
+    private static final int MAX_PREDATOR_TANK = 600;
+    private static final int MAX_PREDATOR_STEPS = 20;
+    private static final int MAX_KEYFRAME_EVERY = 20;
+    private static final int MAX_HISTORY = 50;
+
+    // OPERATIONS
+
+    /**
+     *  Runs the check.
+     *  @param  args   optional number of trials and random seed
+     **/
+    public static void main(String[] args)
+    {
+        int trials = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+        long seed = (args.length > 1) ? Long.parseLong(args[1])
+                                       : System.nanoTime();
+        Random random = new Random(seed);
+        long fishSteps = 0;
+        long schoolSteps = 0;
+        long predatorSteps = 0;
+        long recordedSteps = 0;
+        for ( int trial = 1; trial <= trials; trial++ )
+        {
+            int width = AquaFish.MAX_LENGTH + 21
+                        + random.nextInt(MAX_WIDTH - AquaFish.MAX_LENGTH);
+            int height = 51 + random.nextInt(MAX_HEIGHT);
+            int fish = random.nextInt(MAX_FISH + 1);
+            int steps = 1 + random.nextInt(MAX_STEPS);
+            int firstId = 1 + random.nextInt(1000);
+            long runSeed = random.nextLong();
+            String problem = check(width, height, fish, steps, firstId,
+                                   runSeed, random);
+            if ( problem == null )
+            {
+                fishSteps += (long) fish * steps;
+                fish = random.nextInt(MAX_SCHOOL + 1);
+                steps = 1 + random.nextInt(MAX_SCHOOL_STEPS);
+                runSeed = random.nextLong();
+                problem = checkSchool(width, height, fish, steps, firstId,
+                                      runSeed, random);
+                schoolSteps += (long) fish * steps;
+            }
+            if ( problem == null )
+                problem = checkNeighbors(width, height, fish, firstId,
+                                         random);
+            if ( problem == null )
+            {
+                fish = random.nextInt(MAX_FISH + 1);
+                steps = 1 + random.nextInt(MAX_PREDATOR_STEPS);
+                problem = checkPredators(fish, steps, firstId,
+                                         random.nextLong(), random);
+                predatorSteps += steps;
+            }
+            if ( problem == null )
+            {
+                fish = random.nextInt(MAX_FISH + 1);
+                steps = 1 + random.nextInt(MAX_STEPS);
+                problem = checkRecording(width, height, fish, steps, firstId,
+                                         random.nextLong(), random);
+                recordedSteps += steps;
+            }
+            if ( problem != null )
+            {
+                System.out.printf("trial %d (java EngineCheck %d %d): "
+                                  + "%d x %d tank, %d fish, %d steps%n%s%n",
+                                  trial, trials, seed, width, height, fish,
+                                  steps, problem);
+                System.exit(1);
+            }
+        }
+        System.out.printf("%d trials (seed %d), %d fish-steps: %d engines "
+                          + "match the reference%n",
+                          trials, seed, fishSteps, ENGINES.length);
+        System.out.printf("%d schooling fish-steps: 1 and %d threads "
+                          + "agree%n", schoolSteps, SCHOOL_THREADS);
+        System.out.printf("%d predator steps: the grid eats what a search "
+                          + "of every fish eats%n", predatorSteps);
+        System.out.printf("%d recorded steps: replays, seeks, and the "
+                          + "history match the run%n", recordedSteps);
+
+        String problem = checkDrift(seed);
+        if ( problem != null )
+        {
+            System.out.println(problem);
+            System.exit(1);
+        }
+    }
+
+    /**
+     *  Runs one trial: places fish at random, then steps them in every
+     *  engine and in the reference, comparing after every step.
+     *  @return a description of the first difference, or null if there
+     *          is none
+     **/
+    static String check(int width, int height, int numFish, int steps,
+                        int firstId, long runSeed, Random random)
+    {
+        // Choose where the fish start.
+        RefFish[] expected = new RefFish[numFish];
+        for ( int i = 0; i < numFish; i++ )
+            expected[i] = new RefFish(firstId + i, width, height, random);
+
+        // Give every engine its own aquarium holding the same fish.
+        Aquarium[] tanks = new Aquarium[ENGINES.length];
+        Stepper[] steppers = new Stepper[ENGINES.length];
+        int[] stepsPerCall = new int[ENGINES.length];
+        for ( int e = 0; e < ENGINES.length; e++ )
+        {
+            int slash = ENGINES[e].indexOf('/');
+            stepsPerCall[e] = (slash < 0) ? 1
+                : Integer.parseInt(ENGINES[e].substring(slash + 1));
+            tanks[e] = new Aquarium(width, height, runSeed);
+            for ( RefFish f : expected )
+                tanks[e].add(AquaFish.placeFish(tanks[e], f.id, 0xFFFFFF,
+                                                f.x, f.y, f.facingRight));
+            steppers[e] = stepper(ENGINES[e], tanks[e]);
+        }
+
+        try
+        {
+            Random moves = new Random(runSeed);
+            for ( int step = 1; step <= steps; step++ )
+            {
+                for ( RefFish f : expected )
+                    f.move(moves);
+                for ( int e = 0; e < ENGINES.length; e++ )
+                {
+                    if ( step % stepsPerCall[e] != 0 )
+                        continue;
+                    steppers[e].step();
+                    String problem = compare(expected, tanks[e].getFish());
+                    AquaSnapshot shown = steppers[e].shown();
+                    if ( problem == null && shown != null )
+                        problem = compare(expected, shown, step);
+                    if ( problem != null )
+                        return ENGINES[e] + ", step " + step + ": " + problem;
+                }
+            }
+            return null;
+        }
+        finally
+        {
+            for ( Aquarium tank : tanks )
+                if ( tank.eventBus() != null )
+                    tank.eventBus().close();
+        }
+    }
+
+    /**
+     *  Runs one schooling trial: places fish at random, then steps them
+     *  as a school on one thread and on SCHOOL_THREADS, comparing after
+     *  every step.
+     *  @return a description of the first difference, or null if there
+     *          is none
+     **/
+    static String checkSchool(int width, int height, int numFish, int steps,
+                              int firstId, long runSeed, Random random)
+    {
+        RefFish[] start = new RefFish[numFish];
+        for ( int i = 0; i < numFish; i++ )
+            start[i] = new RefFish(firstId + i, width, height, random);
+
+        // The parallel steering uses the pool the step runs in.
+        ForkJoinPool[] pools = { new ForkJoinPool(1),
+                                 new ForkJoinPool(SCHOOL_THREADS) };
+        Aquarium[] tanks = new Aquarium[pools.length];
+        BehaviorScheduler[] schedulers = new BehaviorScheduler[pools.length];
+        for ( int t = 0; t < pools.length; t++ )
+        {
+            tanks[t] = new Aquarium(width, height, runSeed);
+            SchoolingBehavior school = new SchoolingBehavior();
+            for ( RefFish f : start )
+            {
+                AquaFish fish = AquaFish.placeFish(tanks[t], f.id, 0xFFFFFF,
+                                                   f.x, f.y, f.facingRight);
+                fish.setBehavior(school);
+                tanks[t].add(fish);
+            }
+            schedulers[t] = new BehaviorScheduler(tanks[t]);
+        }
+
+        try
+        {
+            for ( int step = 1; step <= steps; step++ )
+            {
+                for ( int t = 0; t < pools.length; t++ )
+                    pools[t].invoke(ForkJoinTask.adapt(schedulers[t]::step));
+                String problem = compare(tanks[0].getFish(),
+                                         tanks[1].getFish());
+                if ( problem != null )
+                    return "school on " + SCHOOL_THREADS + " threads, step "
+                           + step + ": " + problem;
+            }
+            return null;
+        }
+        finally
+        {
+            for ( ForkJoinPool pool : pools )
+                pool.shutdown();
+        }
+    }
+
+    /**
+     *  Places fish at random and checks, for some of them, that the
+     *  schooling grid finds neighbors as near as the nearest found by
+     *  looking at every fish.  (Fish at the same distance may be chosen
+     *  either way, so only the distances are compared.)
+     *  @return a description of the first difference, or null if there
+     *          is none
+     **/
+    static String checkNeighbors(int width, int height, int numFish,
+                                 int firstId, Random random)
+    {
+        Aquarium aqua = new Aquarium(width, height, 0);
+        for ( int i = 0; i < numFish; i++ )
+        {
+            RefFish f = new RefFish(firstId + i, width, height, random);
+            aqua.add(AquaFish.placeFish(aqua, f.id, 0xFFFFFF, f.x, f.y,
+                                        f.facingRight));
+        }
+        int radius = SchoolingBehavior.DEFAULT_RADIUS;
+        int max = SchoolingBehavior.DEFAULT_MAX_NEIGHBORS;
+        SpatialGrid grid = new SpatialGrid(width, height,
+            SchoolingBehavior.cellSizeFor(width, height, numFish, radius,
+                                          max));
+        grid.build(aqua.getFish());
+
+        int[] found = new int[max];
+        long[] distances = new long[max];
+        long[] all = new long[numFish];
+        for ( int q = 0; q < Math.min(numFish, NEIGHBOR_QUERIES); q++ )
+        {
+            int i = random.nextInt(numFish);
+            int x = grid.x(i);
+            int y = grid.y(i);
+            int count = grid.neighbors(x, y, radius, i, found, max);
+            long[] actual = new long[count];
+            for ( int k = 0; k < count; k++ )
+                actual[k] = distanceSq(x, y, grid.x(found[k]),
+                                       grid.y(found[k]));
+            int within = 0;
+            for ( int j = 0; j < numFish; j++ )
+            {
+                long d = distanceSq(x, y, grid.x(j), grid.y(j));
+                if ( j != i && d <= (long) radius * radius )
+                    all[within++] = d;
+            }
+            Arrays.sort(actual);
+            Arrays.sort(all, 0, within);
+            long[] expected = Arrays.copyOf(all, Math.min(within, max));
+            if ( ! Arrays.equals(actual, expected) )
+                return "neighbors of fish " + i + " at (" + x + ", " + y
+                       + "): squared distances " + Arrays.toString(actual)
+                       + "; expected " + Arrays.toString(expected);
+        }
+        return null;
+    }
+
+    /**
+     *  Works out the square of the distance between two points.
+     **/
+    private static long distanceSq(int x1, int y1, int x2, int y2)
+    {
+        long dx = x1 - x2;
+        long dy = y1 - y2;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     *  Lets a large school swim in a full-HD tank and checks that its
+     *  average depth stays put.
+     *  @return a description of the drift, or null if it is small enough
+     **/
+    static String checkDrift(long seed)
+    {
+        Aquarium aqua = new Aquarium(1920, 1080, seed);
+        aqua.addAll(AquaFish.createFish(aqua, DRIFT_FISH, 0xFFFFFF));
+        SchoolingBehavior school = new SchoolingBehavior();
+        for ( AquaFish fish : aqua.getFish() )
+            fish.setBehavior(school);
+        BehaviorScheduler scheduler = new BehaviorScheduler(aqua);
+
+        double before = meanDepth(aqua.getFish());
+        for ( int step = 0; step < DRIFT_STEPS; step++ )
+            scheduler.step();
+        double after = meanDepth(aqua.getFish());
+        double limit = MAX_DRIFT * aqua.height();
+        System.out.printf("school of %d: mean depth %.1f, after %d steps "
+                          + "%.1f%n", DRIFT_FISH, before, DRIFT_STEPS, after);
+        if ( Math.abs(after - before) > limit )
+            return String.format("school of %d drifted from mean depth %.1f "
+                                 + "to %.1f in %d steps (limit %.1f)",
+                                 DRIFT_FISH, before, after, DRIFT_STEPS,
+                                 limit);
+        return null;
+    }
+
+    /**
+     *  Works out the average y coordinate of some fish.
+     **/
+    private static double meanDepth(List<AquaFish> fish)
+    {
+        long sum = 0;
+        for ( AquaFish f : fish )
+            sum += f.yCoord();
+        return sum / (double) Math.max(1, fish.size());
+    }
+
+    /**
+     *  Runs one predator trial: places fish at random in a small tank, so
+     *  that many are within reach of each other, and makes some of them
+     *  predators.  Each step, one copy of the tank lets the predators eat
+     *  with PredatorBehavior.moveAll, which looks for prey in its grid,
+     *  and the other moves the same predators the same way and then, for
+     *  each one in turn, looks through every fish for the first it can
+     *  eat.  The same fish must be eaten in both.
+     *  @return a description of the first difference, or null if there
+     *          is none
+     **/
+    static String checkPredators(int numFish, int steps, int firstId,
+                                 long runSeed, Random random)
+    {
+        int width = AquaFish.MAX_LENGTH + 21
+                    + random.nextInt(MAX_PREDATOR_TANK);
+        int height = 51 + random.nextInt(MAX_PREDATOR_TANK / 2);
+        int reach = random.nextInt(2 * PredatorBehavior.DEFAULT_REACH + 1);
+        boolean[] hunts = new boolean[numFish];
+        Aquarium[] tanks = { new Aquarium(width, height, runSeed),
+                             new Aquarium(width, height, runSeed) };
+        for ( int i = 0; i < numFish; i++ )
+        {
+            RefFish f = new RefFish(firstId + i, width, height, random);
+            hunts[i] = random.nextInt(3) == 0;
+            for ( Aquarium tank : tanks )
+                tank.add(AquaFish.placeFish(tank, f.id, 0xFFFFFF, f.x, f.y,
+                                            f.facingRight));
+        }
+        PredatorBehavior hunting = new PredatorBehavior(reach);
+
+        for ( int step = 1; step <= steps; step++ )
+        {
+            List<AquaFish> grid = tanks[0].getFish();
+            List<AquaFish> search = tanks[1].getFish();
+            List<AquaFish> predators = new ArrayList<AquaFish>();
+            List<AquaFish> searchers = new ArrayList<AquaFish>();
+            for ( int i = 0; i < grid.size(); i++ )
+                if ( hunts[grid.get(i).id() - firstId] )
+                {
+                    predators.add(grid.get(i));
+                    searchers.add(search.get(i));
+                }
+            hunting.moveAll(predators);
+
+            // Move the predators as moveAll does, then let each one that
+            // has not been eaten eat the first fish it can.
+            for ( AquaFish predator : searchers )
+            {
+                if ( predator.atWall() )
+                    predator.changeDir();
+                predator.moveForward();
+            }
+            for ( AquaFish predator : searchers )
+            {
+                if ( predator.isEaten() )
+                    continue;
+                for ( AquaFish prey : search )
+                    if ( canEat(predator, prey, reach) )
+                    {
+                        prey.markEaten();
+                        break;
+                    }
+            }
+
+            String problem = compare(search, grid);
+            for ( int i = 0; problem == null && i < grid.size(); i++ )
+                if ( grid.get(i).isEaten() != search.get(i).isEaten() )
+                    problem = "fish " + i + " is " + grid.get(i)
+                              + (grid.get(i).isEaten()
+                                 ? "eaten by the grid but not the search"
+                                 : "eaten by the search but not the grid");
+            if ( problem != null )
+                return "predators (reach " + reach + ") in a " + width
+                       + " x " + height + " tank, step " + step + ": "
+                       + problem;
+            for ( Aquarium tank : tanks )
+                tank.removeEatenFish();
+        }
+        return null;
+    }
+
+    /**
+     *  Determines whether a predator can eat a fish, as the rules say: the
+     *  fish must be smaller, not yet eaten, and close enough that the two
+     *  overlap once the predator's reach is added in.
+     **/
+    private static boolean canEat(AquaFish predator, AquaFish prey, int reach)
+    {
+        return prey.length() < predator.length() && ! prey.isEaten()
+            && Math.abs(prey.xCoord() - predator.xCoord())
+                   <= (predator.length() + prey.length()) / 2 + reach
+            && Math.abs(prey.yCoord() - predator.yCoord())
+                   <= (predator.height() + prey.height()) / 2;
+    }
+
+    /**
+     *  Runs one recording trial: places fish at random (some of them
+     *  predators, so that fish disappear during the run), steps them,
+     *  and records every step both to a replay file and in an AquaHistory,
+     *  keeping a snapshot of each step to compare with.  Then the file is
+     *  read back step by step, and again by seeking to steps chosen at
+     *  random, and every step the history still keeps is recalled.
+     *  @return a description of the first difference, or null if there
+     *          is none
+     **/
+    static String checkRecording(int width, int height, int numFish,
+                                 int steps, int firstId, long runSeed,
+                                 Random random)
+    {
+        Aquarium aqua = new Aquarium(width, height, runSeed);
+        PredatorBehavior hunting = new PredatorBehavior();
+        for ( int i = 0; i < numFish; i++ )
+        {
+            RefFish f = new RefFish(firstId + i, width, height, random);
+            AquaFish fish = AquaFish.placeFish(aqua, f.id, 0xFFFFFF, f.x, f.y,
+                                               f.facingRight);
+            if ( random.nextInt(10) == 0 )
+                fish.setBehavior(hunting);
+            aqua.add(fish);
+        }
+        BehaviorScheduler scheduler = new BehaviorScheduler(aqua);
+        int keyframeEvery = 1 + random.nextInt(MAX_KEYFRAME_EVERY);
+        AquaHistory history = new AquaHistory(1 + random.nextInt(MAX_HISTORY),
+                                              random.nextInt(numFish + 1));
+        String setting = "recording (keyframe every " + keyframeEvery
+                         + ", history of " + history.capacity() + "): ";
+
+        AquaSnapshot[] expected = new AquaSnapshot[steps + 1];
+        File file = null;
+        try
+        {
+            file = File.createTempFile("enginecheck", ".aqr");
+            try ( ReplayWriter writer = new ReplayWriter(file, width, height,
+                                                         keyframeEvery) )
+            {
+                for ( int step = 0; step <= steps; step++ )
+                {
+                    if ( step > 0 )
+                        scheduler.step();
+                    expected[step] = new AquaSnapshot();
+                    expected[step].capture(aqua, step);
+                    writer.writeStep(aqua, step);
+                    history.record(aqua, step);
+                }
+            }
+
+            try ( ReplayReader reader = new ReplayReader(file) )
+            {
+                for ( int step = 0; step <= steps; step++ )
+                {
+                    String problem = reader.next()
+                        ? compare(expected[step], reader.current())
+                        : "recording ends";
+                    if ( problem != null )
+                        return setting + "reading step " + step + ": "
+                               + problem;
+                }
+                if ( reader.next() )
+                    return setting + "a step after the last, "
+                           + reader.current().step();
+                for ( int k = 0; k <= steps; k++ )
+                {
+                    int step = random.nextInt(steps + 1);
+                    reader.seek(step);
+                    String problem = compare(expected[step],
+                                             reader.current());
+                    if ( problem != null )
+                        return setting + "seeking step " + step + ": "
+                               + problem;
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            return setting + e;
+        }
+        finally
+        {
+            if ( file != null )
+                file.delete();
+        }
+
+        AquaSnapshot recalled = new AquaSnapshot();
+        if ( history.size() != Math.min(steps + 1, history.capacity()) )
+            return setting + "history keeps " + history.size() + " steps";
+        for ( int back = 0; back < history.size(); back++ )
+        {
+            history.recall(back, recalled);
+            String problem = compare(expected[steps - back], recalled);
+            if ( problem != null )
+                return setting + "recalling " + back + " steps back: "
+                       + problem;
+        }
+        return null;
+    }
+
+    /**
+     *  Says how an engine steps an aquarium, setting the aquarium up for
+     *  it first if need be.
+     *  @param  engine   the engine's name (see ENGINES)
+     *  @param  aqua     the aquarium, holding the starting fish
+     *  @return something that moves every fish one step (or K steps, for
+     *          an engine named "name/K")
+     **/
+    static Stepper stepper(String engine, Aquarium aqua)
+    {
+        switch ( engine )
+        {
+            case "move":
+                // Each fish moves itself, in order.
+                return () -> {
+                    for ( AquaFish fish : aqua.getFish() )
+                        fish.move();
+                };
+            case "scheduler":
+                return new BehaviorScheduler(aqua)::step;
+            case "scheduler+stats":
+                // Statistics make changeDir work out whether the fish is
+                // at a wall, and moveForward report each move.
+                aqua.setStats(new AquaStats());
+                return new BehaviorScheduler(aqua)::step;
+            case "scheduler+events":
+                aqua.setEventBus(new AquaEventBus(1024,
+                    AquaEventBus.Policy.OVERWRITE_OLDEST));
+                return new BehaviorScheduler(aqua)::step;
+            case "simulation":
+            case "simulation/4":
+                // Steps a batch at a time, publishing a snapshot at the
+                // end of each.
+                Simulation simulation = new Simulation(aqua);
+                simulation.setBatchSize(engine.equals("simulation") ? 1 : 4);
+                return new Stepper()
+                    {
+                        public void step()
+                        {
+                            simulation.step();
+                        }
+                        public AquaSnapshot shown()
+                        {
+                            return simulation.getAllFish();
+                        }
+                    };
+            default:
+                throw new IllegalArgumentException("unknown engine: "
+                                                   + engine);
+        }
+    }
+
+    /**
+     *  Compares every fish in an engine's aquarium with the reference.
+     *  @return a description of the first difference, or null
+     **/
+    private static String compare(RefFish[] expected, List<AquaFish> actual)
+    {
+        if ( actual.size() != expected.length )
+            return actual.size() + " fish, expected " + expected.length;
+        for ( int i = 0; i < expected.length; i++ )
+        {
+            RefFish e = expected[i];
+            AquaFish a = actual.get(i);
+            if ( a.id() != e.id || a.xCoord() != e.x || a.yCoord() != e.y
+                    || a.isFacingRight() != e.facingRight )
+                return "fish " + i + " is " + a + "; expected " + e;
+        }
+        return null;
+    }
+
+    /**
+     *  Compares every fish in one aquarium with those in another that
+     *  should be the same.
+     *  @return a description of the first difference, or null
+     **/
+    private static String compare(List<AquaFish> expected,
+                                  List<AquaFish> actual)
+    {
+        if ( actual.size() != expected.size() )
+            return actual.size() + " fish, expected " + expected.size();
+        for ( int i = 0; i < expected.size(); i++ )
+        {
+            AquaFish e = expected.get(i);
+            AquaFish a = actual.get(i);
+            if ( a.id() != e.id() || a.xCoord() != e.xCoord()
+                    || a.yCoord() != e.yCoord()
+                    || a.isFacingRight() != e.isFacingRight() )
+                return "fish " + i + " is " + a + "; expected " + e;
+        }
+        return null;
+    }
+
+    /**
+     *  Compares every fish in a published snapshot with the reference.
+     *  @return a description of the first difference, or null
+     **/
+    private static String compare(RefFish[] expected, AquaSnapshot actual,
+                                  long step)
+    {
+        if ( actual.step() != step )
+            return "snapshot of step " + actual.step();
+        if ( actual.size() != expected.length )
+            return "snapshot of " + actual.size() + " fish, expected "
+                   + expected.length;
+        for ( int i = 0; i < expected.length; i++ )
+        {
+            RefFish e = expected[i];
+            if ( actual.id(i) != e.id || actual.xCoord(i) != e.x
+                    || actual.yCoord(i) != e.y
+                    || actual.isFacingRight(i) != e.facingRight )
+                return "snapshot fish " + i + " is " + actual.id(i) + " ("
+                       + actual.xCoord(i) + ", " + actual.yCoord(i) + ")"
+                       + "; expected " + e;
+        }
+        return null;
+    }
+
+    /**
+     *  Compares every fish in a snapshot with those in another that should
+     *  be the same, including their lengths and colors.
+     *  @return a description of the first difference, or null
+     **/
+    private static String compare(AquaSnapshot expected, AquaSnapshot actual)
+    {
+        if ( actual.step() != expected.step() )
+            return "step " + actual.step() + ", expected " + expected.step();
+        if ( actual.size() != expected.size() )
+            return actual.size() + " fish, expected " + expected.size();
+        for ( int i = 0; i < expected.size(); i++ )
+            if ( actual.id(i) != expected.id(i)
+                    || actual.xCoord(i) != expected.xCoord(i)
+                    || actual.yCoord(i) != expected.yCoord(i)
+                    || actual.isFacingRight(i) != expected.isFacingRight(i)
+                    || actual.length(i) != expected.length(i)
+                    || actual.colorIndex(i) != expected.colorIndex(i) )
+                return "fish " + i + " is " + describe(actual, i)
+                       + "; expected " + describe(expected, i);
+        return null;
+    }
+
+    /**
+     *  Describes a fish in a snapshot as AquaFish.toString does, with its
+     *  length and color.
+     **/
+    private static String describe(AquaSnapshot snap, int i)
+    {
+        return snap.id(i) + " (" + snap.xCoord(i) + ", " + snap.yCoord(i)
+               + ") " + (snap.isFacingRight(i) ? "R" : "L") + " length "
+               + snap.length(i) + " color " + snap.colorIndex(i);
+    }
+
+
+    /**
+     *  A Stepper is one engine's way of moving the fish in its aquarium.
+     **/
+    interface Stepper
+    {
+        /**
+         *  Moves every fish one step (or K steps, for an engine named
+         *  "name/K").
+         **/
+        void step();
+
+        /**
+         *  Gets the snapshot the engine has published of the fish, if it
+         *  publishes one.
+         *  @return the snapshot, or null
+         **/
+        default AquaSnapshot shown()
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     *  A RefFish is one fish of the reference model.  It follows the
+     *  original rules directly, keeping nothing but its position and
+     *  direction.
+     **/
+    private static final class RefFish
+    {
+        final int id;
+        final int width;             // of the tank
+        final int halfLength;
+        int x, y;
+        boolean facingRight;
+
+        /**
+         *  Places a fish at random, fully within the tank.  Fish are
+         *  often put against a wall or near one, where most mistakes
+         *  are made.
+         **/
+        RefFish(int id, int width, int height, Random random)
+        {
+            this.id = id;
+            this.width = width;
+            int length = 30 + (id % 4) * 15;
+            int height2 = (int) Math.round(0.4 * length);
+            this.halfLength = (int) Math.round(length / 2.0);
+            int halfHeight = (int) Math.round(height2 / 2.0);
+
+            int minX = halfLength + 1;                  // against the left
+            int maxX = width - (halfLength + 1);        //   or right wall
+            switch ( random.nextInt(5) )
+            {
+                case 0:  x = minX + random.nextInt(2 * AquaFish.MIN_DISTANCE);
+                         break;
+                case 1:  x = maxX - random.nextInt(2 * AquaFish.MIN_DISTANCE);
+                         break;
+                default: x = minX + random.nextInt(maxX - minX + 1);
+            }
+            x = Math.max(minX, Math.min(maxX, x));    // (in a narrow tank)
+            y = halfHeight + 1
+                + random.nextInt(height - 2 * (halfHeight + 1) + 1);
+            facingRight = random.nextBoolean();
+        }
+
+        /**
+         *  Works out the distance from the front of the fish to the wall
+         *  it faces.
+         **/
+        int distanceToWall()
+        {
+            if ( facingRight )
+                return width - (x + halfLength + 1);
+            return x - (halfLength + 1);
+        }
+
+        /**
+         *  Moves the fish for one step: turn around if at a wall, then
+         *  move forward, but not past the wall.
+         **/
+        void move(Random moves)
+        {
+            if ( distanceToWall() <= AquaFish.MIN_DISTANCE )
+                facingRight = ! facingRight;
+            int distance = AquaFish.MIN_DISTANCE + moves.nextInt(
+                AquaFish.MAX_DISTANCE - AquaFish.MIN_DISTANCE + 1);
+            distance = Math.min(distance, distanceToWall());
+            x += facingRight ? distance : -distance;
+        }
+
+        /**
+         *  Describes the fish as AquaFish.toString does.
+         **/
+        public String toString()
+        {
+            return id + " (" + x + ", " + y + ") "
+                   + (facingRight ? "R" : "L") + " ";
+        }
+    }
+
+}
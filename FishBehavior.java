@@ -0,0 +1,38 @@
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      A FishBehavior decides how a fish moves during one time step.  Each
+ *      fish has a behavior (see {@link AquaFish#setBehavior}); the default
+ *      is {@link SwimBehavior}, which swims forward and turns around at
+ *      the walls.
+ * <br> <br>
+ *      Behaviors are stepped a group at a time: {@link BehaviorScheduler}
+ *      collects the fish that share a behavior and hands the whole group
+ *      to <code>moveAll</code>.  Each implementation should write its own
+ *      loop in <code>moveAll</code> (rather than inheriting one), so that
+ *      the loop only ever sees one kind of behavior and the JIT compiler
+ *      can inline the per-fish work.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see BehaviorScheduler
+ **/
+public interface FishBehavior
+{
+    /**
+     *  Moves a single fish for one time step.
+     *  @param  fish   the fish to move
+     **/
+    void move(AquaFish fish);
+
+    /**
+     *  Moves every fish in a group for one time step.  All of the fish in
+     *  the group have this behavior.
+     *  @param  fish   the fish to move
+     **/
+    void moveAll(List<AquaFish> fish);
+}
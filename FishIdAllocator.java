@@ -0,0 +1,80 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The FishIdAllocator class hands out the unique identifiers of fish.
+ *      Fish may be made on many threads at once, so the IDs come from a
+ *      shared atomic counter; but rather than touch the counter for every
+ *      fish, each thread reserves a block of BLOCK_SIZE IDs at a time and
+ *      hands them out itself, so threads making fish side by side hardly
+ *      ever contend.  Code that makes many fish at once can reserve a
+ *      whole run of IDs in one go (see AquaFish.createFish).
+ * <br> <br>
+ *      A fish's size depends on its ID (see NavigationalAide.initSize),
+ *      which cycles through the four sizes.  Every block holds a run of
+ *      consecutive IDs, a multiple of four long, so fish made on any
+ *      number of threads are still spread evenly over the sizes.  On a
+ *      single thread, fish are numbered 1, 2, 3, ... as before.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaFish
+ **/
+public final class FishIdAllocator
+{
+    // STATE
+
+    public static final int BLOCK_SIZE = 1024;   // IDs a thread reserves
+
+    private static final AtomicLong nextFree = new AtomicLong(1);
+
+    // Each thread's block: {next ID to hand out, end of block}.
+    private static final ThreadLocal<long[]> blocks =
+        ThreadLocal.withInitial(() -> new long[2]);
+
+    // OPERATIONS
+
+    /**
+     *  Nobody constructs a FishIdAllocator; there is just the one counter.
+     **/
+    private FishIdAllocator()
+    {
+    }
+
+    /**
+     *  Gets a new ID, from the calling thread's block (reserving a new
+     *  block if that one is used up).
+     *  @return an ID no other fish has
+     *  @throws IllegalStateException if every ID has been handed out
+     **/
+    public static int nextId()
+    {
+        long[] block = blocks.get();
+        if ( block[0] == block[1] )
+        {
+            block[0] = reserve(BLOCK_SIZE);
+            block[1] = block[0] + BLOCK_SIZE;
+        }
+        return (int) block[0]++;
+    }
+
+    /**
+     *  Reserves a run of consecutive IDs for the caller to hand out.
+     *  @param  count   the number of IDs
+     *  @return the first ID in the run
+     *  @throws IllegalStateException if there are not that many IDs left
+     **/
+    public static int reserve(int count)
+    {
+        if ( count < 0 )
+            throw new IllegalArgumentException("count must not be negative");
+        long first = nextFree.getAndAdd(count);
+        if ( first + count - 1 > Integer.MAX_VALUE )
+            throw new IllegalStateException("out of fish IDs");
+        return (int) first;
+    }
+
+}
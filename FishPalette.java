@@ -0,0 +1,103 @@
+import java.awt.Color;
+import java.util.Arrays;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The FishPalette class keeps one shared table of the colors used by
+ *      fish.  Each distinct color is stored once, as a packed RGB value
+ *      (0xRRGGBB), and a fish only remembers its color's index in the
+ *      table.  The rasterizer and the recorder read the packed value
+ *      directly; a display that needs a <code>Color</code> gets the one
+ *      shared object for that index, rather than one per fish; and the
+ *      sprite atlas keys each cached sprite by the color's index (with the
+ *      fish's shape).
+ * <br> <br>
+ *      <code>Color</code> objects are only made when asked for, so the
+ *      palette can be used in headless runs without loading the AWT.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaFish
+ **/
+public final class FishPalette
+{
+    // STATE
+
+    private static volatile int[] rgbs = new int[16]; // colors, by index
+    private static Color[] colors = null;             // made when needed
+    private static int size = 0;                      // colors in use
+
+    // OPERATIONS
+
+    /**
+     *  Nobody constructs a palette; there is just the one shared table.
+     **/
+    private FishPalette()
+    {
+    }
+
+    /**
+     *  Finds the index of a color, adding it to the palette if it is new.
+     *  @param  rgb   the color, packed as 0xRRGGBB
+     *  @return the color's index in the palette
+     **/
+    public static synchronized int intern(int rgb)
+    {
+        rgb &= 0xFFFFFF;
+        for ( int i = 0; i < size; i++ )
+            if ( rgbs[i] == rgb )
+                return i;
+
+        // Readers do not lock, so the entry is written before the table
+        // is (re)published.
+        int[] table = rgbs;
+        if ( size == table.length )
+            table = Arrays.copyOf(table, 2 * size);
+        table[size] = rgb;
+        rgbs = table;
+        return size++;
+    }
+
+    /**
+     *  Gets a color from the palette as a packed RGB value.  This is
+     *  called for every fish drawn, so it does not lock; a color's entry
+     *  never changes once its index has been handed out.
+     *  @param  index   the color's index in the palette
+     *  @return the color, packed as 0xRRGGBB
+     **/
+    public static int rgb(int index)
+    {
+        return rgbs[index];
+    }
+
+    /**
+     *  Gets a color from the palette.  Every fish with this color shares
+     *  the same Color object.
+     *  @param  index   the color's index in the palette
+     *  @return the color
+     **/
+    public static synchronized Color color(int index)
+    {
+        // The table of Color objects is only created here, so that
+        // headless runs never load the Color class.
+        if ( colors == null || colors.length < rgbs.length )
+            colors = (colors == null) ? new Color[rgbs.length]
+                                      : Arrays.copyOf(colors, rgbs.length);
+        if ( colors[index] == null )
+            colors[index] = new Color(rgbs[index]);
+        return colors[index];
+    }
+
+    /**
+     *  Gets the number of distinct colors in the palette.
+     *  @return the number of colors
+     **/
+    public static synchronized int size()
+    {
+        return size;
+    }
+
+}
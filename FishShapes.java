@@ -0,0 +1,155 @@
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Path2D;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The FishShapes class builds the outline of a fish once for each
+ *      size and direction, centered on (0, 0), so that drawing a fish is
+ *      just a matter of moving a ready-made shape into place.  Fish come in
+ *      four lengths (see NavigationalAide.initSize) and two directions, so
+ *      in practice there are eight templates.
+ * <br> <br>
+ *      Each template has two parts: the body and tail, drawn in the
+ *      fish's color, and the eye, drawn in black.  Templates are numbered
+ *      by <code>templateId</code>; the numbers are small enough to use as
+ *      array indices (FishRasterizer keeps one mask per template) and, with
+ *      a color, as the key of a sprite in a FishSpriteAtlas.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026, from the drawing code in AquaSimGUI.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaSimGUI
+ * @see FishRasterizer
+ * @see FishSpriteAtlas
+ **/
+public final class FishShapes
+{
+    // STATE
+
+    /** Number of possible template ids. **/
+    public static final int TEMPLATE_COUNT = 2 * (AquaFish.MAX_LENGTH + 1);
+
+    private static final Shape[] bodies = new Shape[TEMPLATE_COUNT];
+    private static final Shape[] eyes = new Shape[TEMPLATE_COUNT];
+
+    // OPERATIONS
+
+    /**
+     *  Nobody constructs a FishShapes object; the templates are shared.
+     **/
+    private FishShapes()
+    {
+    }
+
+    /**
+     *  Gets the template id for a fish of the given length and direction.
+     *  @param  length        length of the fish (at most AquaFish.MAX_LENGTH)
+     *  @param  facingRight   whether the fish faces right
+     *  @return the template id
+     **/
+    public static int templateId(int length, boolean facingRight)
+    {
+        return 2 * length + (facingRight ? 1 : 0);
+    }
+
+    /**
+     *  Gets the template id for a fish.
+     *  @param  fish   the fish
+     *  @return the template id for its length and direction
+     **/
+    public static int templateId(AquaFish fish)
+    {
+        return templateId(fish.length(), fish.isFacingRight());
+    }
+
+    /**
+     *  Gets the body and tail of a template, centered on (0, 0).
+     *  @param  templateId   the template
+     *  @return the shape of the body and tail
+     **/
+    public static synchronized Shape body(int templateId)
+    {
+        if ( bodies[templateId] == null )
+            build(templateId);
+        return bodies[templateId];
+    }
+
+    /**
+     *  Gets the eye of a template, centered on the fish's (0, 0).
+     *  @param  templateId   the template
+     *  @return the shape of the eye
+     **/
+    public static synchronized Shape eye(int templateId)
+    {
+        if ( eyes[templateId] == null )
+            build(templateId);
+        return eyes[templateId];
+    }
+
+    /**
+     *  Builds both parts of a template.
+     **/
+    private static void build(int templateId)
+    {
+        // Find the fish's outline based on its size, with its centerpoint
+        // at (0, 0).  The height of a fish is 40% of its length.
+        double fishLength = templateId / 2;
+        double fishHeight = Math.round(0.4 * fishLength);
+        boolean facingRight = (templateId % 2 == 1);
+        double leftEndOfFish = -fishLength / 2.0;
+        double topOfFish = -fishHeight / 2.0;
+        double rightEndOfFish = leftEndOfFish + fishLength;
+        double verticalCenter = 0;
+        // Fish body parts are drawn to scale.
+        double bodyLength = 0.8 * fishLength;
+        double leftEndOfBody;        // value depends on fish's direction
+
+        double eyeSize = 0.1 * fishLength;
+        double topOfEye = verticalCenter - (0.1 * fishLength)
+                          - eyeSize / 2;
+        double leftEndOfEye;        // value depends on fish's direction
+
+        double tailLength = 0.25 * fishLength;
+        double tailHeightOffset = 0.12 * fishLength;
+        double topOfTail = verticalCenter - tailHeightOffset;
+        double bottomOfTail = verticalCenter + tailHeightOffset;
+        double endOfTail;        // value depends on fish's direction
+        double tailMeetsBody;    // value depends on fish's direction
+
+        if (facingRight)    //the fish faces right
+        {
+            leftEndOfBody = rightEndOfFish - bodyLength;
+            leftEndOfEye = rightEndOfFish - 0.26 * fishLength;
+            endOfTail = leftEndOfFish;
+            tailMeetsBody = endOfTail + tailLength;
+        }
+        else
+        {
+            leftEndOfBody = leftEndOfFish;
+            leftEndOfEye = leftEndOfFish + (0.26 * fishLength)
+                              - eyeSize;
+            endOfTail = rightEndOfFish;
+            tailMeetsBody = endOfTail - tailLength;
+        }
+
+        // The body is an oval, and the tail a triangle.
+        Path2D body = new Path2D.Double(new Ellipse2D.Double(
+            leftEndOfBody, topOfFish, bodyLength, fishHeight));
+        GeneralPath tailOutline = new GeneralPath();
+        tailOutline.moveTo((float) endOfTail, (float) topOfTail);
+        tailOutline.lineTo((float) endOfTail, (float) bottomOfTail);
+        tailOutline.lineTo((float) tailMeetsBody, (float) verticalCenter);
+        tailOutline.closePath();
+        body.append(tailOutline, false);
+        bodies[templateId] = body;
+
+        // The eye is a small circle.
+        eyes[templateId] = new Ellipse2D.Double(leftEndOfEye, topOfEye,
+                                                eyeSize, eyeSize);
+    }
+
+}
@@ -0,0 +1,208 @@
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The FishSpriteAtlas class keeps ready-drawn pictures (sprites) of
+ *      fish, so that showing a fish is a matter of copying a small
+ *      rectangle of pixels rather than filling its antialiased body, tail
+ *      and eye again.  Every fish of a given length, direction and color
+ *      looks the same, so one sprite serves them all.
+ * <br> <br>
+ *      The sprites are kept side by side in one image (the atlas), in
+ *      slots big enough for the longest fish.  A sprite is drawn into a
+ *      slot the first time it is needed (a miss); after that it is simply
+ *      copied (a hit).  When every slot is full, as when a great many
+ *      colors are in use, the sprite used longest ago is dropped and its
+ *      slot reused.
+ * <br> <br>
+ *      Fish are always drawn at whole-pixel positions, so a copied sprite
+ *      looks exactly like the fish drawn in place.  An atlas is not
+ *      thread-safe.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see FishShapes
+ * @see AquaSimGUI
+ **/
+public class FishSpriteAtlas
+{
+    // STATE
+
+    public static final int DEFAULT_CAPACITY = 256;     // sprites kept
+    private static final int COLUMNS = 16;              // slots across
+    private static final int PADDING = 2;               // for antialiasing
+    private static final int SLOT_WIDTH = AquaFish.MAX_LENGTH + 2 * PADDING;
+    private static final int SLOT_HEIGHT =
+        (int) Math.round(0.4 * AquaFish.MAX_LENGTH) + 2 * PADDING;
+    private static final int CENTER_X = SLOT_WIDTH / 2;   // fish's (0, 0)
+    private static final int CENTER_Y = SLOT_HEIGHT / 2;  //   in its slot
+
+    private final int capacity;              // number of slots
+    private final BufferedImage atlas;       // all the slots
+    private final Graphics2D pen;            // draws sprites into the atlas
+    private final LinkedHashMap<Integer, Integer> slots;  // key to slot,
+                                                          //   LRU order
+    private int freeSlot = -1;               // slot given up, for reuse
+    private long hits, misses, evictions;
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs an empty atlas with room for the given number of
+     *  sprites.
+     *  @param  capacity   most sprites to keep
+     **/
+    public FishSpriteAtlas(int capacity)
+    {
+        if ( capacity <= 0 )
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        int rows = (capacity + COLUMNS - 1) / COLUMNS;
+        this.atlas = new BufferedImage(COLUMNS * SLOT_WIDTH, rows * SLOT_HEIGHT,
+                                       BufferedImage.TYPE_INT_ARGB_PRE);
+        this.pen = atlas.createGraphics();
+        pen.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                             RenderingHints.VALUE_ANTIALIAS_ON);
+        this.slots = new LinkedHashMap<Integer, Integer>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> e)
+            {
+                if ( size() <= FishSpriteAtlas.this.capacity )
+                    return false;
+                freeSlot = e.getValue();
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     *  Draws a fish, centered on (x, y), copying its sprite from the
+     *  atlas (and drawing the sprite first if it is not there).
+     *  @param  g            where to draw
+     *  @param  templateId   the fish's length and direction (see
+     *                       FishShapes.templateId)
+     *  @param  colorIndex   the fish's color (see FishPalette)
+     *  @param  x            x coordinate of the fish's centerpoint
+     *  @param  y            y coordinate of the fish's centerpoint
+     **/
+    public void draw(Graphics2D g, int templateId, int colorIndex,
+                     int x, int y)
+    {
+        int slot = slotFor(templateId, colorIndex);
+        int sx = (slot % COLUMNS) * SLOT_WIDTH;
+        int sy = (slot / COLUMNS) * SLOT_HEIGHT;
+        int dx = x - CENTER_X;
+        int dy = y - CENTER_Y;
+        g.drawImage(atlas, dx, dy, dx + SLOT_WIDTH, dy + SLOT_HEIGHT,
+                    sx, sy, sx + SLOT_WIDTH, sy + SLOT_HEIGHT, null);
+    }
+
+    /**
+     *  Gets the number of fish drawn from a sprite already in the atlas.
+     *  @return the number of hits
+     **/
+    public long hits()
+    {
+        return hits;
+    }
+
+    /**
+     *  Gets the number of fish whose sprite had to be drawn first.
+     *  @return the number of misses
+     **/
+    public long misses()
+    {
+        return misses;
+    }
+
+    /**
+     *  Gets the number of sprites dropped to make room for others.
+     *  @return the number of evictions
+     **/
+    public long evictions()
+    {
+        return evictions;
+    }
+
+    /**
+     *  Gets the number of sprites in the atlas.
+     *  @return the number of sprites
+     **/
+    public int size()
+    {
+        return slots.size();
+    }
+
+    /**
+     *  Describes how well the atlas is doing, for display.
+     *  @return the hit rate and counts
+     **/
+    public String toString()
+    {
+        long lookups = hits + misses;
+        return String.format("sprites: %d kept, %.1f%% hits, %d evicted",
+                             slots.size(),
+                             (lookups == 0) ? 0.0 : 100.0 * hits / lookups,
+                             evictions);
+    }
+
+    /**
+     *  Finds the slot holding a sprite, drawing the sprite into a slot if
+     *  it is not in the atlas.
+     **/
+    private int slotFor(int templateId, int colorIndex)
+    {
+        int key = colorIndex * FishShapes.TEMPLATE_COUNT + templateId;
+        Integer slot = slots.get(key);
+        if ( slot != null )
+        {
+            hits++;
+            return slot;
+        }
+        misses++;
+
+        // Use the next unused slot, or else the one given up when the
+        // last sprite was dropped.  Adding the key may drop another.
+        int s = slots.size();
+        if ( s >= capacity )
+        {
+            slots.put(key, -1);         // drops the eldest, freeing a slot
+            s = freeSlot;
+        }
+        slots.put(key, s);
+        drawSprite(s, templateId, colorIndex);
+        return s;
+    }
+
+    /**
+     *  Draws a sprite into a slot, clearing what was there.
+     **/
+    private void drawSprite(int slot, int templateId, int colorIndex)
+    {
+        int sx = (slot % COLUMNS) * SLOT_WIDTH;
+        int sy = (slot / COLUMNS) * SLOT_HEIGHT;
+        Composite normal = pen.getComposite();
+        pen.setComposite(AlphaComposite.Clear);
+        pen.fillRect(sx, sy, SLOT_WIDTH, SLOT_HEIGHT);
+        pen.setComposite(normal);
+
+        pen.translate(sx + CENTER_X, sy + CENTER_Y);
+        pen.setPaint(FishPalette.color(colorIndex));
+        pen.fill(FishShapes.body(templateId));
+        pen.setPaint(Color.BLACK);
+        pen.fill(FishShapes.eye(templateId));
+        pen.translate(-(sx + CENTER_X), -(sy + CENTER_Y));
+    }
+
+}
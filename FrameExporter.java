@@ -0,0 +1,322 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.imageio.ImageIO;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The FrameExporter class saves a simulation run as a sequence of
+ *      images without needing a display.  Each frame is drawn offscreen by
+ *      a {@link FishRasterizer} and then handed to a pool of encoder
+ *      threads, which write it either as a numbered PNG file or into a
+ *      single raw file of 24-bit RGB frames.
+ * <br> <br>
+ *      The thread that calls <code>writeFrame</code> only draws the frame
+ *      and copies its pixels; compressing and writing happen on the
+ *      encoder threads.  Frames wait in a bounded queue, and the pixel
+ *      buffers are recycled, so if the encoders fall behind,
+ *      <code>writeFrame</code> waits for a buffer to come free instead of
+ *      using more and more memory.
+ * <br> <br>
+ *      Raw files hold frames back to back with no header; frame
+ *      <i>k</i> starts at byte <i>k * width * height * 3</i>.  Because every
+ *      frame has a fixed place in the file, encoders can write frames out
+ *      of order without mixing them up.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see FishRasterizer
+ **/
+public class FrameExporter implements AutoCloseable
+{
+    /** The formats that frames can be written in. **/
+    public enum Format { PNG, RAW }
+
+    // STATE
+
+    private final File directory;          // where output goes
+    private final Format format;           // how frames are encoded
+    private final int width, height;       // frame size
+    private final FishRasterizer rasterizer;   // draws frames offscreen
+    private final BlockingQueue<Frame> queue;  // frames waiting to encode
+    private final BlockingQueue<int[]> freeBuffers;  // recycled pixels
+    private final Thread[] encoders;       // encoder threads
+    private final FileChannel rawChannel;  // output file for RAW, or null
+    private volatile IOException failure;  // first error from an encoder
+    private int nextFrame = 0;             // index of the next frame
+    private boolean closed = false;
+
+    // OPERATIONS (constructors and methods)
+
+    /**
+     *  Constructs an exporter that uses one encoder thread per processor
+     *  and queues up to twice that many frames.
+     *  @param  directory   directory to write into (created if needed)
+     *  @param  format      the format to write frames in
+     *  @param  width       frame width (in pixels)
+     *  @param  height      frame height (in pixels)
+     *  @throws IOException if the output cannot be created
+     **/
+    public FrameExporter(File directory, Format format, int width, int height)
+        throws IOException
+    {
+        this(directory, format, width, height,
+             Runtime.getRuntime().availableProcessors(),
+             2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     *  Constructs an exporter.
+     *  @param  directory   directory to write into (created if needed)
+     *  @param  format      the format to write frames in
+     *  @param  width       frame width (in pixels)
+     *  @param  height      frame height (in pixels)
+     *  @param  numEncoders number of encoder threads
+     *  @param  queueSize   number of frames that may wait to be encoded
+     *  @throws IOException if the output cannot be created
+     **/
+    public FrameExporter(File directory, Format format, int width, int height,
+                         int numEncoders, int queueSize)
+        throws IOException
+    {
+        if ( numEncoders <= 0 || queueSize <= 0 )
+            throw new IllegalArgumentException(
+                "need at least one encoder and one queue slot");
+        if ( ! directory.isDirectory() && ! directory.mkdirs() )
+            throw new IOException("cannot create " + directory);
+        this.directory = directory;
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.rasterizer = new FishRasterizer(width, height);
+        this.queue = new ArrayBlockingQueue<Frame>(queueSize + numEncoders);
+
+        // One buffer for each queue slot plus one per encoder at work.
+        this.freeBuffers = new ArrayBlockingQueue<int[]>(queueSize + numEncoders);
+        for ( int i = 0; i < queueSize + numEncoders; i++ )
+            freeBuffers.add(new int[width * height]);
+
+        if ( format == Format.RAW )
+            rawChannel = FileChannel.open(
+                new File(directory, "frames.rgb").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        else
+            rawChannel = null;
+
+        encoders = new Thread[numEncoders];
+        for ( int i = 0; i < numEncoders; i++ )
+        {
+            encoders[i] = new Thread(this::encodeFrames, "frame-encoder-" + i);
+            encoders[i].setDaemon(true);
+            encoders[i].start();
+        }
+    }
+
+    /**
+     *  Draws the aquarium offscreen and queues the frame to be written.
+     *  @param  aqua   the aquarium to draw
+     *  @throws IOException if an earlier frame could not be written
+     **/
+    public void writeFrame(Aquarium aqua) throws IOException
+    {
+        rasterizer.render(aqua);
+        writeFrame(rasterizer.image());
+    }
+
+    /**
+     *  Queues a copy of an image to be written as the next frame.  The
+     *  image may be reused as soon as this method returns.
+     *  @param  image   a TYPE_INT_RGB image the size of the frames
+     *  @throws IOException if an earlier frame could not be written
+     **/
+    public void writeFrame(BufferedImage image) throws IOException
+    {
+        checkFailure();
+        if ( closed )
+            throw new IllegalStateException("exporter is closed");
+        if ( image.getWidth() != width || image.getHeight() != height
+                || image.getType() != BufferedImage.TYPE_INT_RGB )
+            throw new IllegalArgumentException("image does not match frames");
+        int[] source =
+            ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        try
+        {
+            int[] pixels = freeBuffers.take();
+            System.arraycopy(source, 0, pixels, 0, pixels.length);
+            queue.put(new Frame(nextFrame++, pixels));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while queueing frame", e);
+        }
+    }
+
+    /**
+     *  Gets the number of frames queued so far.
+     *  @return the number of frames
+     **/
+    public int frameCount()
+    {
+        return nextFrame;
+    }
+
+    /**
+     *  Waits for every queued frame to be written, then stops the
+     *  encoder threads.
+     *  @throws IOException if any frame could not be written
+     **/
+    public void close() throws IOException
+    {
+        if ( closed )
+            return;
+        closed = true;
+        try
+        {
+            for ( int i = 0; i < encoders.length; i++ )
+                queue.put(Frame.END);
+            for ( Thread t : encoders )
+                t.join();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while finishing export", e);
+        }
+        finally
+        {
+            if ( rawChannel != null )
+                rawChannel.close();
+        }
+        checkFailure();
+    }
+
+    /**
+     *  Rethrows the first error reported by an encoder thread.
+     **/
+    private void checkFailure() throws IOException
+    {
+        if ( failure != null )
+            throw failure;
+    }
+
+    /**
+     *  Body of each encoder thread: encode frames until told to stop.
+     *  An error is recorded (close reports the first one) but the
+     *  thread keeps taking frames, so that a frame's buffer is always
+     *  returned and writeFrame never waits forever for one.
+     **/
+    private void encodeFrames()
+    {
+        // Each encoder keeps its own scratch space for raw output.
+        ByteBuffer rgb = (format == Format.RAW)
+            ? ByteBuffer.allocateDirect(width * height * 3) : null;
+        while ( true )
+        {
+            Frame frame;
+            try
+            {
+                frame = queue.take();
+            }
+            catch (InterruptedException e)
+            {
+                return;
+            }
+            if ( frame == Frame.END )
+                return;
+            try
+            {
+                if ( failure == null )
+                {
+                    if ( format == Format.PNG )
+                        writePng(frame);
+                    else
+                        writeRaw(frame, rgb);
+                }
+            }
+            catch (IOException e)
+            {
+                if ( failure == null )
+                    failure = e;
+            }
+            catch (RuntimeException e)
+            {
+                if ( failure == null )
+                    failure = new IOException("frame " + frame.index
+                                              + " could not be encoded", e);
+            }
+            finally
+            {
+                freeBuffers.add(frame.pixels);
+            }
+        }
+    }
+
+    /**
+     *  Writes a frame as a PNG file, wrapping its pixels in an image
+     *  rather than copying them.
+     **/
+    private void writePng(Frame frame) throws IOException
+    {
+        DirectColorModel model = new DirectColorModel(24,
+                                      0xff0000, 0x00ff00, 0x0000ff);
+        WritableRaster raster = Raster.createPackedRaster(
+            new DataBufferInt(frame.pixels, frame.pixels.length),
+            width, height, width, model.getMasks(), null);
+        BufferedImage image = new BufferedImage(model, raster, false, null);
+        File file = new File(directory,
+                             String.format("frame_%06d.png", frame.index));
+        if ( ! ImageIO.write(image, "png", file) )
+            throw new IOException("no PNG writer available");
+    }
+
+    /**
+     *  Writes a frame into its place in the raw output file.
+     **/
+    private void writeRaw(Frame frame, ByteBuffer rgb) throws IOException
+    {
+        rgb.clear();
+        for ( int p : frame.pixels )
+        {
+            rgb.put((byte) (p >> 16));
+            rgb.put((byte) (p >> 8));
+            rgb.put((byte) p);
+        }
+        rgb.flip();
+        long position = (long) frame.index * width * height * 3;
+        while ( rgb.hasRemaining() )
+            position += rawChannel.write(rgb, position);
+    }
+
+
+    /**
+     *  A Frame is one queued frame: its index and its pixels.
+     **/
+    private static class Frame
+    {
+        static final Frame END = new Frame(-1, null);   // stop signal
+
+        final int index;
+        final int[] pixels;
+
+        Frame(int index, int[] pixels)
+        {
+            this.index = index;
+            this.pixels = pixels;
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Aquarium Lab Series: <br>
+ *      The FrameInterpolator class smooths the motion of fish on screen.
+ *      A fish jumps 10 to 70 pixels in a single step, so showing only the
+ *      states after each step looks jerky unless a great many small steps
+ *      are run.  Instead, the interpolator keeps the last two states and
+ *      can produce any state in between: frames drawn while waiting for
+ *      the next step then show the fish gliding from where they were to
+ *      where they are, at a fraction of the step rate.  The picture runs
+ *      one step behind the simulation.
+ * <br> <br>
+ *      The blend uses whole-number arithmetic only: the fraction of the
+ *      way from one state to the next is a fixed-point number with
+ *      FRACTION_BITS bits after the point (0 .. ONE).  A fish that turns
+ *      around stays facing its old way until the halfway point.  Fish
+ *      that were not in the earlier state (just added) are shown where
+ *      they are, and fish that have left are dropped.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see FramePacer#stepFraction
+ **/
+public class FrameInterpolator
+{
+    // STATE
+
+    public static final int FRACTION_BITS = 8;
+    public static final int ONE = 1 << FRACTION_BITS;   // whole way
+    private static final int HALF = ONE / 2;
+
+    private AquaSnapshot from = new AquaSnapshot();   // state before last step
+    private AquaSnapshot to = new AquaSnapshot();     // state after last step
+    private int states = 0;                           // states seen (up to 2)
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Records the state of an aquarium after a step.
+     *  @param  aqua   the aquarium
+     *  @param  step   the step number
+     **/
+    public void stepTaken(Aquarium aqua, long step)
+    {
+        swap();
+        to.capture(aqua, step);
+    }
+
+    /**
+     *  Records a recorded state (for example, from a replay).
+     *  @param  snap   the state; it is copied
+     **/
+    public void stepTaken(AquaSnapshot snap)
+    {
+        swap();
+        to.copyFrom(snap);
+    }
+
+    /**
+     *  Works out the state part of the way from the state before the last
+     *  step to the state after it.
+     *  @param  fraction   how far: from 0 (the earlier state) to ONE (the
+     *                     latest state)
+     *  @param  out        receives the state
+     **/
+    public void interpolate(int fraction, AquaSnapshot out)
+    {
+        if ( states < 2 || fraction >= ONE )
+        {
+            out.copyFrom(to);
+            return;
+        }
+        fraction = Math.max(0, fraction);
+        out.copyFrom(to);
+
+        // Fish stay in the same order from step to step (some may have
+        // been added at the end or removed), so walk both lists together,
+        // matching fish by ID.
+        int n = to.count;
+        int m = from.count;
+        int j = 0;
+        for ( int i = 0; i < n; i++ )
+        {
+            int id = to.ids[i];
+            int k = j;
+            while ( k < m && from.ids[k] != id )
+                k++;
+            if ( k == m )
+                continue;             // new fish: show where it is now
+            j = k + 1;
+            out.xs[i] = blend(from.xs[k], to.xs[i], fraction);
+            out.ys[i] = blend(from.ys[k], to.ys[i], fraction);
+            if ( fraction < HALF )
+                out.facingRight[i] = from.facingRight[k];
+        }
+    }
+
+    /**
+     *  Blends two coordinates, rounding to the nearest pixel.
+     **/
+    private static int blend(int a, int b, int fraction)
+    {
+        return a + (((b - a) * fraction + HALF) >> FRACTION_BITS);
+    }
+
+    /**
+     *  Makes the latest state the earlier one, reusing the old earlier
+     *  state's arrays for the next one.
+     **/
+    private void swap()
+    {
+        AquaSnapshot t = from;
+        from = to;
+        to = t;
+        states = Math.min(states + 1, 2);
+    }
+
+}
@@ -0,0 +1,306 @@
+/**
+ * Aquarium Lab Series: <br>
+ *      The FramePacer class sets the pace of a simulation that is being
+ *      watched.  It is told how long each step and each frame took, and
+ *      in return it decides whether the next frame should be drawn and how
+ *      long to wait before the next step, so that the simulation runs at a
+ *      target number of steps per second:
+ *      <ul>
+ *        <li>when there is time to spare, it sleeps just long enough to
+ *            keep to the target;</li>
+ *        <li>when drawing makes the simulation fall behind, it skips
+ *            frames until the steps have caught up (but still draws at
+ *            least a few per second, so the display never freezes);</li>
+ *        <li>with no target (unthrottled), it never sleeps and draws at
+ *            most MAX_FRAME_RATE frames per second.</li>
+ *      </ul>
+ *      Unthrottled runs use the smoothed frame time (an exponentially
+ *      weighted moving average) to keep drawing from taking more than
+ *      half of the time.  Step and frame times are reported the same way,
+ *      and the achieved step and frame rates are measured over roughly
+ *      one-second windows.
+ * <br> <br>
+ *      A pacer is used by the thread running the simulation; only the
+ *      target rate may be changed from another thread.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaSimApplication
+ **/
+public class FramePacer
+{
+    // STATE
+
+    public static final double UNTHROTTLED = 0;       // no target rate
+    public static final int MAX_FRAME_RATE = 60;      // frames per second
+    public static final int MIN_FRAME_RATE = 4;       // even when behind
+    private static final double SMOOTHING = 0.2;      // weight of new times
+    private static final long NANOS = 1000000000L;
+    private static final long RATE_WINDOW = NANOS;    // for achieved rates
+
+    private volatile double targetRate;  // steps per second, or UNTHROTTLED
+    private long nextDeadline;           // when the next step should end
+    private long lastFrameEnd;           // when the last frame was drawn
+    private long lastStepEnd;            // when the last step was taken
+    private boolean stepsEnded;          // no more steps are coming
+    private double stepNanos;            // smoothed time per step
+    private double frameNanos;           // smoothed time per frame
+    private long framesSkipped;          // total frames not drawn
+
+    private long windowStart;            // start of rate window
+    private int windowSteps, windowFrames;   // counts in rate window
+    private double stepRate, frameRate;      // rates in last full window
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs a pacer.
+     *  @param  stepsPerSecond  target number of steps per second, or
+     *                          UNTHROTTLED to run as fast as possible
+     **/
+    public FramePacer(double stepsPerSecond)
+    {
+        setTargetRate(stepsPerSecond);
+        long now = System.nanoTime();
+        nextDeadline = now;
+        lastFrameEnd = now;
+        windowStart = now;
+    }
+
+    /**
+     *  Changes the target number of steps per second.  This may be called
+     *  from any thread.
+     *  @param  stepsPerSecond  new target, or UNTHROTTLED
+     **/
+    public void setTargetRate(double stepsPerSecond)
+    {
+        if ( stepsPerSecond < 0 || Double.isNaN(stepsPerSecond) )
+            throw new IllegalArgumentException(
+                "steps per second must not be negative");
+        targetRate = stepsPerSecond;
+    }
+
+    /**
+     *  Gets the target number of steps per second.
+     *  @return the target, or UNTHROTTLED
+     **/
+    public double targetRate()
+    {
+        return targetRate;
+    }
+
+    /**
+     *  Records that a step has been taken.
+     *  @param  start   System.nanoTime() when the step began
+     *  @param  end     System.nanoTime() when it finished
+     **/
+    public void stepTaken(long start, long end)
+    {
+        stepNanos = smooth(stepNanos, end - start);
+        lastStepEnd = end;
+        stepsEnded = false;
+        windowSteps++;
+        updateRates(end);
+    }
+
+    /**
+     *  Decides whether to draw a frame for the step just taken.
+     *  @return <code>true</code> if a frame should be drawn
+     **/
+    public boolean shouldDrawFrame()
+    {
+        long now = System.nanoTime();
+        long sinceFrame = now - lastFrameEnd;
+        boolean draw;
+        if ( targetRate == UNTHROTTLED )
+        {
+            // Spend at least as long stepping as drawing.
+            draw = sinceFrame >= Math.max(NANOS / MAX_FRAME_RATE,
+                                          (long) frameNanos);
+        }
+        else
+        {
+            // Draw if the steps are keeping to schedule, or if the
+            // display has gone too long without a frame.  A slow frame
+            // puts the steps behind; the frames after it are then skipped
+            // until the steps (which do not sleep while behind) catch up.
+            long stepBudget = (long) (NANOS / targetRate);
+            draw = now < nextDeadline + stepBudget
+                || sinceFrame >= NANOS / MIN_FRAME_RATE;
+        }
+        if ( ! draw )
+            framesSkipped++;
+        return draw;
+    }
+
+    /**
+     *  Records that the run has taken its last step, so that frames from
+     *  now on should show the final state in full (see stepFraction).
+     **/
+    public void stepsEnded()
+    {
+        stepsEnded = true;
+    }
+
+    /**
+     *  Works out how far the run is, in time, from the last step to the
+     *  next one, for drawing a frame between them (see FrameInterpolator).
+     *  @return the fraction of the time between steps that has passed, in
+     *          fixed point from 0 to FrameInterpolator.ONE; ONE if the run
+     *          is unthrottled or has ended
+     **/
+    public int stepFraction()
+    {
+        double rate = targetRate;
+        if ( rate == UNTHROTTLED || stepsEnded )
+            return FrameInterpolator.ONE;
+        long budget = (long) (NANOS / rate);
+        long since = System.nanoTime() - lastStepEnd;
+        return (int) Math.min(FrameInterpolator.ONE,
+                              since * FrameInterpolator.ONE / budget);
+    }
+
+    /**
+     *  Records that a frame has been drawn.
+     *  @param  start   System.nanoTime() when drawing began
+     *  @param  end     System.nanoTime() when it finished
+     **/
+    public void frameDrawn(long start, long end)
+    {
+        frameNanos = smooth(frameNanos, end - start);
+        lastFrameEnd = end;
+        windowFrames++;
+        updateRates(end);
+    }
+
+    /**
+     *  Waits until it is time for the next step.  If the simulation has
+     *  fallen more than a second behind, it gives up trying to catch up,
+     *  rather than racing through steps to make up the lost time.
+     *  @throws InterruptedException if the thread is interrupted while
+     *          waiting
+     **/
+    public void awaitNextStep() throws InterruptedException
+    {
+        long wait = scheduleNextStep();
+        if ( wait > 0 )
+            Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+    }
+
+    /**
+     *  Works out when the next step should start, like awaitNextStep, but
+     *  leaves the waiting to the caller.
+     *  @return how long to wait before the next step, in nanoseconds
+     *          (zero or less means the next step is due now)
+     **/
+    public long scheduleNextStep()
+    {
+        long now = System.nanoTime();
+        double rate = targetRate;
+        if ( rate == UNTHROTTLED )
+        {
+            nextDeadline = now;
+            return 0;
+        }
+        nextDeadline += (long) (NANOS / rate);
+        long wait = nextDeadline - now;
+        if ( wait < -NANOS )
+            nextDeadline = now;
+        return wait;
+    }
+
+    /**
+     *  Starts the schedule afresh from now, for example after the run has
+     *  been paused, so that the steps do not race to make up the time.
+     **/
+    public void resync()
+    {
+        nextDeadline = System.nanoTime();
+    }
+
+    /**
+     *  Gets the number of steps taken per second, measured over the last
+     *  second or so.
+     *  @return the achieved step rate
+     **/
+    public double stepRate()
+    {
+        return stepRate;
+    }
+
+    /**
+     *  Gets the number of frames drawn per second, measured over the last
+     *  second or so.
+     *  @return the achieved frame rate
+     **/
+    public double frameRate()
+    {
+        return frameRate;
+    }
+
+    /**
+     *  Gets the smoothed time taken by a step.
+     *  @return milliseconds per step
+     **/
+    public double stepMillis()
+    {
+        return stepNanos / 1e6;
+    }
+
+    /**
+     *  Gets the smoothed time taken to draw a frame.
+     *  @return milliseconds per frame
+     **/
+    public double frameMillis()
+    {
+        return frameNanos / 1e6;
+    }
+
+    /**
+     *  Gets the number of frames skipped so far to keep up.
+     *  @return the number of frames skipped
+     **/
+    public long framesSkipped()
+    {
+        return framesSkipped;
+    }
+
+    /**
+     *  Describes the achieved rates, for display.
+     *  @return a short description of the step and frame rates
+     **/
+    public String toString()
+    {
+        return String.format("%.1f steps/s, %.1f frames/s", stepRate,
+                             frameRate);
+    }
+
+    /**
+     *  Folds a new time into a moving average.  The first time is taken
+     *  as it is.
+     **/
+    private static double smooth(double average, long sample)
+    {
+        if ( average == 0 )
+            return sample;
+        return average + SMOOTHING * (sample - average);
+    }
+
+    /**
+     *  Works out the achieved rates once a window has passed.
+     **/
+    private void updateRates(long now)
+    {
+        long elapsed = now - windowStart;
+        if ( elapsed < RATE_WINDOW )
+            return;
+        stepRate = windowSteps * (double) NANOS / elapsed;
+        frameRate = windowFrames * (double) NANOS / elapsed;
+        windowStart = now;
+        windowSteps = 0;
+        windowFrames = 0;
+    }
+
+}
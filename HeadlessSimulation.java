@@ -0,0 +1,217 @@
+import java.awt.Graphics2D;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The HeadlessSimulation class runs the aquarium simulation without
+ *      any display, for scripted runs and benchmarks.  It runs to
+ *      completion as described by a {@link SimulationConfig} and then
+ *      prints a throughput summary.  Unless frames are rendered, it uses
+ *      only the simulation classes, so a headless run never loads the JPT
+ *      GUI toolkit or the AWT.
+ * <br> <br>
+ *      Work that can use several threads (schooling, software rendering)
+ *      runs in a pool with the configured parallelism; encoding frames for
+ *      output uses the same number of encoder threads.
+ * <br> <br>
+ *      A run can also be recorded to a replay file (see
+ *      {@link ReplayWriter}) and watched later without re-running it,
+ *      and running statistics (see {@link AquaStats}) can be written to a
+ *      CSV file as it goes, or served live over HTTP (see
+ *      {@link TelemetryServer}).
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaSimApplication
+ * @see SimulationConfig
+ **/
+public class HeadlessSimulation
+{
+    /**
+     *  Runs a simulation as described by the configuration and prints
+     *  how fast it ran.
+     *  @param  config   the settings for the run
+     *  @throws IOException if frames cannot be written
+     **/
+    public static void run(SimulationConfig config) throws IOException
+    {
+        ForkJoinPool pool = new ForkJoinPool(config.parallelism());
+        try
+        {
+            // Run inside the pool so that parallel work uses its threads.
+            pool.submit(() -> { runInPool(config); return null; }).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            if ( e.getCause() instanceof IOException )
+                throw (IOException) e.getCause();
+            if ( e.getCause() instanceof RuntimeException )
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     *  Does the work of a run, on a thread in the worker pool.
+     **/
+    private static void runInPool(SimulationConfig config) throws IOException
+    {
+        // Construct the aquarium and its fish.
+        Aquarium aqua = config.buildAquarium();
+        int startingFish = aqua.getFish().size();
+        BehaviorScheduler scheduler = new BehaviorScheduler(aqua);
+
+        // Set up rendering and output, if any.
+        FishRasterizer rasterizer = null;
+        DensityHeatmap heatmap = null;
+        AquaSnapshot frame = null;
+        List<FrameExporter> exporters = new ArrayList<FrameExporter>();
+        if ( config.render() == SimulationConfig.RenderMode.RASTER )
+        {
+            rasterizer = new FishRasterizer(aqua.width(), aqua.height());
+            frame = new AquaSnapshot();
+            if ( config.heatmapEvery() > 0 )
+                heatmap = new DensityHeatmap(aqua.width(), aqua.height(),
+                                             DensityHeatmap.DEFAULT_CELL_SIZE,
+                                             config.heatmapEvery());
+            if ( config.pngDirectory() != null )
+                exporters.add(exporter(config, config.pngDirectory(),
+                                       FrameExporter.Format.PNG));
+            if ( config.rawDirectory() != null )
+                exporters.add(exporter(config, config.rawDirectory(),
+                                       FrameExporter.Format.RAW));
+        }
+        ReplayWriter recorder = null;
+        if ( config.recordFile() != null )
+        {
+            recorder = new ReplayWriter(new File(config.recordFile()),
+                                        aqua.width(), aqua.height(),
+                                        config.keyframeEvery());
+            recorder.writeStep(aqua, 0);
+        }
+        Writer statsOut = null;
+        if ( config.statsFile() != null )
+        {
+            aqua.setStats(new AquaStats());
+            statsOut = new BufferedWriter(new FileWriter(config.statsFile()));
+            AquaStats.writeCsvHeader(statsOut);
+            aqua.stats().writeCsvRow(statsOut);
+        }
+        TelemetryServer telemetry = null;
+        if ( config.telemetryPort() != null )
+        {
+            telemetry = TelemetryServer.forAquarium(aqua,
+                                                    config.telemetryPort());
+            System.out.println("telemetry at http://localhost:"
+                               + telemetry.port() + "/status");
+        }
+
+        // Make the fish move, drawing every frameEvery steps.
+        long stepNanos = 0;
+        long renderNanos = 0;
+        int frames = 0;
+        long start = System.nanoTime();
+        try
+        {
+            for ( int step = 1; step <= config.numSteps(); step++ )
+            {
+                long t0 = System.nanoTime();
+                scheduler.step();
+                long t1 = System.nanoTime();
+                stepNanos += t1 - t0;
+                if ( rasterizer != null && step % config.frameEvery() == 0 )
+                {
+                    frame.capture(aqua, step);
+                    rasterizer.render(frame, aqua.rgb());
+                    if ( heatmap != null )
+                    {
+                        Graphics2D g = rasterizer.image().createGraphics();
+                        heatmap.drawFrame(frame, g, aqua.width(), aqua.height());
+                        g.dispose();
+                    }
+                    for ( FrameExporter out : exporters )
+                        out.writeFrame(rasterizer.image());
+                    frames++;
+                    renderNanos += System.nanoTime() - t1;
+                }
+                if ( recorder != null )
+                    recorder.writeStep(aqua, step);
+                if ( statsOut != null && step % config.statsEvery() == 0 )
+                    aqua.stats().writeCsvRow(statsOut);
+                if ( telemetry != null )
+                    telemetry.publish(aqua, step);
+            }
+        }
+        finally
+        {
+            // Wait for the encoders to finish before reporting.
+            for ( FrameExporter out : exporters )
+                out.close();
+            if ( recorder != null )
+                recorder.close();
+            if ( statsOut != null )
+                statsOut.close();
+            if ( telemetry != null )
+                telemetry.close();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Report throughput.
+        double seconds = elapsed / 1e9;
+        int steps = config.numSteps();
+        System.out.printf("%d x %d aquarium, %d fish (%d at end), %d steps, "
+                          + "%d threads%n",
+                          aqua.width(), aqua.height(), startingFish,
+                          aqua.getFish().size(), steps, config.parallelism());
+        System.out.printf("elapsed %.3f s: %.1f steps/s, %.3g fish-steps/s%n",
+                          seconds, steps / seconds,
+                          (double) startingFish * steps / seconds);
+        System.out.printf("stepping %.3f s, rendering %.3f s, %d frames, "
+                          + "%d written%n",
+                          stepNanos / 1e9, renderNanos / 1e9, frames,
+                          frames * exporters.size());
+        AquaStats stats = aqua.stats();
+        if ( stats != null )
+            System.out.printf("mean x %.1f, direction balance %+.3f, "
+                              + "%d turns (%d at walls), "
+                              + "mean move %.2f (sd %.2f)%n",
+                              stats.meanX(), stats.directionBalance(),
+                              stats.turns(), stats.wallHits(),
+                              stats.meanMoveDistance(),
+                              Math.sqrt(stats.moveDistanceVariance()));
+    }
+
+    /**
+     *  Creates an exporter for one output directory.
+     **/
+    private static FrameExporter exporter(SimulationConfig config,
+                                          String directory,
+                                          FrameExporter.Format format)
+        throws IOException
+    {
+        return new FrameExporter(new File(directory), format,
+                                 config.width(), config.height(),
+                                 config.parallelism(),
+                                 2 * config.parallelism());
+    }
+
+}
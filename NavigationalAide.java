@@ -12,6 +12,11 @@ import java.util.Random;
  *   23 March 2008, Alyce Brady, from the previous version of AquaFish.<br>
  * Modifications: <br>
  *   18 January 2009, Alyce Brady, moved determination of direction to AquaFish.<br>
+ *   19 October 2026, Keep the distance to the wall ahead up to date as the
+ *                    fish moves and turns, rather than working it out on
+ *                    every call.<br>
+ *   19 October 2026, Added a constructor that places the fish at a given
+ *                    position, for fish handed over between processes.<br>
  * <br>
  * 
  * @author Alyce Brady
@@ -27,6 +32,9 @@ public class NavigationalAide
     private int centerY;             // y-coordinate of fish's centerpoint
     private int length, height; // define size of fish
     private int halfLength, halfHeight; // useful for knowing perimeter of fish
+    private boolean facingRight;     // fish's direction (see fishTurned)
+    private int wallSpan;            // sum of the distances to both walls
+    private int distanceToWall;      // distance to the wall ahead
 
     // OPERATIONS (constructor and methods)
 
@@ -48,6 +56,24 @@ public class NavigationalAide
         initPos();
     }
 
+    /**
+     *  Constructs an aide for a fish whose position is already known (for
+     *  example, a fish handed over from another part of a distributed
+     *  aquarium).  The fish's size still comes from its ID.
+     *  Precondition: the fish must be fully within the aquarium at the
+     *  given position.
+     *  @param    fish   the fish whose size and location this aide is
+     *                      keeping track of
+     *  @param    x      x coordinate of the fish's centerpoint
+     *  @param    y      y coordinate of the fish's centerpoint
+     **/
+    public NavigationalAide(AquaFish fish, int x, int y)
+    {
+        theFish = fish;
+        initSize();
+        placeAt(x, y);
+    }
+
     /**
      *  Initializes fish size:
      *  This helper function determines the height and length of the fish.
@@ -79,8 +105,29 @@ public class NavigationalAide
     private void initPos()
     {
         // Initialize my position and direction.
-        centerX = theFish.aquarium().randomCenterX(length);
-        centerY = theFish.aquarium().randomCenterY(height);
+        int x = theFish.aquarium().randomCenterX(length);
+        int y = theFish.aquarium().randomCenterY(height);
+        placeAt(x, y);
+    }
+
+    /**
+     *  Puts the fish's centerpoint at the given position, facing the way
+     *  the fish faces, and works out its distance to the wall ahead.
+     **/
+    private void placeAt(int x, int y)
+    {
+        centerX = x;
+        centerY = y;
+        facingRight = theFish.isFacingRight();
+
+        // The distances from the front of the fish to the wall it faces
+        // and from the back of the fish to the other wall always add up
+        // to the same amount, so turning around just swaps one for the
+        // other (see fishTurned).
+        wallSpan = theFish.aquarium().width() - 2 * (halfLength + 1);
+        int leftEdgeOfFish = centerX - (halfLength + 1);
+        distanceToWall = facingRight ? wallSpan - leftEdgeOfFish
+                                     : leftEdgeOfFish;
     }
 
     /**
@@ -108,7 +155,7 @@ public class NavigationalAide
      **/
     public boolean isFishFacingRight()
     {
-        return theFish.isFacingRight();
+        return facingRight;
     }
 
     /** Gets the length of the fish.
@@ -144,17 +191,24 @@ public class NavigationalAide
     }
 
     /**
-     *  Compute how far the fish is from the wall in front of it.
+     *  Gets how far the fish is from the wall in front of it.  The
+     *  distance is kept up to date as the fish moves and turns, so this
+     *  does no arithmetic.
      *  @return    distance from front of fish to facing wall
      **/
     protected int fishDistanceToWall()
     {
-        int leftEdgeOfFish = centerX - (halfLength + 1);
-        int rightEdgeOfFish = centerX + (halfLength + 1);
-        if ( isFishFacingRight() )
-            return (theFish.aquarium().width() - rightEdgeOfFish);
-        else
-            return leftEdgeOfFish;    // since left edge of aquarium is 0
+        return distanceToWall;
+    }
+
+    /**
+     *  Records that the fish has turned around: the wall that was behind
+     *  it is now the one ahead.
+     **/
+    protected void fishTurned()
+    {
+        facingRight = ! facingRight;
+        distanceToWall = wallSpan - distanceToWall;
     }
 
     /**
@@ -203,6 +257,7 @@ public class NavigationalAide
     protected void moveFishRight(int distance)
     {
         centerX += distance;
+        distanceToWall += facingRight ? -distance : distance;
     }
 
     /** Moves the fish <code>distance</code> units to the left.
@@ -211,6 +266,7 @@ public class NavigationalAide
     protected void moveFishLeft(int distance)
     {
         centerX -= distance;
+        distanceToWall += facingRight ? distance : -distance;
     }
 
     /** Moves the fish <code>distance</code> units up.
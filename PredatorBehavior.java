@@ -0,0 +1,170 @@
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The PredatorBehavior class makes fish hunt.  A predator swims like
+ *      any other fish, and then eats at most one nearby fish that is
+ *      smaller than itself (fish are 30, 45, 60, or 75 pixels long).
+ * <br> <br>
+ *      Nearby fish are found with a {@link SpatialGrid} over the whole
+ *      aquarium, so each step costs time in proportion to the number of
+ *      fish rather than to the number of predator/prey pairs.  Eaten fish
+ *      are only marked as eaten; they stay in the aquarium until
+ *      {@link Aquarium#removeEatenFish} removes them all at once at the
+ *      end of the step (see {@link BehaviorScheduler#step}).
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see SpatialGrid
+ **/
+public class PredatorBehavior implements FishBehavior
+{
+    // STATE
+
+    // Named constants for the default reach of a predator.
+    public static final int DEFAULT_REACH = 20;
+    private static final int INITIAL_CANDIDATES = 32;
+
+    // Instance Variables
+    private final int reach;       // how far beyond its own half-length
+                                   //    a predator can catch prey
+    private SpatialGrid grid;      // all fish in the aquarium, by position
+    private int gridWidth, gridHeight;   // size of the aquarium it covers
+    private int[] candidates = new int[INITIAL_CANDIDATES];   // grows
+
+    // OPERATIONS (constructors and methods)
+
+    /**
+     *  Constructs a predator behavior with the default reach.
+     **/
+    public PredatorBehavior()
+    {
+        this(DEFAULT_REACH);
+    }
+
+    /**
+     *  Constructs a predator behavior.
+     *  @param  reach   how far (in pixels) beyond half its own length a
+     *                  predator can catch prey
+     **/
+    public PredatorBehavior(int reach)
+    {
+        if ( reach < 0 )
+            throw new IllegalArgumentException("reach must not be negative");
+        this.reach = reach;
+    }
+
+    /**
+     *  Moves a single predator for one time step and lets it feed.
+     *  Looking for prey this way checks every fish in the aquarium;
+     *  use moveAll to move many predators.
+     *  @param  fish   the predator to move
+     **/
+    public void move(AquaFish fish)
+    {
+        swim(fish);
+        if ( ! fish.isEaten() )
+        {
+            for ( AquaFish prey : fish.aquarium().getFish() )
+            {
+                if ( canEat(fish, prey, prey.xCoord(), prey.yCoord()) )
+                {
+                    prey.markEaten();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     *  Moves every predator in a group for one time step, then lets each
+     *  one that has not itself been eaten feed.  Like move, each predator
+     *  eats the first fish in the aquarium's list that it can eat, but
+     *  only fish within reach are looked at.
+     *  @param  fish   the predators to move
+     **/
+    public void moveAll(List<AquaFish> fish)
+    {
+        int n = fish.size();
+        if ( n == 0 )
+            return;
+        for ( int i = 0; i < n; i++ )
+            swim(fish.get(i));
+
+        // Index every fish in the aquarium (prey need not be predators).
+        Aquarium aqua = fish.get(0).aquarium();
+        List<AquaFish> everyone = aqua.getFish();
+        int radius = AquaFish.MAX_LENGTH + reach;
+        if ( grid == null || gridWidth != aqua.width()
+                || gridHeight != aqua.height() )
+        {
+            grid = new SpatialGrid(aqua.width(), aqua.height(), radius);
+            gridWidth = aqua.width();
+            gridHeight = aqua.height();
+        }
+        grid.build(everyone);
+
+        for ( int i = 0; i < n; i++ )
+        {
+            AquaFish predator = fish.get(i);
+            if ( predator.isEaten() )
+                continue;
+            int found = nearby(predator, radius);
+            int meal = -1;
+            for ( int k = 0; k < found; k++ )
+            {
+                int j = candidates[k];
+                if ( (meal < 0 || j < meal)
+                        && canEat(predator, everyone.get(j),
+                                  grid.x(j), grid.y(j)) )
+                    meal = j;
+            }
+            if ( meal >= 0 )
+                everyone.get(meal).markEaten();
+        }
+    }
+
+    /**
+     *  Finds every fish within the given radius of a predator, growing
+     *  the candidates array until all of them fit.
+     *  @return the number of fish found (their indices are in candidates)
+     **/
+    private int nearby(AquaFish predator, int radius)
+    {
+        int found;
+        while ( (found = grid.neighbors(predator.xCoord(), predator.yCoord(),
+                    radius, -1, candidates, candidates.length))
+                == candidates.length )
+            candidates = new int[2 * candidates.length];
+        return found;
+    }
+
+    /**
+     *  Moves a predator forward, turning around at walls.
+     **/
+    private static void swim(AquaFish fish)
+    {
+        if ( fish.atWall() )
+            fish.changeDir();
+        fish.moveForward();
+    }
+
+    /**
+     *  Determines whether a predator can eat a fish at the given position:
+     *  the fish must be smaller, not yet eaten, and close enough that the
+     *  two overlap once the predator's reach is added in.
+     **/
+    private boolean canEat(AquaFish predator, AquaFish prey, int x, int y)
+    {
+        if ( prey.length() >= predator.length() || prey.isEaten() )
+            return false;
+        int closeX = (predator.length() + prey.length()) / 2 + reach;
+        int closeY = (predator.height() + prey.height()) / 2;
+        return Math.abs(x - predator.xCoord()) <= closeX
+            && Math.abs(y - predator.yCoord()) <= closeY;
+    }
+
+}
@@ -0,0 +1,365 @@
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The ReplayReader class plays back a run recorded by
+ *      {@link ReplayWriter}.  Steps can be read one after another with
+ *      <code>next</code>, or the reader can jump straight to any step with
+ *      <code>seek</code>, which finds the nearest keyframe at or before the
+ *      step in the file's index and then decodes at most K records.
+ * <br> <br>
+ *      The reader keeps the state of the fish as of the last step read in
+ *      a snapshot that is reused from step to step; see
+ *      <code>current</code>.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see ReplayWriter
+ * @see AquaSnapshot
+ **/
+public class ReplayReader implements AutoCloseable
+{
+    // STATE
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;     // the replay file
+    private final ByteBuffer buffer;       // input read ahead of time
+    private long filePosition;             // file offset of next byte to
+                                           //    load into the buffer
+    private final int width, height;       // size of the recorded aquarium
+    private final int keyframeEvery;       // K
+    private final long[] keySteps;         // keyframe index
+    private final long[] keyOffsets;
+    private final long lastStep;           // step of the last record
+    private final long stepCount;          // number of records
+    private final long indexOffset;        // where the records end
+    private final AquaSnapshot state = new AquaSnapshot();
+    private boolean hasState = false;
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Opens a replay file.
+     *  @param  file   the file to read
+     *  @throws IOException if the file cannot be read or is not a replay
+     **/
+    public ReplayReader(File file) throws IOException
+    {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try
+        {
+            // Read the trailer, then the index it points to.
+            long size = channel.size();
+            ByteBuffer trailer = readFully(size - 12, 12);
+            indexOffset = trailer.getLong();
+            if ( trailer.getInt() != ReplayWriter.INDEX_MAGIC )
+                throw new IOException(file + " is not a complete replay file");
+            ByteBuffer index = readFully(indexOffset, (int) (size - 12 - indexOffset));
+            int keyCount = index.getInt();
+            keySteps = new long[keyCount];
+            keyOffsets = new long[keyCount];
+            for ( int k = 0; k < keyCount; k++ )
+            {
+                keySteps[k] = index.getLong();
+                keyOffsets[k] = index.getLong();
+            }
+            lastStep = index.getLong();
+            stepCount = index.getLong();
+
+            // Read the header and leave the reader at the first record.
+            moveTo(0);
+            if ( readInt() != ReplayWriter.MAGIC )
+                throw new IOException(file + " is not a replay file");
+            if ( readInt() != ReplayWriter.VERSION )
+                throw new IOException(file + " has an unknown version");
+            width = readInt();
+            height = readInt();
+            keyframeEvery = readInt();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     *  Gets the width of the recorded aquarium.
+     *  @return the width
+     **/
+    public int width()
+    {
+        return width;
+    }
+
+    /**
+     *  Gets the height of the recorded aquarium.
+     *  @return the height
+     **/
+    public int height()
+    {
+        return height;
+    }
+
+    /**
+     *  Gets the number of steps recorded.
+     *  @return the number of steps
+     **/
+    public long stepCount()
+    {
+        return stepCount;
+    }
+
+    /**
+     *  Gets the step number of the first step recorded.
+     *  @return the first step, or -1 if nothing was recorded
+     **/
+    public long firstStep()
+    {
+        return (keySteps.length > 0) ? keySteps[0] : -1;
+    }
+
+    /**
+     *  Gets the step number of the last step recorded.
+     *  @return the last step, or -1 if nothing was recorded
+     **/
+    public long lastStep()
+    {
+        return lastStep;
+    }
+
+    /**
+     *  Gets the state of the fish as of the last step read.  The snapshot
+     *  is reused, so it changes with every call to next or seek.
+     *  @return the current state
+     **/
+    public AquaSnapshot current()
+    {
+        return state;
+    }
+
+    /**
+     *  Reads the next step.
+     *  @return <code>true</code> if a step was read; <code>false</code> at
+     *          the end of the recording
+     *  @throws IOException if the file cannot be read
+     **/
+    public boolean next() throws IOException
+    {
+        if ( position() >= indexOffset )
+            return false;
+        readRecord();
+        return true;
+    }
+
+    /**
+     *  Moves to the given step, so that <code>current</code> describes
+     *  the fish as they were then.  If that step was not recorded, moves
+     *  to the last recorded step before it.
+     *  @param  step   the step to move to
+     *  @throws IOException if the file cannot be read
+     *  @throws IllegalArgumentException if the step is before the start
+     *          of the recording
+     **/
+    public void seek(long step) throws IOException
+    {
+        // Binary search for the last keyframe at or before the step.
+        int low = 0;
+        int high = keySteps.length - 1;
+        if ( high < 0 || step < keySteps[0] )
+            throw new IllegalArgumentException("step " + step
+                                               + " was not recorded");
+        while ( low < high )
+        {
+            int mid = (low + high + 1) >>> 1;
+            if ( keySteps[mid] <= step )
+                low = mid;
+            else
+                high = mid - 1;
+        }
+
+        // Read forward from there (unless we are already on the way).
+        if ( ! hasState || state.step > step || state.step < keySteps[low] )
+        {
+            moveTo(keyOffsets[low]);
+            readRecord();
+        }
+        while ( state.step < step && position() < indexOffset
+                && peekStep() <= step )
+            readRecord();
+    }
+
+    /**
+     *  Closes the file.
+     *  @throws IOException if the file cannot be closed
+     **/
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     *  Reads one record into the current state.
+     **/
+    private void readRecord() throws IOException
+    {
+        byte type = readByte();
+        long step = readVarLong();
+        int count = (int) readVarLong();
+        if ( type == ReplayWriter.KEYFRAME )
+        {
+            state.resize(count);
+            int lastRGB = -1;
+            int lastColor = -1;
+            for ( int i = 0; i < count; i++ )
+            {
+                state.ids[i] = (int) readVarLong();
+                state.lengths[i] = (int) readVarLong();
+                state.xs[i] = (int) unzigzag(readVarLong());
+                state.ys[i] = (int) unzigzag(readVarLong());
+                int rgb = (int) readVarLong();
+                if ( rgb != lastRGB )
+                {
+                    lastRGB = rgb;
+                    lastColor = FishPalette.intern(rgb);
+                }
+                state.colors[i] = lastColor;
+                state.facingRight[i] = (readByte() != 0);
+            }
+        }
+        else if ( type == ReplayWriter.DELTA && hasState
+                  && count == state.count )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                long head = readVarLong();
+                state.xs[i] += (int) unzigzag(head >>> 2);
+                if ( (head & 2) != 0 )
+                    state.facingRight[i] = ! state.facingRight[i];
+                if ( (head & 1) != 0 )
+                    state.ys[i] += (int) unzigzag(readVarLong());
+            }
+        }
+        else
+            throw new IOException("corrupt replay record at step " + step);
+        state.step = step;
+        hasState = true;
+    }
+
+    /**
+     *  Looks at the step number of the next record without reading it.
+     **/
+    private long peekStep() throws IOException
+    {
+        long start = position();
+        readByte();
+        long step = readVarLong();
+        moveTo(start);
+        return step;
+    }
+
+    /**
+     *  Undoes ReplayWriter.zigzag.
+     **/
+    private static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     *  Reads a number written by ReplayWriter.putVarLong.
+     **/
+    private long readVarLong() throws IOException
+    {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do
+        {
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ( b < 0 );
+        return value;
+    }
+
+    /**
+     *  Reads a four-byte big-endian number.
+     **/
+    private int readInt() throws IOException
+    {
+        int value = 0;
+        for ( int i = 0; i < 4; i++ )
+            value = (value << 8) | (readByte() & 0xFF);
+        return value;
+    }
+
+    /**
+     *  Reads one byte, refilling the buffer from the file if needed.
+     **/
+    private byte readByte() throws IOException
+    {
+        if ( ! buffer.hasRemaining() )
+        {
+            buffer.clear();
+            int n = channel.read(buffer, filePosition);
+            buffer.flip();
+            if ( n <= 0 )
+                throw new EOFException("unexpected end of replay file");
+            filePosition += n;
+        }
+        return buffer.get();
+    }
+
+    /**
+     *  Gets the file offset of the next byte to be read.
+     **/
+    private long position()
+    {
+        return filePosition - buffer.remaining();
+    }
+
+    /**
+     *  Makes the next byte read come from the given file offset.  If that
+     *  offset is already in the buffer, no file access is needed.
+     **/
+    private void moveTo(long offset)
+    {
+        long bufferStart = filePosition - buffer.limit();
+        if ( offset >= bufferStart && offset <= filePosition )
+            buffer.position((int) (offset - bufferStart));
+        else
+        {
+            buffer.clear();
+            buffer.limit(0);
+            filePosition = offset;
+        }
+    }
+
+    /**
+     *  Reads the given number of bytes from the given file offset into a
+     *  new buffer.
+     **/
+    private ByteBuffer readFully(long offset, int length) throws IOException
+    {
+        if ( offset < 0 || length < 0 )
+            throw new IOException("not a replay file");
+        ByteBuffer b = ByteBuffer.allocate(length);
+        while ( b.hasRemaining() )
+            if ( channel.read(b, offset + b.position()) < 0 )
+                throw new EOFException("unexpected end of replay file");
+        b.flip();
+        return b;
+    }
+
+}
@@ -0,0 +1,300 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The ReplayWriter class records a simulation run to a file, so that
+ *      it can be watched again later (see {@link ReplayReader}) without
+ *      re-running the simulation.
+ * <br> <br>
+ *      Most steps change very little: each fish moves 10 to 70 pixels
+ *      sideways and now and then turns around.  So rather than save every
+ *      fish in full every step, the file holds a full <i>keyframe</i> every
+ *      K steps and, in between, only the change in each fish's position
+ *      and direction since the step before, packed into variable-length
+ *      integers (usually two bytes per fish).  A keyframe is also written
+ *      whenever the set of fish changes.  At the end of the file is an
+ *      index of the keyframes, so that a reader can jump to any step by
+ *      decoding at most K records.
+ * <br> <br>
+ *      File layout (all fixed-size numbers are big-endian):
+ *      <pre>
+ *      header    int magic "AQRP", int version, int width, int height,
+ *                int keyframe interval K
+ *      records   keyframe: byte 1, varlong step, varint count, then per
+ *                          fish varint id, length, x, y, rgb, byte facing
+ *                delta:    byte 2, varlong step, varint count, then per
+ *                          fish varlong (zigzag(dx) &lt;&lt; 2 | flipped &lt;&lt; 1
+ *                          | movedVertically) and, if movedVertically,
+ *                          varint zigzag(dy)
+ *      index     int n, n x (long step, long offset), long last step,
+ *                long number of steps
+ *      trailer   long index offset, int magic "AQIX"
+ *      </pre>
+ *      Output goes through a <code>FileChannel</code> using a large direct
+ *      buffer.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see ReplayReader
+ * @see AquaSnapshot
+ **/
+public class ReplayWriter implements AutoCloseable
+{
+    // STATE
+
+    static final int MAGIC = 0x41515250;         // "AQRP"
+    static final int INDEX_MAGIC = 0x41514958;   // "AQIX"
+    static final int VERSION = 1;
+    static final byte KEYFRAME = 1;
+    static final byte DELTA = 2;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int MAX_FISH_BYTES = 40;   // most one fish takes
+
+    private final FileChannel channel;     // the output file
+    private final ByteBuffer buffer;       // output waiting to be written
+    private long bufferStart = 0;          // file offset of buffer's start
+    private final int keyframeEvery;       // K
+    private final AquaSnapshot current = new AquaSnapshot();
+    private final AquaSnapshot previous = new AquaSnapshot();
+    private boolean hasPrevious = false;
+    private long stepsWritten = 0;
+    private long sinceKeyframe = 0;        // records since last keyframe
+    private long[] keySteps = new long[16];     // keyframe index
+    private long[] keyOffsets = new long[16];
+    private int keyCount = 0;
+    private boolean closed = false;
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Creates a replay file (replacing any file with the same name).
+     *  @param  file            the file to write
+     *  @param  width           width of the aquarium being recorded
+     *  @param  height          height of the aquarium being recorded
+     *  @param  keyframeEvery   write a full keyframe at least this often
+     *  @throws IOException if the file cannot be created
+     **/
+    public ReplayWriter(File file, int width, int height, int keyframeEvery)
+        throws IOException
+    {
+        if ( keyframeEvery <= 0 )
+            throw new IllegalArgumentException(
+                "keyframe interval must be positive");
+        this.keyframeEvery = keyframeEvery;
+        this.channel = FileChannel.open(file.toPath(),
+                                        StandardOpenOption.CREATE,
+                                        StandardOpenOption.WRITE,
+                                        StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(width);
+        buffer.putInt(height);
+        buffer.putInt(keyframeEvery);
+    }
+
+    /**
+     *  Records the state of an aquarium's fish.
+     *  @param  aqua   the aquarium
+     *  @param  step   the current step number; must be larger than the
+     *                 step last written
+     *  @throws IOException if the file cannot be written
+     **/
+    public void writeStep(Aquarium aqua, long step) throws IOException
+    {
+        current.capture(aqua, step);
+        writeStep(current);
+    }
+
+    /**
+     *  Records the state of the fish in a snapshot.
+     *  @param  snap   the snapshot; its step number must be larger than
+     *                 the step last written
+     *  @throws IOException if the file cannot be written
+     **/
+    public void writeStep(AquaSnapshot snap) throws IOException
+    {
+        if ( closed )
+            throw new IllegalStateException("replay writer is closed");
+        if ( hasPrevious && snap.step <= previous.step )
+            throw new IllegalArgumentException("steps must increase");
+
+        if ( needsKeyframe(snap) )
+            writeKeyframe(snap);
+        else
+            writeDelta(snap);
+        copyToPrevious(snap);
+        stepsWritten++;
+    }
+
+    /**
+     *  Finishes the file: writes the keyframe index and closes it.
+     *  @throws IOException if the file cannot be written
+     **/
+    public void close() throws IOException
+    {
+        if ( closed )
+            return;
+        closed = true;
+        try
+        {
+            long indexOffset = offset();
+            ensure(4);
+            buffer.putInt(keyCount);
+            for ( int k = 0; k < keyCount; k++ )
+            {
+                ensure(16);
+                buffer.putLong(keySteps[k]);
+                buffer.putLong(keyOffsets[k]);
+            }
+            ensure(28);
+            buffer.putLong(hasPrevious ? previous.step : -1);
+            buffer.putLong(stepsWritten);
+            buffer.putLong(indexOffset);
+            buffer.putInt(INDEX_MAGIC);
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    /**
+     *  Decides whether a snapshot must be written as a keyframe: the first
+     *  one, every K-th one, and any whose fish differ from the last step.
+     **/
+    private boolean needsKeyframe(AquaSnapshot snap)
+    {
+        if ( ! hasPrevious || sinceKeyframe >= keyframeEvery - 1
+                || snap.count != previous.count )
+            return true;
+        for ( int i = 0; i < snap.count; i++ )
+            if ( snap.ids[i] != previous.ids[i] )
+                return true;
+        return false;
+    }
+
+    /**
+     *  Writes every fish in full, and remembers where.
+     **/
+    private void writeKeyframe(AquaSnapshot snap) throws IOException
+    {
+        ensure(1 + 10 + 5);
+        if ( keyCount == keySteps.length )
+        {
+            keySteps = Arrays.copyOf(keySteps, 2 * keyCount);
+            keyOffsets = Arrays.copyOf(keyOffsets, 2 * keyCount);
+        }
+        keySteps[keyCount] = snap.step;
+        keyOffsets[keyCount] = offset();
+        keyCount++;
+        sinceKeyframe = 0;
+
+        buffer.put(KEYFRAME);
+        putVarLong(snap.step);
+        putVarLong(snap.count);
+        for ( int i = 0; i < snap.count; i++ )
+        {
+            ensure(MAX_FISH_BYTES);
+            putVarLong(snap.ids[i] & 0xFFFFFFFFL);
+            putVarLong(snap.lengths[i]);
+            putVarLong(zigzag(snap.xs[i]));
+            putVarLong(zigzag(snap.ys[i]));
+            putVarLong(FishPalette.rgb(snap.colors[i]));
+            buffer.put((byte) (snap.facingRight[i] ? 1 : 0));
+        }
+    }
+
+    /**
+     *  Writes how each fish changed since the last step.
+     **/
+    private void writeDelta(AquaSnapshot snap) throws IOException
+    {
+        ensure(1 + 10 + 5);
+        sinceKeyframe++;
+        buffer.put(DELTA);
+        putVarLong(snap.step);
+        putVarLong(snap.count);
+        for ( int i = 0; i < snap.count; i++ )
+        {
+            ensure(MAX_FISH_BYTES);
+            long dx = (long) snap.xs[i] - previous.xs[i];
+            long dy = (long) snap.ys[i] - previous.ys[i];
+            long flipped = (snap.facingRight[i] != previous.facingRight[i])
+                ? 2 : 0;
+            putVarLong((zigzag(dx) << 2) | flipped | (dy != 0 ? 1 : 0));
+            if ( dy != 0 )
+                putVarLong(zigzag(dy));
+        }
+    }
+
+    /**
+     *  Remembers a snapshot as the previous step.
+     **/
+    private void copyToPrevious(AquaSnapshot snap)
+    {
+        previous.copyFrom(snap);
+        hasPrevious = true;
+    }
+
+    /**
+     *  Maps signed numbers to unsigned ones so that small negative numbers
+     *  stay small (0, -1, 1, -2, ... become 0, 1, 2, 3, ...).
+     **/
+    static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     *  Writes a non-negative number in 7-bit groups, low bits first.
+     **/
+    private void putVarLong(long value)
+    {
+        while ( (value & ~0x7FL) != 0 )
+        {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     *  Gets the file offset of the next byte to be written.
+     **/
+    private long offset()
+    {
+        return bufferStart + buffer.position();
+    }
+
+    /**
+     *  Makes sure there is room in the buffer for the given number of
+     *  bytes, writing it out if not.
+     **/
+    private void ensure(int bytes) throws IOException
+    {
+        if ( buffer.remaining() < bytes )
+            flush();
+    }
+
+    /**
+     *  Writes everything in the buffer to the file.
+     **/
+    private void flush() throws IOException
+    {
+        buffer.flip();
+        while ( buffer.hasRemaining() )
+            bufferStart += channel.write(buffer);
+        buffer.clear();
+    }
+
+}
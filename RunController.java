@@ -0,0 +1,400 @@
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The RunController class runs a long simulation (or playback) in the
+ *      background and lets the user pause, resume, speed up, slow down, or
+ *      cancel it while it runs.
+ * <br> <br>
+ *      Every run uses the same single worker thread, which the controller
+ *      creates once and keeps until it is closed, so starting run after run
+ *      never leaves extra threads behind.  Only one run can be in progress
+ *      at a time.  The run loop checks for pause and cancel requests
+ *      before every step and while waiting between steps; the worker thread
+ *      is never interrupted, so a step (or a file read) is never cut off
+ *      half way.  Pacing and frame skipping are done by a
+ *      {@link FramePacer}.
+ * <br> <br>
+ *      If the run is set to interpolate, frames are also drawn while
+ *      waiting for the next step (up to FramePacer.MAX_FRAME_RATE a
+ *      second), so that a task using a {@link FrameInterpolator} can show
+ *      smooth motion between steps.
+ * <br> <br>
+ *      Apart from start and awaitCompletion, the methods only set flags
+ *      and return at once, so they can be called from the GUI's event
+ *      thread.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see FramePacer
+ **/
+public class RunController implements AutoCloseable
+{
+    /**
+     *  The work done by a run: steps, and frames showing them.
+     **/
+    public interface Task
+    {
+        /**
+         *  Takes one step.
+         *  @return <code>false</code> if there was nothing left to do
+         *  @throws IOException if the step needs input or output that
+         *          fails
+         **/
+        boolean step() throws IOException;
+
+        /**
+         *  Draws a frame showing the latest step.
+         *  @param  pacer   the run's pacer, whose rates may be shown
+         **/
+        void draw(FramePacer pacer);
+
+        /**
+         *  Called once the run has ended, however it ended (finished,
+         *  cancelled, or failed), after the last frame has been drawn.
+         *  By then the controller no longer counts the run as running,
+         *  so a run may be started from here (or from a GUI event it
+         *  triggers); it begins once this one's thread is free.
+         *  Does nothing unless overridden.
+         **/
+        default void runEnded()
+        {
+        }
+    }
+
+    // STATE
+
+    public static final double MAX_SPEED = 1000;   // fastest throttled rate
+
+    private final ExecutorService worker;    // the one thread runs use
+    private final FramePacer pacer;          // paces every run
+    private Future<?> current;               // the run in progress, or last
+    private boolean running;                 // guarded by this
+    private long stepsTaken;                 // by the current or last run
+    private boolean paused;                  // guarded by this
+    private boolean cancelled;               // guarded by this
+    private int wakeUps;                     // bumped to end a wait early
+    private volatile boolean interpolating;  // draw between steps?
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs a controller.
+     *  @param  stepsPerSecond  speed to run at, or FramePacer.UNTHROTTLED
+     *                          to run as fast as possible
+     **/
+    public RunController(double stepsPerSecond)
+    {
+        pacer = new FramePacer(stepsPerSecond);
+        worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "aquarium-run");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     *  Starts a run in the background.
+     *  @param  task       the steps and frames to run
+     *  @param  maxSteps   the most steps to take
+     *  @throws IllegalStateException if a run is already in progress, or
+     *          the controller has been closed
+     **/
+    public synchronized void start(Task task, long maxSteps)
+    {
+        if ( worker.isShutdown() )
+            throw new IllegalStateException("run controller is closed");
+        if ( isRunning() )
+            throw new IllegalStateException("a run is already in progress");
+        paused = false;
+        cancelled = false;
+        stepsTaken = 0;
+        running = true;
+        current = worker.submit(() -> { runLoop(task, maxSteps); return null; });
+    }
+
+    /**
+     *  Determines whether a run is in progress (even if it is paused).
+     *  @return <code>true</code> if a run is in progress
+     **/
+    public synchronized boolean isRunning()
+    {
+        return running;
+    }
+
+    /**
+     *  Determines whether the run is paused.
+     *  @return <code>true</code> if the run is paused
+     **/
+    public synchronized boolean isPaused()
+    {
+        return paused;
+    }
+
+    /**
+     *  Determines whether the current (or last) run was cancelled.
+     *  @return <code>true</code> if it was cancelled
+     **/
+    public synchronized boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     *  Gets the number of steps taken by the current (or last) run.
+     *  @return the number of steps taken
+     **/
+    public synchronized long stepsTaken()
+    {
+        return stepsTaken;
+    }
+
+    /**
+     *  Pauses the run after the step in progress.
+     **/
+    public synchronized void pause()
+    {
+        paused = true;
+        wakeUp();
+    }
+
+    /**
+     *  Resumes a paused run.
+     **/
+    public synchronized void resume()
+    {
+        paused = false;
+        wakeUp();
+    }
+
+    /**
+     *  Stops the run after the step in progress.  A paused run stops
+     *  without resuming.
+     **/
+    public synchronized void cancel()
+    {
+        cancelled = true;
+        wakeUp();
+    }
+
+    /**
+     *  Gets the speed the run is set to.
+     *  @return steps per second, or FramePacer.UNTHROTTLED
+     **/
+    public double speed()
+    {
+        return pacer.targetRate();
+    }
+
+    /**
+     *  Changes the speed of the run; this takes effect at once, even if
+     *  the run is waiting for its next step.
+     *  @param  stepsPerSecond  steps per second (up to MAX_SPEED), or
+     *                          FramePacer.UNTHROTTLED
+     **/
+    public synchronized void setSpeed(double stepsPerSecond)
+    {
+        pacer.setTargetRate(Math.min(stepsPerSecond, MAX_SPEED));
+        wakeUp();
+    }
+
+    /**
+     *  Chooses whether to draw frames between steps, for tasks that
+     *  interpolate (see FrameInterpolator).
+     *  @param  on   <code>true</code> to draw between steps
+     **/
+    public void setInterpolating(boolean on)
+    {
+        interpolating = on;
+    }
+
+    /**
+     *  Gets the pacer that times the runs.
+     *  @return the pacer
+     **/
+    public FramePacer pacer()
+    {
+        return pacer;
+    }
+
+    /**
+     *  Waits for the current run (if any) to finish.
+     *  @throws IOException if a step failed with an IOException
+     *  @throws InterruptedException if the calling thread is interrupted
+     *          while waiting
+     **/
+    public void awaitCompletion() throws IOException, InterruptedException
+    {
+        Future<?> run;
+        synchronized (this)
+        {
+            run = current;
+        }
+        if ( run == null )
+            return;
+        try
+        {
+            run.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+                throw (IOException) cause;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException) cause;
+            if ( cause instanceof Error )
+                throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     *  Cancels any run in progress and lets the worker thread end.
+     **/
+    public void close()
+    {
+        cancel();
+        worker.shutdown();
+    }
+
+    /**
+     *  Takes steps until the task runs out, maxSteps have been taken, or
+     *  the run is cancelled.  Runs on the worker thread.
+     **/
+    private void runLoop(Task task, long maxSteps) throws IOException
+    {
+        try
+        {
+            pacer.resync();
+            long n = 0;
+            while ( n < maxSteps && awaitUnpaused() )
+            {
+                long t0 = System.nanoTime();
+                if ( ! task.step() )
+                    break;
+                n++;
+                pacer.stepTaken(t0, System.nanoTime());
+                synchronized (this)
+                {
+                    stepsTaken = n;
+                }
+                if ( pacer.shouldDrawFrame() )
+                    draw(task);
+
+                // There is no need to wait after the last step.
+                long wait = pacer.scheduleNextStep();
+                if ( n < maxSteps )
+                    awaitNextStep(wait, task);
+            }
+
+            // Always show where the run ended.
+            pacer.stepsEnded();
+            draw(task);
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                running = false;
+            }
+            task.runEnded();
+        }
+    }
+
+    /**
+     *  Draws a frame and times it.
+     **/
+    private void draw(Task task)
+    {
+        long start = System.nanoTime();
+        task.draw(pacer);
+        pacer.frameDrawn(start, System.nanoTime());
+    }
+
+    /**
+     *  Waits while the run is paused.
+     *  @return <code>false</code> if the run has been cancelled
+     **/
+    private synchronized boolean awaitUnpaused()
+    {
+        boolean waited = false;
+        while ( paused && ! cancelled )
+        {
+            waited = true;
+            waitQuietly(0);
+        }
+        if ( waited )
+            pacer.resync();
+        return ! cancelled;
+    }
+
+    /**
+     *  Waits for the given time unless woken up sooner by a pause,
+     *  resume, cancel, or change of speed.  When interpolating, draws
+     *  frames while it waits, as long as there is time for them.
+     **/
+    private void awaitNextStep(long nanos, Task task)
+    {
+        long frameGap = 1000000000L / FramePacer.MAX_FRAME_RATE;
+        long deadline = System.nanoTime() + nanos;
+        long remaining = nanos;
+        int wakeUpsBefore;
+        synchronized (this)
+        {
+            wakeUpsBefore = wakeUps;
+        }
+        boolean wokenUp = false;
+        while ( remaining > 0 && ! wokenUp )
+        {
+            boolean drawing = interpolating
+                && remaining > frameGap + (long) (pacer.frameMillis() * 1e6);
+            long slice = drawing ? frameGap : remaining;
+            synchronized (this)
+            {
+                // wait(0) would mean forever, so wait at least a millisecond.
+                if ( wakeUps == wakeUpsBefore )
+                    waitQuietly(Math.max(1, slice / 1000000));
+                wokenUp = (wakeUps != wakeUpsBefore);
+            }
+            if ( drawing && ! wokenUp )
+                draw(task);
+            remaining = deadline - System.nanoTime();
+        }
+        if ( wokenUp )
+            pacer.resync();
+    }
+
+    /**
+     *  Waits on this object's monitor, treating an interrupt as a cancel.
+     **/
+    private synchronized void waitQuietly(long millis)
+    {
+        try
+        {
+            wait(millis);
+        }
+        catch (InterruptedException e)
+        {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     *  Ends any wait in progress on the worker thread.
+     **/
+    private synchronized void wakeUp()
+    {
+        wakeUps++;
+        notifyAll();
+    }
+
+}
@@ -0,0 +1,219 @@
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The SchoolingBehavior class moves a group of fish as a school,
+ *      using the three classic "boids" rules:
+ *      <ul>
+ *        <li>separation: drift away from fish that are too close,</li>
+ *        <li>alignment: turn to face the way most neighbors are facing,</li>
+ *        <li>cohesion: drift toward the center of nearby fish.</li>
+ *      </ul>
+ *      Fish in this simulation only swim horizontally, so separation and
+ *      cohesion become small vertical adjustments, alignment becomes a
+ *      change of direction, and the fish then move forward as usual.
+ * <br> <br>
+ *      Neighbors are found with a {@link SpatialGrid} instead of by looking
+ *      at every fish, and each fish considers at most the
+ *      <code>maxNeighbors</code> nearest of them (taking whichever the grid
+ *      came to first would favor some directions, and pull the whole school
+ *      that way).  The grid's cells are sized so that a fish's nearest
+ *      neighbors are usually in the cells right around it.
+ * <br> <br>
+ *      Steering is computed for all fish in parallel from the positions at
+ *      the start of the step; it is then applied one fish at a time, so the
+ *      random forward moves are drawn in the same order as in an ordinary
+ *      step.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see SpatialGrid
+ **/
+public class SchoolingBehavior implements FishBehavior
+{
+    // STATE
+
+    // Named constants for the default tuning of the school.
+    public static final int DEFAULT_RADIUS = 60;
+    public static final int DEFAULT_MAX_NEIGHBORS = 16;
+    public static final int MAX_VERTICAL_MOVE = 5;
+    static final int CHUNK_SIZE = 2048;           // fish per parallel task
+    private static final int MIN_CELL_SIZE = 4;   // smallest grid cell
+
+    // Instance Variables
+    private final int radius;           // how far away a neighbor can be
+    private final int separation;       // neighbors closer than this repel
+    private final int maxNeighbors;     // cap on neighbors per fish
+    private SpatialGrid grid;           // neighbor index, rebuilt each step
+    private int gridWidth, gridHeight;  // size of the aquarium it covers
+    private int gridCellSize;           //    and the size of its cells
+    private boolean[] facing = new boolean[0];   // directions, by fish
+    private int[] verticalMove = new int[0];     // steering results, by fish
+    private boolean[] turn = new boolean[0];
+
+    // OPERATIONS (constructors and methods)
+
+    /**
+     *  Constructs a schooling behavior with the default tuning.
+     **/
+    public SchoolingBehavior()
+    {
+        this(DEFAULT_RADIUS, DEFAULT_MAX_NEIGHBORS);
+    }
+
+    /**
+     *  Constructs a schooling behavior.
+     *  @param  radius        how close (in pixels) another fish must be to
+     *                        count as a neighbor
+     *  @param  maxNeighbors  maximum number of neighbors that any one fish
+     *                        takes into account
+     **/
+    public SchoolingBehavior(int radius, int maxNeighbors)
+    {
+        if ( radius <= 0 || maxNeighbors <= 0 )
+            throw new IllegalArgumentException(
+                    "radius and neighbor cap must be positive");
+        this.radius = radius;
+        this.separation = radius / 3;
+        this.maxNeighbors = maxNeighbors;
+    }
+
+    /**
+     *  Moves a single fish for one time step.  A fish on its own has no
+     *  school to follow, so it just swims.
+     *  @param  fish   the fish to move
+     **/
+    public void move(AquaFish fish)
+    {
+        if ( fish.atWall() )
+            fish.changeDir();
+        fish.moveForward();
+    }
+
+    /**
+     *  Moves every fish in a school for one time step.  Fish only school
+     *  with other fish in the same group.
+     *  @param  fish   the fish to move
+     **/
+    public void moveAll(List<AquaFish> fish)
+    {
+        int n = fish.size();
+        if ( n == 0 )
+            return;
+        Aquarium aqua = fish.get(0).aquarium();
+        int cellSize = cellSizeFor(aqua.width(), aqua.height(), n,
+                                   radius, maxNeighbors);
+        if ( grid == null || gridWidth != aqua.width()
+                || gridHeight != aqua.height() || gridCellSize != cellSize )
+        {
+            grid = new SpatialGrid(aqua.width(), aqua.height(), cellSize);
+            gridWidth = aqua.width();
+            gridHeight = aqua.height();
+            gridCellSize = cellSize;
+        }
+        if ( verticalMove.length < n )
+        {
+            facing = new boolean[n];
+            verticalMove = new int[n];
+            turn = new boolean[n];
+        }
+
+        // Work out how every fish wants to steer, in parallel.
+        grid.build(fish);
+        for ( int i = 0; i < n; i++ )
+            facing[i] = fish.get(i).isFacingRight();
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(c ->
+            steerRange(fish, c * CHUNK_SIZE, Math.min(n, (c + 1) * CHUNK_SIZE)));
+
+        // Then apply the steering and move forward, one fish at a time.
+        for ( int i = 0; i < n; i++ )
+        {
+            AquaFish f = fish.get(i);
+            if ( turn[i] )
+                f.changeDir();
+            f.moveVertically(verticalMove[i]);
+            if ( f.atWall() )
+                f.changeDir();
+            f.moveForward();
+        }
+    }
+
+    /**
+     *  Chooses the size of the grid's cells: about big enough to hold a
+     *  quarter of the neighbors a fish looks for, when the fish are spread
+     *  evenly (which measured fastest), but no bigger than the neighbor
+     *  radius.
+     *  @param  width          width of the aquarium
+     *  @param  height         height of the aquarium
+     *  @param  numFish        number of fish in the school
+     *  @param  radius         neighbor radius
+     *  @param  maxNeighbors   neighbors each fish looks for
+     *  @return the cell size (in pixels)
+     **/
+    static int cellSizeFor(int width, int height, int numFish, int radius,
+                           int maxNeighbors)
+    {
+        double side = Math.sqrt((double) width * height * maxNeighbors
+                                / (4.0 * Math.max(1, numFish)));
+        return (int) Math.max(MIN_CELL_SIZE, Math.min(radius, side));
+    }
+
+    /**
+     *  Computes steering for the fish with indices from..(to - 1).
+     **/
+    private void steerRange(List<AquaFish> fish, int from, int to)
+    {
+        int[] neighbors = new int[maxNeighbors];
+        long[] distances = new long[maxNeighbors];
+        for ( int i = from; i < to; i++ )
+        {
+            int x = grid.x(i);
+            int y = grid.y(i);
+            int found = grid.neighbors(x, y, radius, i,
+                                       neighbors, distances, maxNeighbors);
+            if ( found == 0 )
+            {
+                verticalMove[i] = 0;
+                turn[i] = false;
+                continue;
+            }
+
+            boolean facingRight = facing[i];
+            int sameWay = 0;
+            long sumY = 0;
+            int push = 0;
+            for ( int k = 0; k < found; k++ )
+            {
+                int j = neighbors[k];
+                int ny = grid.y(j);
+                sumY += ny;
+                if ( facing[j] == facingRight )
+                    sameWay++;
+
+                // Separation: neighbors that are too close push this fish
+                // up or down, away from them.  A neighbor at the same depth
+                // does not push either way.
+                if ( Math.abs(grid.x(j) - x) < separation
+                        && Math.abs(ny - y) < separation )
+                    push += (ny > y) ? -1 : (ny < y) ? 1 : 0;
+            }
+
+            // Alignment: turn around if at least two thirds of the
+            // neighbors are heading the other way.
+            turn[i] = 3 * (found - sameWay) >= 2 * found;
+
+            // Cohesion: drift toward the neighbors' average depth, then
+            // add the separation push.  Keep the adjustment small.
+            int cohesion = (int) Math.round((double) sumY / found) - y;
+            int move = cohesion / 4 + push * 2;
+            verticalMove[i] = Math.max(-MAX_VERTICAL_MOVE,
+                                       Math.min(MAX_VERTICAL_MOVE, move));
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The SchoolingBenchmark class times schooling fish in a full-HD
+ *      tank, and splits the time between the parts of a step: rebuilding
+ *      the SpatialGrid, finding each fish's neighbors (the steering pass,
+ *      which runs in parallel), and the rest of the step (applying the
+ *      steering and moving each fish forward, one fish at a time).  It
+ *      also prints the school's average depth before and after, which
+ *      should stay near the middle of the tank.  Run it from the command
+ *      line:
+ *      <pre>
+ *      java SchoolingBenchmark [numFish] [numSteps]
+ *      </pre>
+ * <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see SchoolingBehavior
+ * @see SpatialGrid
+ **/
+public class SchoolingBenchmark
+{
+    /**
+     *  Runs the benchmark.
+     *  @param  args   optional number of fish and number of steps
+     **/
+    public static void main(String[] args)
+    {
+        int numFish = (args.length > 0) ? Integer.parseInt(args[0]) : 50000;
+        int numSteps = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+
+        Aquarium aqua = new Aquarium(1920, 1080, 5);
+        aqua.addAll(AquaFish.createFish(aqua, numFish, 0xFFFFFF));
+        SchoolingBehavior school = new SchoolingBehavior();
+        for ( AquaFish fish : aqua.getFish() )
+            fish.setBehavior(school);
+        BehaviorScheduler scheduler = new BehaviorScheduler(aqua);
+        System.out.printf("%d fish, %d x %d: mean depth %.1f%n", numFish,
+                          aqua.width(), aqua.height(), meanDepth(aqua));
+
+        for ( int round = 0; round < 3; round++ )
+        {
+            long start = System.nanoTime();
+            for ( int step = 0; step < numSteps; step++ )
+                scheduler.step();
+            long elapsed = System.nanoTime() - start;
+
+            // Time the grid on its own, with the fish where they are now,
+            // over enough passes to even out the noise.
+            List<AquaFish> fish = aqua.getFish();
+            SpatialGrid grid = new SpatialGrid(aqua.width(), aqua.height(),
+                                SchoolingBehavior.cellSizeFor(aqua.width(),
+                                    aqua.height(), fish.size(),
+                                    SchoolingBehavior.DEFAULT_RADIUS,
+                                    SchoolingBehavior.DEFAULT_MAX_NEIGHBORS));
+            int[] neighbors = new int[SchoolingBehavior.DEFAULT_MAX_NEIGHBORS];
+            long[] distances = new long[neighbors.length];
+            int passes = Math.max(1, numSteps / 10);
+            long build = 0;
+            long query = 0;
+            long found = 0;
+            for ( int pass = 0; pass < passes; pass++ )
+            {
+                long buildStart = System.nanoTime();
+                grid.build(fish);
+                long queryStart = System.nanoTime();
+                found = 0;
+                for ( int i = 0; i < fish.size(); i++ )
+                    found += grid.neighbors(grid.x(i), grid.y(i),
+                                            SchoolingBehavior.DEFAULT_RADIUS,
+                                            i, neighbors, distances,
+                                            neighbors.length);
+                long queryEnd = System.nanoTime();
+                build += queryStart - buildStart;
+                query += queryEnd - queryStart;
+            }
+            build /= passes;
+            query /= passes;
+
+            double stepNanos = elapsed / (double) numSteps;
+            System.out.printf("round %d: %.1f steps/s; per step %.2f ms "
+                              + "(grid %.2f, neighbors %.2f, rest %.2f); "
+                              + "%.1f neighbors each; mean depth %.1f%n",
+                              round, 1e9 / stepNanos, stepNanos / 1e6,
+                              build / 1e6, query / 1e6,
+                              (stepNanos - build - query) / 1e6,
+                              found / (double) fish.size(),
+                              meanDepth(aqua));
+        }
+    }
+
+    /**
+     *  Works out the average y coordinate of the fish.
+     **/
+    private static double meanDepth(Aquarium aqua)
+    {
+        long sum = 0;
+        for ( AquaFish fish : aqua.getFish() )
+            sum += fish.yCoord();
+        return sum / (double) Math.max(1, aqua.getFish().size());
+    }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Aquarium Lab Series: <br>
+ *      The Simulation class owns the fish in an aquarium and moves them,
+ *      a batch of steps at a time.  Each call to step moves every fish
+ *      batchSize times in a row (see BehaviorScheduler) without stopping
+ *      in between, and then publishes a snapshot of where the fish are,
+ *      which getAllFish returns.  Copying the fish into a snapshot is the
+ *      only extra work, and it is done once a batch, so with big batches
+ *      a large aquarium runs nearly as fast as the bare scheduler.  If
+ *      intermediate frames are wanted (to watch every step), a snapshot
+ *      is published after every step of a batch instead.
+ * <br> <br>
+ *      A FrameListener, if set, is told of each snapshot as it is
+ *      published; the GUI uses this to draw it.  Snapshots are for
+ *      looking at, not changing: the Simulation takes turns filling two
+ *      snapshots, so a published snapshot stays as it is until the one
+ *      after it has been published, and is then reused.  Steps should
+ *      all be taken on one thread.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaSimGUI#step
+ * @see AquaSnapshot
+ **/
+public class Simulation
+{
+    /** Something that is told of each snapshot a Simulation publishes. **/
+    public interface FrameListener
+    {
+        /**
+         *  Receives a newly published snapshot.
+         *  @param  fish   the fish; must not be changed
+         **/
+        void frameReady(AquaSnapshot fish);
+    }
+
+    // STATE
+
+    private final Aquarium aqua;                  // aquarium being stepped
+    private final BehaviorScheduler scheduler;    // moves its fish
+    private int batchSize = 1;                    // steps per call to step
+    private boolean intermediateFrames = false;   // publish every step?
+    private FrameListener listener = null;        // told of each snapshot
+    private long stepNumber = 0;                  // steps taken so far
+    private volatile AquaSnapshot published = new AquaSnapshot();
+    private AquaSnapshot spare = new AquaSnapshot();   // filled next
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs a simulation of the fish already in an aquarium.
+     *  @param  aqua   the aquarium
+     **/
+    public Simulation(Aquarium aqua)
+    {
+        this(aqua, 0);
+    }
+
+    /**
+     *  Constructs a simulation, first adding some white fish to the
+     *  aquarium.
+     *  Precondition: the aquarium must be big enough to accommodate
+     *  the biggest fish (see AquaFish).
+     *  @param  aqua      the aquarium
+     *  @param  numFish   the number of fish to add
+     **/
+    public Simulation(Aquarium aqua, int numFish)
+    {
+        if ( numFish < 0 )
+            throw new IllegalArgumentException(
+                "number of fish must not be negative");
+        this.aqua = aqua;
+        aqua.addAll(AquaFish.createFish(aqua, numFish, 0xFFFFFF));
+        this.scheduler = new BehaviorScheduler(aqua);
+        published.capture(aqua, 0);
+    }
+
+    /**
+     *  Sets how many steps each call to step takes.
+     *  @param  steps   the number of steps in a batch
+     **/
+    public void setBatchSize(int steps)
+    {
+        if ( steps <= 0 )
+            throw new IllegalArgumentException("batch size must be positive");
+        batchSize = steps;
+    }
+
+    /**
+     *  Gets how many steps each call to step takes.
+     *  @return    the number of steps in a batch
+     **/
+    public int batchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     *  Chooses whether a snapshot is published after every step of a
+     *  batch, or only after the last (the default).
+     *  @param  everyStep   <code>true</code> to publish after every step
+     **/
+    public void setIntermediateFrames(boolean everyStep)
+    {
+        intermediateFrames = everyStep;
+    }
+
+    /**
+     *  Sets what is told of each snapshot as it is published.
+     *  @param  newListener   the listener, or <code>null</code> for none
+     **/
+    public void setFrameListener(FrameListener newListener)
+    {
+        listener = newListener;
+    }
+
+    /**
+     *  Moves every fish for a batch of steps.
+     *  @return    the number of steps taken so far
+     **/
+    public long step()
+    {
+        return step(batchSize);
+    }
+
+    /**
+     *  Moves every fish for the given number of steps, as one batch.
+     *  @param  steps   the number of steps to take
+     *  @return    the number of steps taken so far
+     **/
+    public long step(int steps)
+    {
+        for ( int s = 1; s <= steps; s++ )
+        {
+            scheduler.step();
+            stepNumber++;
+            if ( intermediateFrames || s == steps )
+                publish();
+        }
+        return stepNumber;
+    }
+
+    /**
+     *  Gets the number of steps taken so far.
+     *  @return    the number of steps taken
+     **/
+    public long stepNumber()
+    {
+        return stepNumber;
+    }
+
+    /**
+     *  Gets the aquarium being simulated.
+     *  @return    the aquarium
+     **/
+    public Aquarium aquarium()
+    {
+        return aqua;
+    }
+
+    /**
+     *  Gets the fish as of the last snapshot published: at the end of the
+     *  last batch, or of the last step if intermediate frames are on.
+     *  @return    the fish; must not be changed
+     **/
+    public AquaSnapshot getAllFish()
+    {
+        return published;
+    }
+
+    /**
+     *  Fills the spare snapshot with the fish as they are now, publishes
+     *  it, and tells the listener.
+     **/
+    private void publish()
+    {
+        AquaSnapshot next = spare;
+        next.capture(aqua, stepNumber);
+        spare = published;
+        published = next;
+        if ( listener != null )
+            listener.frameReady(next);
+    }
+
+}
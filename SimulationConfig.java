@@ -0,0 +1,524 @@
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Properties;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The SimulationConfig class holds the settings for an unattended
+ *      simulation run: the size of the aquarium, how many fish and steps,
+ *      the random seed, how many threads to use, how to render, and where
+ *      to write output.  Settings come from command-line arguments of the
+ *      form <code>--name=value</code>, from a properties file named with
+ *      <code>--config=file</code> (using the same names, without the
+ *      dashes), or both; later settings override earlier ones.
+ * <br> <br>
+ *      Settings:
+ *      <pre>
+ *      width, height   aquarium size in pixels          (600 x 480)
+ *      fish            number of fish                   (10)
+ *      steps           number of steps                  (15)
+ *      seed            random seed                      (none: varies)
+ *      parallelism     worker threads                   (all processors)
+ *      workers         worker processes to split a      (1: no split)
+ *                      headless swimming run across
+ *      behavior        swim or school                   (swim)
+ *      predators       number of the fish that hunt     (0)
+ *      render          none, raster, or gui             (none)
+ *      png, raw        directory for PNG / raw frames   (none)
+ *      frameEvery      write a frame every N steps      (1)
+ *      record          file to record the run to        (none)
+ *      keyframeEvery   full keyframe every N steps      (100)
+ *      replay          recorded file to play back       (none)
+ *      replayFrom      step to start playing back from  (the first)
+ *      speed           GUI steps per second, 0 for      (1; 25 for
+ *                      as fast as possible               playback)
+ *      interpolate     draw smooth motion between GUI   (false)
+ *                      steps (true or false)
+ *      history         GUI steps kept for stepping back (100)
+ *      heatmap         recount density overlay every N  (0: no overlay)
+ *                      frames
+ *      stats           CSV file for running statistics  (none)
+ *      statsEvery      write statistics every N steps   (100)
+ *      telemetry       serve live telemetry on this     (none; 0 for
+ *                      loopback port                     any free port)
+ *      engine          how the GUI steps the fish:      (scheduler)
+ *                      scheduler (runs by itself) or
+ *                      simulation (Single Step and Run
+ *                      buttons step a Simulation)
+ *      batch           steps per Single Step, and       (1)
+ *                      between frames of a Run, with
+ *                      the simulation engine
+ *      </pre>
+ *      <code>--headless</code> is short for <code>--render=none</code>.
+ *      Writing frames implies raster rendering, and playing back a
+ *      recording or using the simulation engine implies the GUI.
+ * <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see HeadlessSimulation
+ **/
+public class SimulationConfig
+{
+    /** Ways of drawing the aquarium during a run. **/
+    public enum RenderMode { NONE, RASTER, GUI }
+
+    // STATE
+
+    private int width = 600;                 // aquarium size
+    private int height = 480;
+    private int numFish = 10;                // number of fish
+    private int numSteps = 15;               // number of steps
+    private Long seed = null;                // random seed, or null
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int workers = 1;                 // worker processes
+    private String behavior = "swim";        // how ordinary fish move
+    private int numPredators = 0;            // how many fish hunt
+    private RenderMode render = RenderMode.NONE;
+    private String pngDirectory = null;      // where to write PNG frames
+    private String rawDirectory = null;      // where to write raw frames
+    private int frameEvery = 1;              // steps between frames
+    private String recordFile = null;        // where to record the run
+    private int keyframeEvery = 100;         // steps between keyframes
+    private String replayFile = null;        // recording to play back
+    private long replayFrom = -1;            // first step to play, or -1
+    private int heatmapEvery = 0;            // frames between recounts
+    private Double speed = null;             // GUI steps/s, or null
+    private boolean interpolate = false;     // draw between GUI steps?
+    private int history = 100;               // GUI steps kept, or 0
+    private String statsFile = null;         // where to write statistics
+    private int statsEvery = 100;            // steps between statistics
+    private Integer telemetryPort = null;    // telemetry port, or null
+    private String engine = "scheduler";     // how the GUI steps the fish
+    private int batch = 1;                   // steps per Simulation batch
+
+    // OPERATIONS
+
+    /**
+     *  Builds a configuration from command-line arguments.
+     *  @param  args   the arguments
+     *  @return the configuration
+     *  @throws IllegalArgumentException if an argument is not understood
+     *  @throws IOException if a configuration file cannot be read
+     **/
+    public static SimulationConfig fromArgs(String[] args) throws IOException
+    {
+        SimulationConfig config = new SimulationConfig();
+        for ( String arg : args )
+        {
+            if ( arg.equals("--headless") )
+            {
+                config.set("render", "none");
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if ( ! arg.startsWith("--") || equals < 0 )
+                throw new IllegalArgumentException("expected --name=value: "
+                                                   + arg);
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            if ( name.equals("config") )
+                config.load(value);
+            else
+                config.set(name, value);
+        }
+        config.check();
+        return config;
+    }
+
+    /**
+     *  Reads settings from a properties file.
+     *  @param  fileName   the file to read
+     *  @throws IOException if the file cannot be read
+     **/
+    public void load(String fileName) throws IOException
+    {
+        Properties props = new Properties();
+        try ( Reader in = new FileReader(fileName) )
+        {
+            props.load(in);
+        }
+        for ( String name : props.stringPropertyNames() )
+            set(name, props.getProperty(name).trim());
+    }
+
+    /**
+     *  Changes one setting.
+     *  @param  name    the name of the setting
+     *  @param  value   its new value
+     *  @throws IllegalArgumentException if the setting is unknown or the
+     *          value is not valid for it
+     **/
+    public void set(String name, String value)
+    {
+        try
+        {
+            switch ( name )
+            {
+                case "width":       width = Integer.parseInt(value); break;
+                case "height":      height = Integer.parseInt(value); break;
+                case "fish":        numFish = Integer.parseInt(value); break;
+                case "steps":       numSteps = Integer.parseInt(value); break;
+                case "seed":        seed = Long.parseLong(value); break;
+                case "parallelism": parallelism = Integer.parseInt(value); break;
+                case "workers":     workers = Integer.parseInt(value); break;
+                case "behavior":    behavior = value; break;
+                case "predators":   numPredators = Integer.parseInt(value); break;
+                case "render":
+                    render = RenderMode.valueOf(value.toUpperCase());
+                    break;
+                case "png":         pngDirectory = value; break;
+                case "raw":         rawDirectory = value; break;
+                case "frameEvery":  frameEvery = Integer.parseInt(value); break;
+                case "record":      recordFile = value; break;
+                case "keyframeEvery":
+                    keyframeEvery = Integer.parseInt(value);
+                    break;
+                case "replay":      replayFile = value; break;
+                case "replayFrom":  replayFrom = Long.parseLong(value); break;
+                case "heatmap":     heatmapEvery = Integer.parseInt(value); break;
+                case "speed":       speed = Double.parseDouble(value); break;
+                case "interpolate": interpolate = parseBoolean(name, value);
+                                    break;
+                case "history":     history = Integer.parseInt(value); break;
+                case "stats":       statsFile = value; break;
+                case "statsEvery":  statsEvery = Integer.parseInt(value); break;
+                case "telemetry":   telemetryPort = Integer.parseInt(value);
+                                    break;
+                case "engine":      engine = value; break;
+                case "batch":       batch = Integer.parseInt(value); break;
+                default:
+                    throw new IllegalArgumentException("unknown setting: "
+                                                       + name);
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException("bad value for " + name + ": "
+                                               + value);
+        }
+    }
+
+    /**
+     *  Reads a true or false setting.
+     **/
+    private static boolean parseBoolean(String name, String value)
+    {
+        if ( value.equalsIgnoreCase("true") )
+            return true;
+        if ( value.equalsIgnoreCase("false") )
+            return false;
+        throw new IllegalArgumentException("bad value for " + name + ": "
+                                           + value);
+    }
+
+    /**
+     *  Makes sure the settings make sense together.
+     *  @throws IllegalArgumentException if they do not
+     **/
+    public void check()
+    {
+        // The biggest fish (75 x 30) plus 10 pixels of padding all
+        // around must fit in the aquarium.
+        if ( width < AquaFish.MAX_LENGTH + 21 || height < 51 )
+            throw new IllegalArgumentException("aquarium is too small");
+        if ( numFish < 0 || numSteps < 0 || numPredators < 0
+                || heatmapEvery < 0 || history < 0
+                || (speed != null && ! (speed >= 0)) )
+            throw new IllegalArgumentException("counts and speed must not be negative");
+        if ( parallelism <= 0 || workers <= 0 || frameEvery <= 0
+                || keyframeEvery <= 0 || statsEvery <= 0 || batch <= 0 )
+            throw new IllegalArgumentException("parallelism, workers, "
+                + "frameEvery, keyframeEvery, statsEvery and batch must be "
+                + "positive");
+        if ( telemetryPort != null
+                && (telemetryPort < 0 || telemetryPort > 65535) )
+            throw new IllegalArgumentException("telemetry port must be "
+                                               + "between 0 and 65535");
+        if ( ! behavior.equals("swim") && ! behavior.equals("school") )
+            throw new IllegalArgumentException("unknown behavior: " + behavior);
+        if ( ! engine.equals("scheduler") && ! engine.equals("simulation") )
+            throw new IllegalArgumentException("unknown engine: " + engine);
+        if ( batch > 1 && ! usesSimulation() )
+            throw new IllegalArgumentException(
+                "batch only applies to the simulation engine");
+        if ( usesSimulation() )
+        {
+            if ( replayFile != null || recordFile != null
+                    || pngDirectory != null || rawDirectory != null
+                    || statsFile != null || telemetryPort != null
+                    || interpolate || workers > 1 )
+                throw new IllegalArgumentException("the simulation engine "
+                    + "only runs in the GUI, without playback, recording, "
+                    + "frames, statistics, telemetry, interpolation or "
+                    + "workers");
+            render = RenderMode.GUI;
+        }
+        if ( (pngDirectory != null || rawDirectory != null)
+                && render == RenderMode.NONE )
+            render = RenderMode.RASTER;
+        if ( replayFile != null )
+        {
+            if ( recordFile != null )
+                throw new IllegalArgumentException(
+                    "cannot record while playing back");
+            render = RenderMode.GUI;
+        }
+        if ( workers > 1 && (! behavior.equals("swim") || numPredators > 0
+                || render != RenderMode.NONE || recordFile != null
+                || statsFile != null || telemetryPort != null
+                || workers > width) )
+            throw new IllegalArgumentException("several workers can only run "
+                + "swimming fish, headless, without recording, statistics "
+                + "or telemetry, and with no more workers than pixels across");
+    }
+
+    /**
+     *  Gets the aquarium width.
+     *  @return    the aquarium width
+     **/
+    public int width()
+    {
+        return width;
+    }
+
+    /**
+     *  Gets the aquarium height.
+     *  @return    the aquarium height
+     **/
+    public int height()
+    {
+        return height;
+    }
+
+    /**
+     *  Gets the number of fish.
+     *  @return    the number of fish
+     **/
+    public int numFish()
+    {
+        return numFish;
+    }
+
+    /**
+     *  Gets the number of steps to run.
+     *  @return    the number of steps to run
+     **/
+    public int numSteps()
+    {
+        return numSteps;
+    }
+
+    /**
+     *  Gets the random seed, or <code>null</code> for none.
+     *  @return    the random seed, or <code>null</code> for none
+     **/
+    public Long seed()
+    {
+        return seed;
+    }
+
+    /**
+     *  Gets the number of worker threads to use.
+     *  @return    the number of worker threads to use
+     **/
+    public int parallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     *  Gets the number of worker processes to split the aquarium across.
+     *  @return    the number of worker processes (1 for a single process)
+     **/
+    public int workers()
+    {
+        return workers;
+    }
+
+    /**
+     *  Gets how to draw the aquarium.
+     *  @return    how to draw the aquarium
+     **/
+    public RenderMode render()
+    {
+        return render;
+    }
+
+    /**
+     *  Gets directory for PNG frames, or <code>null</code> for none.
+     *  @return    directory for PNG frames, or <code>null</code> for none
+     **/
+    public String pngDirectory()
+    {
+        return pngDirectory;
+    }
+
+    /**
+     *  Gets directory for raw frames, or <code>null</code> for none.
+     *  @return    directory for raw frames, or <code>null</code> for none
+     **/
+    public String rawDirectory()
+    {
+        return rawDirectory;
+    }
+
+    /**
+     *  Gets number of steps between frames written.
+     *  @return    number of steps between frames written
+     **/
+    public int frameEvery()
+    {
+        return frameEvery;
+    }
+
+    /**
+     *  Gets file to record the run to, or <code>null</code> for none.
+     *  @return    file to record the run to, or <code>null</code> for none
+     **/
+    public String recordFile()
+    {
+        return recordFile;
+    }
+
+    /**
+     *  Gets number of steps between keyframes in a recording.
+     *  @return    number of steps between keyframes in a recording
+     **/
+    public int keyframeEvery()
+    {
+        return keyframeEvery;
+    }
+
+    /**
+     *  Gets recording to play back, or <code>null</code> for none.
+     *  @return    recording to play back, or <code>null</code> for none
+     **/
+    public String replayFile()
+    {
+        return replayFile;
+    }
+
+    /**
+     *  Gets step to start playing back from, or -1 for the first step.
+     *  @return    step to start playing back from, or -1 for the first
+     **/
+    public long replayFrom()
+    {
+        return replayFrom;
+    }
+
+    /**
+     *  Gets GUI steps per second (0 for as fast as possible).
+     *  @param  otherwise  the speed to use if none was given
+     *  @return    GUI steps per second (0 for as fast as possible)
+     **/
+    public double speed(double otherwise)
+    {
+        return (speed != null) ? speed : otherwise;
+    }
+
+    /**
+     *  Gets whether the GUI steps the fish with a Simulation, driven by
+     *  its Single Step and Run buttons, rather than running by itself.
+     *  @return    <code>true</code> for the simulation engine
+     **/
+    public boolean usesSimulation()
+    {
+        return engine.equals("simulation");
+    }
+
+    /**
+     *  Gets the number of steps in each batch the simulation engine takes.
+     *  @return    the number of steps in a batch
+     **/
+    public int batch()
+    {
+        return batch;
+    }
+
+    /**
+     *  Gets whether to draw smooth motion between GUI steps.
+     *  @return    <code>true</code> to interpolate between steps
+     **/
+    public boolean interpolate()
+    {
+        return interpolate;
+    }
+
+    /**
+     *  Gets the number of GUI steps to keep for stepping back, or 0 for
+     *  none.
+     *  @return    steps to keep, or 0 to keep none
+     **/
+    public int history()
+    {
+        return history;
+    }
+
+    /**
+     *  Gets frames between density overlay recounts, or 0 for no overlay.
+     *  @return    frames between overlay recounts, or 0 for no overlay
+     **/
+    public int heatmapEvery()
+    {
+        return heatmapEvery;
+    }
+
+    /**
+     *  Gets file for running statistics, or <code>null</code> for none.
+     *  @return    file for running statistics, or <code>null</code> for none
+     **/
+    public String statsFile()
+    {
+        return statsFile;
+    }
+
+    /**
+     *  Gets number of steps between lines of statistics.
+     *  @return    number of steps between lines of statistics
+     **/
+    public int statsEvery()
+    {
+        return statsEvery;
+    }
+
+    /**
+     *  Gets the port to serve telemetry on (0 for any free port), or
+     *  <code>null</code> for no telemetry.
+     *  @return    telemetry port, or <code>null</code> for none
+     **/
+    public Integer telemetryPort()
+    {
+        return telemetryPort;
+    }
+
+    /**
+     *  Creates the aquarium described by these settings and fills it
+     *  with fish.
+     *  @return the new aquarium
+     **/
+    public Aquarium buildAquarium()
+    {
+        Aquarium aqua = (seed != null) ? new Aquarium(width, height, seed)
+                                       : new Aquarium(width, height);
+        FishBehavior schooling =
+            behavior.equals("school") ? new SchoolingBehavior() : null;
+        FishBehavior hunting = new PredatorBehavior();
+        List<AquaFish> fish = AquaFish.createFish(aqua, numFish, 0xFFFFFF);
+        for ( int i = 0; i < numFish; i++ )
+        {
+            if ( i < numPredators )
+                fish.get(i).setBehavior(hunting);
+            else if ( schooling != null )
+                fish.get(i).setBehavior(schooling);
+        }
+        aqua.addAll(fish);
+        return aqua;
+    }
+
+}
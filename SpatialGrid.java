@@ -0,0 +1,294 @@
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The SpatialGrid class is a uniform bucket grid over the centerpoints
+ *      of the fish in an aquarium.  It answers "which fish are within this
+ *      radius of a point?" by looking only at nearby cells instead of at
+ *      every fish, which keeps neighbor-based behaviors (schooling,
+ *      predators) close to linear in the number of fish.
+ * <br> <br>
+ *      The grid is rebuilt once per step with a counting sort, so it holds
+ *      a copy of each fish's position as of the last call to
+ *      <code>build</code>, both by fish and by cell (so that looking
+ *      through a cell reads memory in order).  Queries return indices into
+ *      the list that was passed to <code>build</code>.  A query that may
+ *      find more fish than it has room for keeps the nearest ones: it looks
+ *      at the cells in rings around the query point, nearest ring first,
+ *      and stops once no fish further out could be nearer than those it
+ *      has.  Once built, a grid may be queried from several threads at
+ *      once.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026, for schooling behavior.<br>
+ *
+ * @version 19 October 2026
+ * @see SchoolingBehavior
+ **/
+public class SpatialGrid
+{
+    // STATE
+
+    private final int cellSize;      // width and height of one grid cell
+    private final int cols, rows;    // number of cells across and down
+    private int[] cellStart;         // first slot in cellItems for each cell
+    private int[] cellItems;         // fish indices, sorted by cell
+    private int[] cellXs, cellYs;    // fish centerpoints, sorted by cell
+    private int[] fill;              // next free slot in each cell
+    private int[] xs, ys;            // fish centerpoints, by fish index
+    private int count;               // number of fish in the grid
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs an empty grid covering an aquarium of the given size.
+     *  @param  width     width of the area covered (in pixels)
+     *  @param  height    height of the area covered (in pixels)
+     *  @param  cellSize  width and height of a grid cell (in pixels); queries
+     *                    are cheapest when this is close to the query radius
+     **/
+    public SpatialGrid(int width, int height, int cellSize)
+    {
+        if ( cellSize <= 0 )
+            throw new IllegalArgumentException("cell size must be positive");
+        this.cellSize = cellSize;
+        this.cols = width / cellSize + 1;
+        this.rows = height / cellSize + 1;
+        this.cellStart = new int[cols * rows + 1];
+        this.fill = new int[cols * rows];
+        this.cellItems = new int[0];
+        this.cellXs = new int[0];
+        this.cellYs = new int[0];
+        this.xs = new int[0];
+        this.ys = new int[0];
+    }
+
+    /**
+     *  Rebuilds the grid from the current positions of the given fish.
+     *  @param  fish   the fish to index; query results are indices into
+     *                 this list
+     **/
+    public void build(List<AquaFish> fish)
+    {
+        count = fish.size();
+        if ( xs.length < count )
+        {
+            int capacity = Math.max(count, xs.length * 3 / 2);
+            xs = new int[capacity];
+            ys = new int[capacity];
+            cellItems = new int[capacity];
+            cellXs = new int[capacity];
+            cellYs = new int[capacity];
+        }
+
+        // Count the fish in each cell, remembering positions as we go.
+        Arrays.fill(cellStart, 0);
+        for ( int i = 0; i < count; i++ )
+        {
+            AquaFish f = fish.get(i);
+            xs[i] = f.xCoord();
+            ys[i] = f.yCoord();
+            cellStart[cellOf(xs[i], ys[i]) + 1]++;
+        }
+
+        // Turn the counts into starting offsets, then drop each fish (and
+        // a copy of its position) into its cell's slots.
+        for ( int c = 0; c < cols * rows; c++ )
+            cellStart[c + 1] += cellStart[c];
+        System.arraycopy(cellStart, 0, fill, 0, fill.length);
+        for ( int i = 0; i < count; i++ )
+        {
+            int slot = fill[cellOf(xs[i], ys[i])]++;
+            cellItems[slot] = i;
+            cellXs[slot] = xs[i];
+            cellYs[slot] = ys[i];
+        }
+    }
+
+    /**
+     *  Gets the number of fish indexed by the last call to build.
+     *  @return  the number of fish in the grid
+     **/
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     *  Gets the x coordinate that fish <code>index</code> had when the grid
+     *  was built.
+     *  @param  index   index of the fish in the list passed to build
+     *  @return the fish's x coordinate
+     **/
+    public int x(int index)
+    {
+        return xs[index];
+    }
+
+    /**
+     *  Gets the y coordinate that fish <code>index</code> had when the grid
+     *  was built.
+     *  @param  index   index of the fish in the list passed to build
+     *  @return the fish's y coordinate
+     **/
+    public int y(int index)
+    {
+        return ys[index];
+    }
+
+    /**
+     *  Finds fish whose centerpoints are within <code>radius</code> of the
+     *  given point.  If there are more than <code>max</code> of them, finds
+     *  the <code>max</code> nearest (of fish the same distance away, those
+     *  in nearer rings of cells, then earlier in a cell, are kept).  The
+     *  fish are reported in no particular order.
+     *  @param  x        x coordinate of the query point
+     *  @param  y        y coordinate of the query point
+     *  @param  radius   search radius (in pixels)
+     *  @param  exclude  index of a fish to leave out (usually the fish
+     *                   doing the asking), or -1
+     *  @param  out      array that receives the indices of the neighbors
+     *  @param  max      maximum number of neighbors to report
+     *  @return the number of neighbors stored in <code>out</code>
+     **/
+    public int neighbors(int x, int y, int radius, int exclude,
+                         int[] out, int max)
+    {
+        int limit = Math.min(max, out.length);
+        return neighbors(x, y, radius, exclude, out, new long[limit], limit);
+    }
+
+    /**
+     *  Finds fish whose centerpoints are within <code>radius</code> of the
+     *  given point, as the other neighbors method does, using an array
+     *  the caller provides for working space (so that nothing is
+     *  allocated).
+     *  @param  x          x coordinate of the query point
+     *  @param  y          y coordinate of the query point
+     *  @param  radius     search radius (in pixels)
+     *  @param  exclude    index of a fish to leave out, or -1
+     *  @param  out        array that receives the indices of the neighbors
+     *  @param  distances  working space, at least as long as the number of
+     *                     neighbors to report; receives the squares of
+     *                     their distances from the query point
+     *  @param  max        maximum number of neighbors to report
+     *  @return the number of neighbors stored in <code>out</code>
+     **/
+    public int neighbors(int x, int y, int radius, int exclude,
+                         int[] out, long[] distances, int max)
+    {
+        int limit = Math.min(max, Math.min(out.length, distances.length));
+        if ( limit <= 0 )
+            return 0;
+        long radiusSq = (long) radius * radius;
+        int col = clamp(x / cellSize, cols);
+        int row = clamp(y / cellSize, rows);
+        int lastRing = Math.max(Math.max(col, cols - 1 - col),
+                                Math.max(row, rows - 1 - row));
+        int found = 0;
+        for ( int ring = 0; ring <= lastRing; ring++ )
+        {
+            // Every fish in this ring of cells, or further out, is at least
+            // (ring - 1) cells away.  Once out is full it is kept as a
+            // max-heap, so distances[0] is the farthest kept.
+            long near = (long) (ring - 1) * cellSize;
+            if ( near > radius
+                    || (found == limit && near * near >= distances[0]) )
+                break;
+            for ( int r = row - ring; r <= row + ring; r++ )
+            {
+                if ( r < 0 || r >= rows )
+                    continue;
+                // Rows at the top and bottom of the ring are looked at
+                // whole; rows in between only at their two ends.
+                int step = (r == row - ring || r == row + ring)
+                           ? 1 : 2 * ring;
+                for ( int c = col - ring; c <= col + ring; c += step )
+                {
+                    if ( c < 0 || c >= cols )
+                        continue;
+
+                    // Skip the cell if all of it is too far away.
+                    long gapX = Math.max(0, Math.max((long) c * cellSize - x,
+                                            x - ((long) c + 1) * cellSize + 1));
+                    long gapY = Math.max(0, Math.max((long) r * cellSize - y,
+                                            y - ((long) r + 1) * cellSize + 1));
+                    long gap = gapX * gapX + gapY * gapY;
+                    if ( gap > radiusSq
+                            || (found == limit && gap >= distances[0]) )
+                        continue;
+                    int cell = r * cols + c;
+                    for ( int k = cellStart[cell]; k < cellStart[cell + 1];
+                          k++ )
+                    {
+                        long dx = cellXs[k] - x;
+                        long dy = cellYs[k] - y;
+                        long distance = dx * dx + dy * dy;
+                        if ( distance > radiusSq
+                                || (found == limit && distance >= distances[0])
+                                || cellItems[k] == exclude )
+                            continue;
+                        if ( found < limit )
+                        {
+                            out[found] = cellItems[k];
+                            distances[found++] = distance;
+                            if ( found == limit )
+                                for ( int h = limit / 2 - 1; h >= 0; h-- )
+                                    siftDown(out, distances, h, limit,
+                                             out[h], distances[h]);
+                        }
+                        else
+                            siftDown(out, distances, 0, limit,
+                                     cellItems[k], distance);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     *  Puts a fish into a max-heap (by distance) at position i, replacing
+     *  what was there, and moves it down until the heap is in order.
+     **/
+    private static void siftDown(int[] heap, long[] distances, int i, int n,
+                                 int item, long distance)
+    {
+        while ( 2 * i + 1 < n )
+        {
+            int child = 2 * i + 1;
+            if ( child + 1 < n && distances[child + 1] > distances[child] )
+                child++;
+            if ( distances[child] <= distance )
+                break;
+            heap[i] = heap[child];
+            distances[i] = distances[child];
+            i = child;
+        }
+        heap[i] = item;
+        distances[i] = distance;
+    }
+
+    /**
+     *  Determines which cell contains the given point.
+     **/
+    private int cellOf(int x, int y)
+    {
+        return clamp(y / cellSize, rows) * cols + clamp(x / cellSize, cols);
+    }
+
+    /**
+     *  Restricts a cell coordinate to the range 0 .. (limit - 1).
+     **/
+    private static int clamp(int value, int limit)
+    {
+        if ( value < 0 )
+            return 0;
+        if ( value >= limit )
+            return limit - 1;
+        return value;
+    }
+
+}
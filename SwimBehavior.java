@@ -0,0 +1,53 @@
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The SwimBehavior class is the default behavior for a fish: turn
+ *      around if at a wall, then move forward.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see FishBehavior
+ **/
+public final class SwimBehavior implements FishBehavior
+{
+    /** The one shared SwimBehavior; it has no state of its own. **/
+    public static final SwimBehavior INSTANCE = new SwimBehavior();
+
+    /**
+     *  Constructs the shared instance.
+     **/
+    private SwimBehavior()
+    {
+    }
+
+    /**
+     *  Moves a single fish for one time step.
+     *  @param  fish   the fish to move
+     **/
+    public void move(AquaFish fish)
+    {
+        if ( fish.atWall() )
+            fish.changeDir();
+        fish.moveForward();
+    }
+
+    /**
+     *  Moves every fish in a group for one time step.
+     *  @param  fish   the fish to move
+     **/
+    public void moveAll(List<AquaFish> fish)
+    {
+        for ( int i = 0, n = fish.size(); i < n; i++ )
+        {
+            AquaFish f = fish.get(i);
+            if ( f.atWall() )
+                f.changeDir();
+            f.moveForward();
+        }
+    }
+
+}
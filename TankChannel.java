@@ -0,0 +1,262 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      A TankChannel carries messages between the coordinator of a
+ *      distributed aquarium (see {@link DistributedTank}) and one of its
+ *      workers (see {@link TankWorker}), over a socket.  Each message is
+ *      an int length followed by that many bytes, the first of which says
+ *      what kind of message it is; fish travel in batches, FISH_BYTES
+ *      bytes each.  All numbers are big-endian.
+ * <br> <br>
+ *      Messages:
+ *      <pre>
+ *      HELLO    worker to coordinator: int worker number
+ *      SETUP    coordinator to worker: int width, int height, int left,
+ *               int right, long seed, then a batch of fish
+ *      STEP     coordinator to worker: int steps (0 or 1), then a batch
+ *               of fish that have swum into the worker's part
+ *      REPORT   worker to coordinator: long nanoseconds spent stepping,
+ *               int fish kept, then a batch of fish that have swum out
+ *      GATHER   coordinator to worker: (nothing more)
+ *      FISH     worker to coordinator: a batch of all the worker's fish
+ *      STOP     coordinator to worker: (nothing more)
+ *      batch    int count, then per fish int id, int rgb, int x, int y,
+ *               byte facing (1 for right)
+ *      </pre>
+ *      The channel is blocking, and reuses its buffers, growing them as
+ *      needed.  It counts the bytes it sends and receives.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see DistributedTank
+ **/
+public class TankChannel implements AutoCloseable
+{
+    // STATE
+
+    static final byte HELLO = 1;
+    static final byte SETUP = 2;
+    static final byte STEP = 3;
+    static final byte REPORT = 4;
+    static final byte GATHER = 5;
+    static final byte FISH = 6;
+    static final byte STOP = 7;
+    public static final int FISH_BYTES = 17;
+    private static final int MAX_MESSAGE = Integer.MAX_VALUE - 16;
+
+    private final SocketChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(4);
+    private ByteBuffer out = ByteBuffer.allocate(1 << 16);   // message
+                                                             //   being built
+    private ByteBuffer in = ByteBuffer.allocate(1 << 16);    // last received
+    private long bytesSent, bytesReceived;
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs a channel over a connected socket, which is made
+     *  blocking.
+     *  @param  channel   the connected socket
+     *  @throws IOException if the socket cannot be set up
+     **/
+    public TankChannel(SocketChannel channel) throws IOException
+    {
+        this.channel = channel;
+        channel.configureBlocking(true);
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    /**
+     *  Starts building a message, discarding any not yet sent.
+     *  @param  type   what kind of message it is
+     *  @param  room   bytes to make sure there is room for (more can be
+     *                 added with room)
+     *  @return the buffer to put the message into
+     **/
+    public ByteBuffer start(byte type, int room)
+    {
+        out.clear();
+        room(room + 1);
+        out.put(type);
+        return out;
+    }
+
+    /**
+     *  Makes sure the message being built has room for more bytes.
+     *  @param  bytes   the number of bytes to be added
+     *  @return the buffer to put them into (which may be a new one)
+     **/
+    public ByteBuffer room(int bytes)
+    {
+        if ( out.remaining() >= bytes )
+            return out;
+        long needed = (long) out.position() + bytes;
+        if ( needed > MAX_MESSAGE )
+            throw new IllegalStateException("message too big");
+        long size = Math.min(MAX_MESSAGE, Math.max(needed, 2L * out.capacity()));
+        ByteBuffer bigger = ByteBuffer.allocate((int) size);
+        out.flip();
+        bigger.put(out);
+        out = bigger;
+        return out;
+    }
+
+    /**
+     *  Adds a batch of fish to the message being built.
+     *  @param  fish    the fish
+     *  @param  from    index of the first fish to add
+     *  @param  to      index just past the last fish to add
+     **/
+    public void putFish(List<AquaFish> fish, int from, int to)
+    {
+        room(4 + (to - from) * FISH_BYTES);
+        out.putInt(to - from);
+        for ( int i = from; i < to; i++ )
+        {
+            AquaFish f = fish.get(i);
+            out.putInt(f.id());
+            out.putInt(f.rgb());
+            out.putInt(f.xCoord());
+            out.putInt(f.yCoord());
+            out.put((byte) (f.isFacingRight() ? 1 : 0));
+        }
+    }
+
+    /**
+     *  Sends the message built since start.
+     *  @throws IOException if it cannot be sent
+     **/
+    public void send() throws IOException
+    {
+        out.flip();
+        header.clear();
+        header.putInt(out.remaining());
+        header.flip();
+        bytesSent += header.remaining() + out.remaining();
+        ByteBuffer[] both = { header, out };
+        while ( out.hasRemaining() )
+            channel.write(both);
+    }
+
+    /**
+     *  Sends a message with nothing in it but its type.
+     *  @param  type   what kind of message it is
+     *  @throws IOException if it cannot be sent
+     **/
+    public void send(byte type) throws IOException
+    {
+        start(type, 0);
+        send();
+    }
+
+    /**
+     *  Waits for the next message of a given kind.
+     *  @param  expected   what kind of message it must be
+     *  @return the message, positioned just after its type
+     *  @throws IOException if the message cannot be read, or is not of
+     *          the expected kind
+     **/
+    public ByteBuffer receive(byte expected) throws IOException
+    {
+        ByteBuffer message = receive();
+        if ( message.get(0) != expected )
+            throw new IOException("expected message " + expected + ", got "
+                                  + message.get(0));
+        return message;
+    }
+
+    /**
+     *  Waits for the next message, of any kind.
+     *  @return the message, positioned just after its type (which is its
+     *          first byte)
+     *  @throws IOException if the message cannot be read
+     **/
+    public ByteBuffer receive() throws IOException
+    {
+        header.clear();
+        fill(header);
+        header.flip();
+        int length = header.getInt();
+        if ( length <= 0 || length > MAX_MESSAGE )
+            throw new IOException("bad message length " + length);
+        if ( in.capacity() < length )
+            in = ByteBuffer.allocate(Math.max(length, 2 * in.capacity()));
+        in.clear();
+        in.limit(length);
+        fill(in);
+        in.flip();
+        bytesReceived += 4 + length;
+        in.get();
+        return in;
+    }
+
+    /**
+     *  Reads a batch of fish from a received message and places them in
+     *  an aquarium (without adding them to it).
+     *  @param  message   the message, positioned at the batch
+     *  @param  aqua      the aquarium the fish will live in
+     *  @return the fish, in the order they were sent
+     **/
+    public static List<AquaFish> takeFish(ByteBuffer message, Aquarium aqua)
+    {
+        int count = message.getInt();
+        List<AquaFish> fish = new ArrayList<AquaFish>(count);
+        for ( int i = 0; i < count; i++ )
+        {
+            int id = message.getInt();
+            int rgb = message.getInt();
+            int x = message.getInt();
+            int y = message.getInt();
+            boolean facingRight = message.get() != 0;
+            fish.add(AquaFish.placeFish(aqua, id, rgb, x, y, facingRight));
+        }
+        return fish;
+    }
+
+    /**
+     *  Gets the number of bytes sent so far.
+     *  @return    the number of bytes sent
+     **/
+    public long bytesSent()
+    {
+        return bytesSent;
+    }
+
+    /**
+     *  Gets the number of bytes received so far.
+     *  @return    the number of bytes received
+     **/
+    public long bytesReceived()
+    {
+        return bytesReceived;
+    }
+
+    /**
+     *  Closes the socket.
+     *  @throws IOException if it cannot be closed
+     **/
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     *  Reads until the buffer is full.
+     **/
+    private void fill(ByteBuffer buffer) throws IOException
+    {
+        while ( buffer.hasRemaining() )
+            if ( channel.read(buffer) < 0 )
+                throw new EOFException("connection closed");
+    }
+
+}
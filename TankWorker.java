@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      A TankWorker runs one part of a distributed aquarium (see
+ *      {@link DistributedTank}) in its own process.  It owns the fish
+ *      whose centerpoints lie in one band of x coordinates, from
+ *      <code>left</code> up to (but not including) <code>right</code>.
+ * <br> <br>
+ *      The worker keeps its fish in an ordinary Aquarium as big as the
+ *      whole tank, so fish see the real walls and move exactly as they
+ *      would in a single process.  At each step it adds the fish that
+ *      have swum in from other parts, moves all of its fish once, and
+ *      sends back, in one batch, those that have swum out of its band.
+ *      Random moves come from the worker's own generator, seeded from the
+ *      run's seed and the worker's number, so a run with the same seed
+ *      and number of workers is repeatable.
+ * <br> <br>
+ *      Usage: <code>java TankWorker host port number</code>, where host
+ *      and port are where the coordinator is listening; the coordinator
+ *      normally starts its workers itself.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see DistributedTank
+ * @see TankChannel
+ **/
+public class TankWorker
+{
+    // STATE
+
+    private final TankChannel channel;   // to the coordinator
+    private Aquarium aqua;               // this worker's fish
+    private BehaviorScheduler scheduler;
+    private int left, right;             // band of x coordinates owned
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Connects to the coordinator and runs until told to stop.
+     *  @param    String args[]   host, port, and worker number
+     **/
+    public static void main(String args[])
+    {
+        if ( args.length != 3 )
+        {
+            System.err.println("usage: java TankWorker host port number");
+            System.exit(2);
+        }
+        try
+        {
+            SocketChannel socket = SocketChannel.open(new InetSocketAddress(
+                args[0], Integer.parseInt(args[1])));
+            try ( TankChannel channel = new TankChannel(socket) )
+            {
+                new TankWorker(channel).run(Integer.parseInt(args[2]));
+            }
+        }
+        catch (IOException e)
+        {
+            System.err.println("TankWorker " + args[2] + ": "
+                               + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     *  Constructs a worker that talks to the coordinator over a channel.
+     *  @param  channel   the channel to the coordinator
+     **/
+    public TankWorker(TankChannel channel)
+    {
+        this.channel = channel;
+    }
+
+    /**
+     *  Introduces the worker to the coordinator, then does as it is told
+     *  until told to stop.
+     *  @param  number   this worker's number
+     *  @throws IOException if the coordinator cannot be reached
+     **/
+    public void run(int number) throws IOException
+    {
+        channel.start(TankChannel.HELLO, 4).putInt(number);
+        channel.send();
+        setUp(channel.receive(TankChannel.SETUP), number);
+        while ( true )
+        {
+            ByteBuffer message = channel.receive();
+            byte type = message.get(0);
+            if ( type == TankChannel.STEP )
+                step(message);
+            else if ( type == TankChannel.GATHER )
+            {
+                List<AquaFish> fish = aqua.getFish();
+                channel.start(TankChannel.FISH, 0);
+                channel.putFish(fish, 0, fish.size());
+                channel.send();
+            }
+            else if ( type == TankChannel.STOP )
+                return;
+            else
+                throw new IOException("unexpected message " + type);
+        }
+    }
+
+    /**
+     *  Makes this worker's part of the aquarium from a SETUP message.
+     **/
+    private void setUp(ByteBuffer message, int number)
+    {
+        int width = message.getInt();
+        int height = message.getInt();
+        left = message.getInt();
+        right = message.getInt();
+        long seed = message.getLong();
+        aqua = new Aquarium(width, height, seed + number);
+        aqua.addAll(TankChannel.takeFish(message, aqua));
+        scheduler = new BehaviorScheduler(aqua);
+    }
+
+    /**
+     *  Handles a STEP message: takes in the fish that have arrived, moves
+     *  every fish (if asked to), and reports the fish that have left.
+     **/
+    private void step(ByteBuffer message) throws IOException
+    {
+        int steps = message.getInt();
+        aqua.addAll(TankChannel.takeFish(message, aqua));
+        long start = System.nanoTime();
+        for ( int s = 0; s < steps; s++ )
+            scheduler.step();
+        List<AquaFish> leaving = aqua.removeOutside(left, right);
+        long nanos = System.nanoTime() - start;
+        channel.start(TankChannel.REPORT, 12)
+               .putLong(nanos).putInt(aqua.getFish().size());
+        channel.putFish(leaving, 0, leaving.size());
+        channel.send();
+    }
+
+}
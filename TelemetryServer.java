@@ -0,0 +1,466 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The TelemetryServer class lets a running simulation be watched over
+ *      HTTP, without the GUI.  It listens on the loopback address only and
+ *      answers:
+ *      <ul>
+ *        <li><code>/status</code>: the latest step, fish count, achieved
+ *            steps per second, and running statistics, as one JSON
+ *            object;</li>
+ *        <li><code>/stream</code>: the same, as a stream of server-sent
+ *            events, one each time new figures are published;</li>
+ *        <li><code>/snapshot?max=N</code>: the positions of at most N fish
+ *            (every k-th fish, if there are more), as JSON, or as compact
+ *            binary with <code>&amp;format=binary</code>.</li>
+ *      </ul>
+ * <br>
+ *      The simulation thread calls publish after every step.  At most
+ *      PUBLISH_RATE times a second, publish copies a handful of numbers
+ *      into a new, unchanging Telemetry object and hands it over; it only
+ *      copies fish positions when a snapshot has been asked for, and then
+ *      only as many as were asked for.  Everything else (building JSON,
+ *      writing to the network) happens on the server's own threads, from
+ *      the published objects, so watching a run never slows its steps
+ *      down.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see AquaStats
+ **/
+public class TelemetryServer implements AutoCloseable
+{
+    // STATE
+
+    public static final int PUBLISH_RATE = 10;         // per second at most
+    public static final int DEFAULT_SNAPSHOT_FISH = 1000;
+    public static final int MAX_STREAMS = 8;           // watchers at once
+    private static final long NANOS = 1000000000L;
+    private static final long SNAPSHOT_WAIT = 2000;    // milliseconds
+
+    private final HttpServer server;
+    private final ExecutorService handlers;  // server's threads
+    private final AtomicInteger streams = new AtomicInteger();
+    private volatile Telemetry latest;       // last published figures
+    private final AtomicInteger positionsWanted = new AtomicInteger();
+                                             // fish asked for, or 0
+    private volatile boolean closed;
+    private long nextPublish;                // simulation thread only
+    private long lastStep, lastTime;         //   "
+    private double stepRate;                 //   "
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Starts a server on the loopback address.
+     *  @param  port   the port to listen on, or 0 for any free port
+     *  @throws IOException if the server cannot listen on that port
+     **/
+    public TelemetryServer(int port) throws IOException
+    {
+        server = HttpServer.create(
+            new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        handlers = Executors.newFixedThreadPool(MAX_STREAMS + 2, r -> {
+            Thread t = new Thread(r, "aquarium-telemetry");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(handlers);
+        server.createContext("/status", this::status);
+        server.createContext("/stream", this::stream);
+        server.createContext("/snapshot", this::snapshot);
+        server.start();
+    }
+
+    /**
+     *  Starts a server for an aquarium, giving the aquarium running
+     *  statistics if it has none, and publishes its starting state.
+     *  @param  aqua   the aquarium
+     *  @param  port   the port to listen on, or 0 for any free port
+     *  @return the server
+     *  @throws IOException if the server cannot listen on that port
+     **/
+    public static TelemetryServer forAquarium(Aquarium aqua, int port)
+        throws IOException
+    {
+        if ( aqua.stats() == null )
+            aqua.setStats(new AquaStats());
+        TelemetryServer server = new TelemetryServer(port);
+        server.publish(aqua, 0);
+        return server;
+    }
+
+    /**
+     *  Gets the port the server is listening on.
+     *  @return the port
+     **/
+    public int port()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     *  Publishes the state of the aquarium after a step, if it is time
+     *  to.  This is called on the simulation thread, and does little work.
+     *  @param  aqua   the aquarium
+     *  @param  step   the step just taken
+     **/
+    public void publish(Aquarium aqua, long step)
+    {
+        long now = System.nanoTime();
+        if ( now < nextPublish && positionsWanted.get() == 0 )
+            return;
+        nextPublish = now + NANOS / PUBLISH_RATE;
+        if ( lastTime != 0 && now > lastTime )
+            stepRate = (step - lastStep) * (double) NANOS / (now - lastTime);
+        lastStep = step;
+        lastTime = now;
+
+        Telemetry t = new Telemetry(aqua, step, stepRate);
+        int wanted = positionsWanted.getAndSet(0);
+        if ( wanted > 0 )
+            t.capturePositions(aqua.getFish(), wanted);
+        synchronized (this)
+        {
+            latest = t;
+            notifyAll();
+        }
+    }
+
+    /**
+     *  Stops the server, ending any streams.
+     **/
+    public void close()
+    {
+        closed = true;
+        synchronized (this)
+        {
+            notifyAll();
+        }
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    ///////////////////////////////////////
+    // Request handlers (server threads)
+    ///////////////////////////////////////
+
+    /**
+     *  Answers /status with the latest figures.
+     **/
+    private void status(HttpExchange exchange) throws IOException
+    {
+        Telemetry t = latest;
+        if ( t == null )
+            reply(exchange, 503, "text/plain", "no steps yet\n");
+        else
+            reply(exchange, 200, "application/json", t.toJson() + "\n");
+    }
+
+    /**
+     *  Answers /stream with an event for every new set of figures, until
+     *  the watcher goes away or the server is closed.
+     **/
+    private void stream(HttpExchange exchange) throws IOException
+    {
+        if ( streams.incrementAndGet() > MAX_STREAMS )
+        {
+            streams.decrementAndGet();
+            reply(exchange, 503, "text/plain", "too many streams\n");
+            return;
+        }
+        try
+        {
+            exchange.getResponseHeaders().set("Content-Type",
+                                              "text/event-stream");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            OutputStream out = exchange.getResponseBody();
+            Telemetry sent = null;
+            while ( ! closed )
+            {
+                Telemetry t = awaitNewer(sent, 1000);
+                if ( t == null || t == sent )
+                    continue;
+                out.write(("data: " + t.toJson() + "\n\n")
+                          .getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sent = t;
+            }
+            out.close();
+        }
+        catch (IOException e)
+        {
+            // The watcher has gone away.
+        }
+        finally
+        {
+            streams.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    /**
+     *  Answers /snapshot by asking the simulation thread for positions and
+     *  waiting for them.
+     **/
+    private void snapshot(HttpExchange exchange) throws IOException
+    {
+        String query = exchange.getRequestURI().getQuery();
+        int max;
+        try
+        {
+            max = Integer.parseInt(parameter(query, "max",
+                                   "" + DEFAULT_SNAPSHOT_FISH));
+        }
+        catch (NumberFormatException e)
+        {
+            max = -1;
+        }
+        if ( max <= 0 )
+        {
+            reply(exchange, 400, "text/plain", "max must be positive\n");
+            return;
+        }
+        boolean binary = parameter(query, "format", "json").equals("binary");
+
+        // Ask for positions and wait for a later step to provide them.
+        Telemetry before = latest;
+        long deadline = System.currentTimeMillis() + SNAPSHOT_WAIT;
+        Telemetry t = before;
+        while ( (t == before || t.ids == null || t.asked < max) && ! closed )
+        {
+            positionsWanted.accumulateAndGet(max, Math::max);
+            long left = deadline - System.currentTimeMillis();
+            if ( left <= 0 )
+                break;
+            t = awaitNewer(t, left);
+        }
+        if ( t == before || t.ids == null || t.asked < max )
+        {
+            reply(exchange, 503, "text/plain", "no steps are being taken\n");
+            return;
+        }
+        if ( binary )
+            reply(exchange, 200, "application/octet-stream", t.toBinary(max));
+        else
+            reply(exchange, 200, "application/json",
+                  t.positionsJson(max) + "\n");
+    }
+
+    /**
+     *  Waits until figures newer than the given ones are published.
+     *  @return the latest figures (possibly still the same, if the wait
+     *          timed out)
+     **/
+    private synchronized Telemetry awaitNewer(Telemetry seen, long millis)
+    {
+        try
+        {
+            if ( latest == seen && ! closed )
+                wait(millis);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+        return latest;
+    }
+
+    /**
+     *  Finds a parameter in a query string.
+     **/
+    private static String parameter(String query, String name,
+                                    String otherwise)
+    {
+        if ( query == null )
+            return otherwise;
+        for ( String pair : query.split("&") )
+            if ( pair.startsWith(name + "=") )
+                return pair.substring(name.length() + 1);
+        return otherwise;
+    }
+
+    /**
+     *  Sends a whole response.
+     **/
+    private static void reply(HttpExchange exchange, int code, String type,
+                              String body) throws IOException
+    {
+        reply(exchange, code, type, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     *  Sends a whole response.
+     **/
+    private static void reply(HttpExchange exchange, int code, String type,
+                              byte[] body) throws IOException
+    {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(code, body.length);
+        try ( OutputStream out = exchange.getResponseBody() )
+        {
+            out.write(body);
+        }
+    }
+
+
+    /**
+     *  A Telemetry object holds the figures published after one step.  It
+     *  never changes once published, so any number of server threads can
+     *  turn it into JSON at once.
+     **/
+    private static final class Telemetry
+    {
+        final long step;
+        final int width, height;
+        final int fishCount;
+        final double stepRate;
+        final AquaStats stats;        // copied figures, or null
+        final long turns, wallHits, moves;
+        final double meanX, meanY, balance, meanMove;
+        int asked;                    // positions asked for, or 0
+        int[] ids, xs, ys;            // every k-th fish, if asked for
+        boolean[] facingRight;
+
+        /**
+         *  Copies the figures from the aquarium and its statistics.
+         **/
+        Telemetry(Aquarium aqua, long step, double stepRate)
+        {
+            this.step = step;
+            this.width = aqua.width();
+            this.height = aqua.height();
+            this.fishCount = aqua.getFish().size();
+            this.stepRate = stepRate;
+            this.stats = aqua.stats();
+            AquaStats s = stats;
+            turns = (s == null) ? 0 : s.turns();
+            wallHits = (s == null) ? 0 : s.wallHits();
+            moves = (s == null) ? 0 : s.moves();
+            meanX = (s == null) ? 0 : s.meanX();
+            meanY = (s == null) ? 0 : s.meanY();
+            balance = (s == null) ? 0 : s.directionBalance();
+            meanMove = (s == null) ? 0 : s.meanMoveDistance();
+        }
+
+        /**
+         *  Copies the positions of at most max fish, spread evenly
+         *  through the list.
+         **/
+        void capturePositions(List<AquaFish> fish, int max)
+        {
+            asked = max;
+            int n = fish.size();
+            int stride = Math.max(1, (n + max - 1) / max);
+            int count = (n + stride - 1) / stride;
+            ids = new int[count];
+            xs = new int[count];
+            ys = new int[count];
+            facingRight = new boolean[count];
+            for ( int k = 0; k < count; k++ )
+            {
+                AquaFish f = fish.get(k * stride);
+                ids[k] = f.id();
+                xs[k] = f.xCoord();
+                ys[k] = f.yCoord();
+                facingRight[k] = f.isFacingRight();
+            }
+        }
+
+        /**
+         *  Describes the figures as a JSON object.
+         **/
+        String toJson()
+        {
+            StringBuilder json = new StringBuilder(200);
+            json.append(String.format(Locale.ROOT,
+                "{\"step\":%d,\"fish\":%d,\"stepsPerSecond\":%.1f",
+                step, fishCount, stepRate));
+            if ( stats != null )
+                json.append(String.format(Locale.ROOT,
+                    ",\"turns\":%d,\"wallHits\":%d,\"moves\":%d,"
+                    + "\"meanX\":%.1f,\"meanY\":%.1f,"
+                    + "\"directionBalance\":%.4f,\"meanMove\":%.3f",
+                    turns, wallHits, moves, meanX, meanY, balance,
+                    meanMove));
+            return json.append('}').toString();
+        }
+
+        /**
+         *  Describes at most max of the captured fish as JSON: each fish
+         *  is [id, x, y, 1 if facing right or 0].
+         **/
+        String positionsJson(int max)
+        {
+            int stride = Math.max(1, (ids.length + max - 1) / max);
+            StringBuilder json = new StringBuilder(64 + 24 * ids.length);
+            json.append("{\"step\":").append(step)
+                .append(",\"width\":").append(width)
+                .append(",\"height\":").append(height)
+                .append(",\"fishCount\":").append(fishCount)
+                .append(",\"fish\":[");
+            for ( int k = 0; k < ids.length; k += stride )
+            {
+                if ( k > 0 )
+                    json.append(',');
+                json.append('[').append(ids[k]).append(',').append(xs[k])
+                    .append(',').append(ys[k]).append(',')
+                    .append(facingRight[k] ? 1 : 0).append(']');
+            }
+            return json.append("]}").toString();
+        }
+
+        /**
+         *  Packs at most max of the captured fish as binary: the step
+         *  (8 bytes), width, height, and number of fish listed (4 bytes
+         *  each), then for each fish its id, x, and y (4 bytes each) and
+         *  direction (1 byte, 1 for right), all big-endian.
+         **/
+        byte[] toBinary(int max)
+        {
+            int stride = Math.max(1, (ids.length + max - 1) / max);
+            int count = (ids.length + stride - 1) / stride;
+            ByteArrayOutputStream bytes =
+                new ByteArrayOutputStream(20 + 13 * count);
+            try ( DataOutputStream out = new DataOutputStream(bytes) )
+            {
+                out.writeLong(step);
+                out.writeInt(width);
+                out.writeInt(height);
+                out.writeInt(count);
+                for ( int k = 0; k < ids.length; k += stride )
+                {
+                    out.writeInt(ids[k]);
+                    out.writeInt(xs[k]);
+                    out.writeInt(ys[k]);
+                    out.writeByte(facingRight[k] ? 1 : 0);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException(e);   // cannot happen
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+}
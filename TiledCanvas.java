@@ -0,0 +1,330 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The TiledCanvas class draws part of an aquarium that is too big to
+ *      keep as one picture.  (A 20000 by 20000 aquarium would need more
+ *      than a gigabyte and a half for a single image.)  The aquarium is cut
+ *      into square tiles of TILE_SIZE pixels; only the tiles that can be
+ *      seen through the view window are drawn, and each is drawn into its
+ *      own small image, which is kept for next time.
+ * <br> <br>
+ *      A kept tile is only drawn again if it has changed: each frame, the
+ *      fish that overlap each visible tile are boiled down to a checksum
+ *      (of their IDs, positions, shapes, and colors, in drawing order), and
+ *      a tile whose checksum matches the one it was drawn with is shown as
+ *      it is.  Tiles of open water, and tiles whose fish have not moved
+ *      (for example while the run is paused, or when the view is scrolled
+ *      back to where it was), therefore cost nothing to show.
+ * <br> <br>
+ *      At most <code>maxTiles</code> tiles are kept; when another is
+ *      needed, the one that was shown longest ago is dropped and its image
+ *      is reused, so the memory used for drawing stays the same however
+ *      big the aquarium is.  (If more tiles than that can be seen at once,
+ *      as many as can be seen are kept.)  Changed tiles are drawn in
+ *      parallel.  Fish are drawn as by FishRasterizer, without
+ *      antialiasing.
+ * <br> <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see FishRasterizer
+ * @see AquaSimGUI
+ **/
+public class TiledCanvas
+{
+    // STATE
+
+    public static final int TILE_SIZE = 256;            // pixels on a side
+    public static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * 4;
+
+    private final int cols, rows;        // number of tiles across and down
+    private final int maxTiles;          // most tiles to keep
+    private int limit;                   // maxTiles, or more if that many
+                                         //    are visible at once
+    private final FishRasterizer painter = new FishRasterizer();
+    private final LinkedHashMap<Integer, Tile> tiles;  // kept, LRU order
+    private Tile spare;                  // last tile dropped, for reuse
+
+    // Per frame: which fish overlap each visible tile.
+    private int[] tileStart = new int[0];   // start of each tile's fish
+    private int[] tileFish = new int[0];    // fish indices, tile by tile
+    private long[] checksums = new long[0]; // of each tile's fish
+
+    private long tilesDrawn, tilesReused, tilesDropped;
+
+    // OPERATIONS (constructor and methods)
+
+    /**
+     *  Constructs a tiled canvas for an aquarium of the given size.
+     *  @param  width      width of the aquarium (in pixels)
+     *  @param  height     height of the aquarium (in pixels)
+     *  @param  maxTiles   most tiles to keep at once (each takes
+     *                     TILE_BYTES bytes); this should be at least
+     *                     as many as can be seen at once
+     **/
+    public TiledCanvas(int width, int height, int maxTiles)
+    {
+        if ( width <= 0 || height <= 0 || maxTiles <= 0 )
+            throw new IllegalArgumentException(
+                "size and number of tiles must be positive");
+        this.cols = (width + TILE_SIZE - 1) / TILE_SIZE;
+        this.rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        this.maxTiles = maxTiles;
+        this.limit = maxTiles;
+        this.tiles = new LinkedHashMap<Integer, Tile>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<Integer, Tile> e)
+            {
+                if ( size() <= limit )
+                    return false;
+                spare = e.getValue();
+                tilesDropped++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     *  Works out how many tiles fit in a memory budget.
+     *  @param  bytes   the budget
+     *  @return the number of tiles (at least one)
+     **/
+    public static int tilesFor(long bytes)
+    {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                                          bytes / TILE_BYTES));
+    }
+
+    /**
+     *  Draws the part of the aquarium seen through a view window.
+     *  @param  fish    the fish to draw
+     *  @param  water   color of the water, as 0xRRGGBB
+     *  @param  viewX   x coordinate, in the aquarium, of the window's left
+     *                  edge
+     *  @param  viewY   y coordinate of the window's top edge
+     *  @param  viewW   width of the window (in pixels)
+     *  @param  viewH   height of the window (in pixels)
+     *  @param  g       where to draw; the window's top left corner is
+     *                  drawn at (0, 0)
+     **/
+    public void render(AquaSnapshot fish, int water, int viewX, int viewY,
+                       int viewW, int viewH, Graphics2D g)
+    {
+        int col0 = clamp(viewX / TILE_SIZE, cols);
+        int row0 = clamp(viewY / TILE_SIZE, rows);
+        int col1 = clamp((viewX + viewW - 1) / TILE_SIZE, cols);
+        int row1 = clamp((viewY + viewH - 1) / TILE_SIZE, rows);
+        int across = col1 - col0 + 1;
+        int visible = across * (row1 - row0 + 1);
+        limit = Math.max(maxTiles, visible);   // never drop a visible tile
+        painter.prepare(fish);
+        sortIntoTiles(fish, water, col0, row0, col1, row1);
+
+        // Find the kept tiles that are still good, and pick out the rest
+        // to be drawn.
+        Tile[] shown = new Tile[visible];
+        int[] changed = new int[visible];
+        int changes = 0;
+        for ( int v = 0; v < visible; v++ )
+        {
+            int key = (row0 + v / across) * cols + (col0 + v % across);
+            Tile t = tiles.get(key);
+            if ( t == null )
+            {
+                t = newTile();
+                tiles.put(key, t);
+            }
+            shown[v] = t;
+            if ( t.drawn && t.checksum == checksums[v] )
+                tilesReused++;
+            else
+                changed[changes++] = v;
+        }
+
+        // Draw the changed tiles in parallel; each has its own pixels.
+        IntStream.range(0, changes).parallel().forEach(c ->
+        {
+            int v = changed[c];
+            int left = (col0 + v % across) * TILE_SIZE;
+            int top = (row0 + v / across) * TILE_SIZE;
+            painter.drawRegion(shown[v].pixels, TILE_SIZE, TILE_SIZE,
+                               left, top, fish, tileFish,
+                               tileStart[v], tileStart[v + 1], water);
+        });
+        for ( int c = 0; c < changes; c++ )
+        {
+            Tile t = shown[changed[c]];
+            t.checksum = checksums[changed[c]];
+            t.drawn = true;
+        }
+        tilesDrawn += changes;
+
+        for ( int v = 0; v < visible; v++ )
+        {
+            int left = (col0 + v % across) * TILE_SIZE;
+            int top = (row0 + v / across) * TILE_SIZE;
+            g.drawImage(shown[v].image, left - viewX, top - viewY, null);
+        }
+    }
+
+    /**
+     *  Gets the number of tiles drawn so far.
+     *  @return the number of tiles drawn
+     **/
+    public long tilesDrawn()
+    {
+        return tilesDrawn;
+    }
+
+    /**
+     *  Gets the number of times a kept tile has been shown without being
+     *  drawn again.
+     *  @return the number of tiles reused
+     **/
+    public long tilesReused()
+    {
+        return tilesReused;
+    }
+
+    /**
+     *  Gets the number of kept tiles dropped to make room for others.
+     *  @return the number of tiles dropped
+     **/
+    public long tilesDropped()
+    {
+        return tilesDropped;
+    }
+
+    /**
+     *  Gets the number of tiles kept at the moment.
+     *  @return the number of tiles kept
+     **/
+    public int tilesKept()
+    {
+        return tiles.size();
+    }
+
+    /**
+     *  Sorts the fish that overlap the visible tiles into per-tile lists
+     *  (in tileStart and tileFish, in drawing order) and works out the
+     *  checksum of each list.
+     **/
+    private void sortIntoTiles(AquaSnapshot fish, int water,
+                               int col0, int row0, int col1, int row1)
+    {
+        int across = col1 - col0 + 1;
+        int visible = across * (row1 - row0 + 1);
+        if ( tileStart.length < visible + 1 )
+        {
+            tileStart = new int[visible + 1];
+            checksums = new long[visible];
+        }
+        Arrays.fill(tileStart, 0, visible + 1, 0);
+        Arrays.fill(checksums, 0, visible, water);
+
+        // Count the fish in each tile, then lay the lists out one after
+        // another and fill them in.  A fish near a tile's edge may
+        // overlap as many as four tiles.
+        int n = fish.size();
+        for ( int pass = 0; pass < 2; pass++ )
+        {
+            if ( pass == 1 )
+            {
+                for ( int v = 0; v < visible; v++ )
+                    tileStart[v + 1] += tileStart[v];
+                if ( tileFish.length < tileStart[visible] )
+                    tileFish = new int[tileStart[visible]];
+                System.arraycopy(tileStart, 0, tileStart, 1, visible);
+                tileStart[0] = 0;
+            }
+            for ( int i = 0; i < n; i++ )
+            {
+                int reach = painter.reach(i);
+                int x = fish.xs[i];
+                int y = fish.ys[i];
+                // (A fish may reach past the top or left edge, so round
+                // down rather than toward zero.)
+                int c0 = Math.max(col0, Math.floorDiv(x - reach, TILE_SIZE));
+                int c1 = Math.min(col1, Math.floorDiv(x + reach, TILE_SIZE));
+                int r0 = Math.max(row0, Math.floorDiv(y - reach, TILE_SIZE));
+                int r1 = Math.min(row1, Math.floorDiv(y + reach, TILE_SIZE));
+                for ( int r = r0; r <= r1; r++ )
+                    for ( int c = c0; c <= c1; c++ )
+                    {
+                        int v = (r - row0) * across + (c - col0);
+                        if ( pass == 0 )
+                        {
+                            tileStart[v + 1]++;
+                            continue;
+                        }
+                        tileFish[tileStart[v + 1]++] = i;
+                        checksums[v] = 31 * checksums[v]
+                                     + fingerprint(fish, i);
+                    }
+            }
+        }
+    }
+
+    /**
+     *  Mixes everything that affects how a fish is drawn into one number.
+     **/
+    private static long fingerprint(AquaSnapshot fish, int i)
+    {
+        long h = fish.ids[i];
+        h = h * 0x9E3779B97F4A7C15L + fish.xs[i];
+        h = h * 0x9E3779B97F4A7C15L + fish.ys[i];
+        h = h * 0x9E3779B97F4A7C15L + fish.lengths[i];
+        h = h * 0x9E3779B97F4A7C15L + fish.colors[i];
+        h = h * 0x9E3779B97F4A7C15L + (fish.facingRight[i] ? 1 : 0);
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     *  Gets a tile to draw into: the last one dropped, if there is one.
+     **/
+    private Tile newTile()
+    {
+        Tile t = spare;
+        spare = null;
+        if ( t == null )
+            return new Tile();
+        t.drawn = false;
+        return t;
+    }
+
+    /**
+     *  Restricts a tile coordinate to the range 0 .. (limit - 1).
+     **/
+    private static int clamp(int value, int limit)
+    {
+        if ( value < 0 )
+            return 0;
+        if ( value >= limit )
+            return limit - 1;
+        return value;
+    }
+
+
+    /**
+     *  A Tile is the picture of one square of the aquarium, as last drawn.
+     **/
+    private static class Tile
+    {
+        final BufferedImage image =
+            new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        final int[] pixels =
+            ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        long checksum;      // of the fish it was drawn with
+        boolean drawn;      // has it been drawn yet?
+    }
+
+}
@@ -0,0 +1,58 @@
+import java.util.List;
+
+
+/**
+ * Aquarium Lab Series: <br>
+ *      The WallDistanceBenchmark class times the hottest path in the
+ *      simulation: a fish checking whether it is at a wall, turning if it
+ *      is, and swimming forward (which checks the distance to the wall
+ *      again).  Every fish swims with the plain SwimBehavior, in a narrow
+ *      tank so that fish reach the walls often.  Run it from the command
+ *      line:
+ *      <pre>
+ *      java WallDistanceBenchmark [numFish] [numSteps]
+ *      </pre>
+ * <br>
+ * Created: <br>
+ *   19 October 2026.<br>
+ *
+ * @version 19 October 2026
+ * @see NavigationalAide
+ **/
+public class WallDistanceBenchmark
+{
+    /**
+     *  Runs the benchmark.
+     *  @param  args   optional number of fish and number of steps
+     **/
+    public static void main(String[] args)
+    {
+        int numFish = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+        int numSteps = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+
+        Aquarium aqua = new Aquarium(600, 3000, 1);
+        for ( int i = 0; i < numFish; i++ )
+            aqua.add(new AquaFish(aqua));
+        List<AquaFish> fish = aqua.getFish();
+
+        for ( int round = 0; round < 5; round++ )
+        {
+            long start = System.nanoTime();
+            for ( int step = 0; step < numSteps; step++ )
+                SwimBehavior.INSTANCE.moveAll(fish);
+            long elapsed = System.nanoTime() - start;
+
+            // Fold the positions into a checksum, so that the work cannot
+            // be optimized away (and runs can be compared).
+            long checksum = 0;
+            for ( AquaFish f : fish )
+                checksum = 31 * checksum + f.xCoord()
+                           + (f.isFacingRight() ? 1 : 0);
+            System.out.printf("round %d: %.2f ns per fish-step "
+                              + "(checksum %x)%n", round,
+                              elapsed / (double) numFish / numSteps,
+                              checksum);
+        }
+    }
+
+}
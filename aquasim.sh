@@ -0,0 +1,76 @@
+#!/bin/sh
+#
+# Aquarium Lab Series: compiles and runs the aquarium simulation.
+#
+#   ./aquasim.sh [--name=value...]    run (see SimulationConfig for settings)
+#   ./aquasim.sh --rebuild-cds        rebuild the class-data sharing archive
+#
+# The GUI loads several hundred JPT, Swing and AWT classes before the first
+# frame.  The first GUI run records them (starting without waiting for the
+# Start button and exiting after the first frame) into an AppCDS archive,
+# and later runs map that archive instead of loading the classes one by
+# one.  CDS can only archive classes from jar files, so the simulation
+# classes are packaged into build/aquasim.jar first.  Runs that do not
+# render to the GUI (see SimulationConfig) neither record nor use the
+# archive.
+
+cd "$(dirname "$0")" || exit 1
+BUILD=build
+JAR=$BUILD/aquasim.jar
+ARCHIVE=$BUILD/aquasim-gui.jsa
+CP="$JAR:+libs/jpt.jar"
+
+if [ "$1" = "--rebuild-cds" ]; then
+    rm -f "$ARCHIVE"
+    shift
+fi
+
+# Recompile whenever a source file is newer than the jar.
+if [ ! -f "$JAR" ] || [ -n "$(find . -maxdepth 1 -name '*.java' -newer "$JAR")" ]; then
+    rm -rf "$BUILD/classes" "$ARCHIVE"
+    mkdir -p "$BUILD/classes"
+    javac -cp +libs/jpt.jar -d "$BUILD/classes" ./*.java || exit 1
+    jar cf "$JAR" -C "$BUILD/classes" . || exit 1
+fi
+
+# Only GUI runs benefit from the GUI archive.  Work out how the run will
+# render from the arguments, as SimulationConfig does: the last of
+# --headless and --render= wins, writing frames implies raster, and
+# playing back a recording or using the simulation engine implies the
+# GUI.  Settings in a config file cannot be read here, so for --config=
+# runs ask the application instead (it reports bad settings itself).
+if [ $# -gt 0 ]; then
+    RENDER=none
+    FRAMES=
+    REPLAY=
+    ENGINE=scheduler
+    CONFIG=
+    for ARG in "$@"; do
+        case "$ARG" in
+            --headless)  RENDER=none ;;
+            --render=*)  RENDER=$(echo "${ARG#--render=}" | tr 'A-Z' 'a-z') ;;
+            --png=*|--raw=*)  FRAMES=yes ;;
+            --replay=*)  REPLAY=yes ;;
+            --engine=*)  ENGINE=${ARG#--engine=} ;;
+            --config=*)  CONFIG=yes ;;
+        esac
+    done
+    if [ -n "$CONFIG" ]; then
+        RENDER=$(java -Daquasim.printRender=true -cp "$CP" AquaSimApplication "$@") \
+            || exit $?
+    elif [ -n "$REPLAY" ] || [ "$ENGINE" = simulation ]; then
+        RENDER=gui
+    elif [ -n "$FRAMES" ] && [ "$RENDER" = none ]; then
+        RENDER=raster
+    fi
+    if [ "$RENDER" != gui ]; then
+        exec java -cp "$CP" AquaSimApplication "$@"
+    fi
+fi
+
+if [ ! -f "$ARCHIVE" ]; then
+    java -XX:ArchiveClassesAtExit="$ARCHIVE" -Daquasim.cdsTraining=true \
+         -cp "$CP" AquaSimApplication || rm -f "$ARCHIVE"
+fi
+exec java -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto \
+     -cp "$CP" AquaSimApplication "$@"